@@ -1,14 +1,23 @@
 package GUI;
 
-import compiler.CMMLexer;
+import compiler.CMMDataFlowAnalysis;
+import compiler.CMMExecutor;
+import compiler.CMMIRGenerator;
+import compiler.CMMLoopOptimizer;
+import compiler.CMMOptimizer;
 import compiler.CMMParser;
+import compiler.CMMPassManager;
+import compiler.CMMProgram;
+import compiler.InputChannel;
 import compiler.CMMSemanticAnalysis;
+import compiler.CompilationCache;
+import structure.IRProgram;
 import structure.Token;
 import structure.TreeNode;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.swing.tree.DefaultTreeModel;
+import javax.swing.text.BadLocationException;
 import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -19,7 +28,6 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
-import java.util.Enumeration;
 
 public class CompilerGUI {
     private JFrame jFrame;
@@ -35,6 +43,7 @@ public class CompilerGUI {
     private JButton parserButton;
     private JButton executeButton;
     private String filePath;
+    private CompilationCache compilationCache = new CompilationCache(16);   // 文本不变时三个按钮共用编译结果
 
     public CompilerGUI() {
         makeGUI();
@@ -101,17 +110,14 @@ public class CompilerGUI {
             public void actionPerformed(ActionEvent e) {
                 errorArea.setText("");
                 resultArea.setText("");
-                CMMLexer cmmLexer = new CMMLexer();
-                cmmLexer.setSourceText(textArea.getText());
-                cmmLexer.execute(textArea.getText());
-                ArrayList<Token> tokens = cmmLexer.getTokens();
+                CMMProgram program = compilationCache.compile(textArea.getText());
 
-                String error = cmmLexer.getErrorInfo();
-                for (Token token : tokens) {
+                String error = program.getLexerErrorInfo();
+                for (Token token : program.getTokens()) {
                     resultArea.append(token.toString() + "\n");
                 }
-                errorArea.append("词法分析共" + cmmLexer.getErrorNum() + "个错误：" + "\n");
-                if (error != null && !error.equals("")) {
+                errorArea.append("词法分析共" + program.getLexerErrorNum() + "个错误：" + "\n");
+                if (!error.equals("")) {
                     errorArea.append(error);
                 }
             }
@@ -149,12 +155,10 @@ public class CompilerGUI {
             public void actionPerformed(ActionEvent e) {
                 setLookAndFeel();
                 errorArea.setText("");
-                CMMLexer cmmLexer = new CMMLexer();
-                cmmLexer.setSourceText(textArea.getText());
-                cmmLexer.execute(textArea.getText());
-                ArrayList<Token> tokens = cmmLexer.getTokens();
-                CMMParser cmmParser = new CMMParser(tokens);
-                TreeNode root = cmmParser.execute();
+                // token和错误信息取自缓存,显示用的语法树未经优化,需要重新分析
+                CMMProgram compiled = compilationCache.compile(textArea.getText());
+                ArrayList<Token> tokens = new ArrayList<>(compiled.getTokens());
+                TreeNode root = new CMMParser(tokens).execute();
 
                 JTree jTree = getJTree(root);
                 JFrame treeFrame = new JFrame("语法分析树");
@@ -170,15 +174,31 @@ public class CompilerGUI {
 
                 treeFrame.setVisible(true);
 
-                String lexerError = cmmLexer.getErrorInfo();
-                String parserError = cmmParser.getErrorInfo();
-                errorArea.append("词法分析共" + cmmLexer.getErrorNum() + "个错误：" + "\n");
-                if (lexerError != null && !lexerError.equals("")) {
-                    errorArea.append(lexerError);
+                if (!compiled.isValid()) {
+                    errorArea.append(compiled.getErrorInfo());
+                } else {
+                    errorArea.append("词法分析共0个错误：" + "\n");
+                    errorArea.append("\n" + "语法分析共0个错误：" + "\n");
                 }
-                errorArea.append("\n" + "语法分析共" + cmmParser.getErrorNum() + "个错误：" + "\n");
-                if (parserError != null && !parserError.equals("")) {
-                    errorArea.append(parserError);
+                // 语法树无错误时输出优化信息,优化在重新分析得到的语法树上进行,不影响上面显示的语法树
+                if (compiled.isValid()) {
+                    TreeNode optimizeRoot = new CMMParser(tokens).execute();
+                    CMMOptimizer cmmOptimizer = new CMMOptimizer(optimizeRoot);
+                    cmmOptimizer.execute();
+                    new CMMDataFlowAnalysis(optimizeRoot).execute();
+                    CMMLoopOptimizer cmmLoopOptimizer = new CMMLoopOptimizer(optimizeRoot);
+                    cmmLoopOptimizer.execute();
+                    errorArea.append("\n" + "优化共" + (cmmOptimizer.getOptimizeNum() + cmmLoopOptimizer.getOptimizeNum())
+                            + "处：" + "\n");
+                    errorArea.append(cmmOptimizer.getOptimizeInfo());
+                    errorArea.append(cmmLoopOptimizer.getOptimizeInfo());
+                    // 生成SSA形式的中间代码并执行中间代码优化
+                    IRProgram program = new CMMIRGenerator(optimizeRoot).execute();
+                    CMMPassManager cmmPassManager = CMMPassManager.createDefault();
+                    cmmPassManager.execute(program);
+                    errorArea.append(cmmPassManager.getOptimizeInfo());
+                    errorArea.append("\n" + "中间代码：" + "\n");
+                    errorArea.append(program.toString());
                 }
 
             }
@@ -189,44 +209,34 @@ public class CompilerGUI {
             public void actionPerformed(ActionEvent e) {
                 errorArea.setText("");
                 resultArea.setText("");
-                CMMLexer cmmLexer = new CMMLexer();
-                cmmLexer.setSourceText(textArea.getText());
-                cmmLexer.execute(textArea.getText());
-                ArrayList<Token> tokens = cmmLexer.getTokens();
-                CMMParser cmmParser = new CMMParser(tokens);
-                TreeNode root = cmmParser.execute();
-
-                if (cmmLexer.getErrorNum() != 0 || cmmParser.getErrorNum() != 0 || root == null) {
-                    String lexerError = cmmLexer.getErrorInfo();
-                    String parserError = cmmParser.getErrorInfo();
-                    errorArea.append("词法分析共" + cmmLexer.getErrorNum() + "个错误：" + "\n");
-                    if (lexerError != null && !lexerError.equals("")) {
-                        errorArea.append(lexerError);
-                    }
-                    errorArea.append("\n" + "语法分析共" + cmmParser.getErrorNum() + "个错误：" + "\n");
-                    if (parserError != null && !parserError.equals("")) {
-                        errorArea.append(parserError);
-                    }
-                } else {
-                    CMMSemanticAnalysis cmmSemanticAnalysis = new CMMSemanticAnalysis(root);
+                InputChannel inputChannel = new InputChannel();
+                CMMExecutor cmmExecutor = new CMMExecutor(inputChannel, new TextAreaOutputSink(resultArea),
+                        new TextAreaDiagnosticSink(errorArea));
+                cmmExecutor.setCache(compilationCache);
+                // 词法分析、语法分析和优化,有错误时错误信息输出到errorArea
+                CMMProgram program = cmmExecutor.compile(textArea.getText());
+                if (program != null) {
+                    CMMSemanticAnalysis cmmSemanticAnalysis = cmmExecutor.createInterpreter(program);
                     //添加read操作
                     resultArea.addKeyListener(new KeyAdapter() {
                         @Override
                         public void keyPressed(KeyEvent e) {
                             super.keyPressed(e);
                             if(e.getKeyCode()== KeyEvent.VK_ENTER){
-                                String content = resultArea.getText();
-                                String[] values = content.split("\n");
-                                String input = values[values.length-1];
-                                cmmSemanticAnalysis.setUserInput(input);
+                                // 只取最后一行作为输入
+                                try {
+                                    int line = resultArea.getLineCount() - 1;
+                                    int start = resultArea.getLineStartOffset(line);
+                                    int end = resultArea.getLineEndOffset(line);
+                                    inputChannel.offer(resultArea.getText(start, end - start));
+                                } catch (BadLocationException exception) {
+                                    exception.printStackTrace();
+                                }
                             }
                         }
                     });
 
                     cmmSemanticAnalysis.start();
-
-                    String errorInfo = cmmSemanticAnalysis.getErrorInfo();
-                    errorArea.setText(errorInfo);
                 }
             }
         });
@@ -242,22 +252,15 @@ public class CompilerGUI {
     }
 
     private JTree getJTree(TreeNode treeNode) {
-        DefaultTreeModel model = new DefaultTreeModel(treeNode);
-        JTree tree = new JTree(model);
-        TreeNode root = (TreeNode) tree.getModel().getRoot();
-        expandTree(tree, new TreePath(root));
+        JTree tree = new JTree(new SyntaxTreeAdapter(treeNode));
+        expandTree(tree, new TreePath(treeNode));
         return tree;
     }
 
     private void expandTree(JTree tree, TreePath parent) {
-         //有重复定义的TreeNode，所以此处加上包的名字
-        javax.swing.tree.TreeNode node = (javax.swing.tree.TreeNode) parent.getLastPathComponent();
-        if (node.getChildCount() >= 0) {
-            for (Enumeration<?> e = node.children(); e.hasMoreElements(); ) {
-                javax.swing.tree.TreeNode n = (javax.swing.tree.TreeNode) e.nextElement();
-                TreePath path = parent.pathByAddingChild(n);
-                expandTree(tree, path);
-            }
+        TreeNode node = (TreeNode) parent.getLastPathComponent();
+        for (int i = 0; i < node.getChildCount(); i++) {
+            expandTree(tree, parent.pathByAddingChild(node.getChildAt(i)));
         }
         tree.expandPath(parent);
     }
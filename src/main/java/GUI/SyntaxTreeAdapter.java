@@ -0,0 +1,59 @@
+package GUI;
+
+import structure.TreeNode;
+
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * 把语法树作为JTree的模型显示,结点直接使用structure.TreeNode,显示内容为结点的content;
+ * 语法树显示后不再修改,因此不通知监听器
+ */
+public class SyntaxTreeAdapter implements TreeModel {
+    private TreeNode root;      // 语法树的根结点
+
+    public SyntaxTreeAdapter(TreeNode root) {
+        this.root = root;
+    }
+
+    @Override
+    public Object getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return ((TreeNode) parent).getChildAt(index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return ((TreeNode) parent).getChildCount();
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return ((TreeNode) node).getChildCount() == 0;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // 语法树不能在界面中编辑
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null)
+            return -1;
+        return ((TreeNode) parent).getIndex((TreeNode) child);
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+    }
+}
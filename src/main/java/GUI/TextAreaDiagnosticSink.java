@@ -0,0 +1,27 @@
+package GUI;
+
+import compiler.DiagnosticSink;
+
+import javax.swing.*;
+
+/**
+ * 错误信息追加到错误文本框,输入错误弹出对话框,都在事件分派线程中执行
+ */
+public class TextAreaDiagnosticSink implements DiagnosticSink {
+    private JTextArea textArea;     // 错误文本框
+
+    public TextAreaDiagnosticSink(JTextArea textArea) {
+        this.textArea = textArea;
+    }
+
+    @Override
+    public void report(String info) {
+        SwingUtilities.invokeLater(() -> textArea.append(info));
+    }
+
+    @Override
+    public void inputError(String message) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(new JPanel(), message, "输入错误",
+                JOptionPane.ERROR_MESSAGE));
+    }
+}
@@ -0,0 +1,62 @@
+package GUI;
+
+import compiler.OutputSink;
+
+import javax.swing.*;
+
+/**
+ * 输出到JTextArea的缓冲输出：解释器线程只向缓冲区追加,由事件分派线程成批追加到文本框,
+ * 两次追加之间至少间隔FLUSH_INTERVAL毫秒,未送出时只安排一次追加
+ */
+public class TextAreaOutputSink implements OutputSink {
+    private static final int FLUSH_INTERVAL = 50;       // 两次追加到文本框的最小间隔(毫秒)
+
+    private JTextArea textArea;                         // 输出的文本框
+    private StringBuilder buffer = new StringBuilder();     // 尚未送出的输出
+    private boolean pending;                            // 是否已安排追加
+    private long lastFlush;                             // 上一次追加的时间(毫秒)
+
+    public TextAreaOutputSink(JTextArea textArea) {
+        this.textArea = textArea;
+    }
+
+    @Override
+    public synchronized void write(String line) {
+        buffer.append(line).append("\n");
+        if (pending)
+            return;
+        pending = true;
+        long delay = lastFlush + FLUSH_INTERVAL - System.currentTimeMillis();
+        if (delay <= 0) {
+            SwingUtilities.invokeLater(this::drain);
+        } else {
+            // 距上一次追加不足FLUSH_INTERVAL,延迟到间隔结束时追加,期间的输出合并为一批
+            Timer timer = new Timer((int) delay, e -> drain());
+            timer.setRepeats(false);
+            timer.start();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (buffer.length() == 0)
+            return;
+        pending = true;
+        SwingUtilities.invokeLater(this::drain);
+    }
+
+    /**
+     * 功能介绍：在事件分派线程中把缓冲区的内容追加到文本框
+     */
+    private void drain() {
+        String text;
+        synchronized (this) {
+            text = buffer.toString();
+            buffer.setLength(0);
+            pending = false;
+            lastFlush = System.currentTimeMillis();
+        }
+        if (!text.isEmpty())
+            textArea.append(text);
+    }
+}
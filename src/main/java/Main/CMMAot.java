@@ -0,0 +1,66 @@
+package Main;
+
+import compiler.CMMAotCompiler;
+import compiler.CMMProgram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 提前编译的命令行：把CMM程序编译为可以用java -jar运行的jar,默认输出到与程序同名的.jar文件;
+ * --source只输出生成的Java源程序
+ * 用法：CMMAot [-o 输出文件] [--source] 程序文件
+ */
+public class CMMAot {
+    public static void main(String[] args) {
+        String output = null;
+        boolean sourceOnly = false;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (args[i].equals("--source")) {
+                sourceOnly = true;
+            } else {
+                file = args[i];
+            }
+        }
+        if (file == null) {
+            System.err.println("用法：CMMAot [-o 输出文件] [--source] 程序文件");
+            System.exit(2);
+        }
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(System.err, true, StandardCharsets.UTF_8);
+        boolean success;
+        try {
+            CMMProgram program = CMMProgram.compile(new String(Files.readAllBytes(Paths.get(file)),
+                    StandardCharsets.UTF_8));
+            CMMAotCompiler compiler = new CMMAotCompiler(program);
+            if (!program.isValid()) {
+                err.print(program.getErrorInfo());
+                success = false;
+            } else if (sourceOnly) {
+                String source = compiler.generate();
+                if (source != null)
+                    out.print(source);
+                success = source != null;
+            } else {
+                Path jarFile = Paths.get(output != null ? output : file.replaceFirst("\\.[^./\\\\]*$", "") + ".jar");
+                success = compiler.compile(jarFile);
+                if (success)
+                    out.println("已生成" + jarFile + ",用java -jar " + jarFile + "运行");
+            }
+            if (compiler.getErrorNum() != 0)
+                err.print("不能提前编译,共" + compiler.getErrorNum() + "处：\n" + compiler.getErrorInfo());
+        } catch (IOException e) {
+            err.println("提前编译失败：" + e);
+            success = false;
+        }
+        out.flush();
+        System.exit(success ? 0 : 1);
+    }
+}
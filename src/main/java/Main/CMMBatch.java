@@ -0,0 +1,231 @@
+package Main;
+
+import compiler.CMMExecutor;
+import compiler.CMMProgramStore;
+import compiler.CompilationCache;
+import compiler.InputChannel;
+import compiler.MemoryDiagnosticSink;
+import compiler.MemoryOutputSink;
+import compiler.ResourceGovernor;
+import compiler.ResultCache;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 命令行批处理：对给定的文件和目录(递归查找.cmm和.txt文件)中的每个程序做词法分析、语法分析并执行,
+ * 每个文件使用独立的CMMExecutor,内容相同的文件共用编译结果,在线程池中并行处理,每个文件处理完立即输出结果和错误信息,最后输出吞吐量;
+ * 程序文件X存在同目录的X.in时,按行作为read语句的输入;可以限制每个程序的执行步数、执行时间和变量个数;
+ * 给出缓存目录时编译结果保存在磁盘上,之后的运行中未修改的程序不再编译;
+ * 使用--memoize时不读取输入的程序重放缓存的执行结果(有缓存目录时也保存在其中),--refresh忽略已缓存的结果重新执行
+ * 用法：CMMBatch [-t 线程数] [-q] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]
+ *      [--cache-dir 目录] [--cache-size MB] [--memoize] [--refresh] 文件或目录...
+ */
+public class CMMBatch {
+    private PrintStream out;                                // 结果输出
+    private boolean quiet;                                  // 只输出失败的文件和汇总
+    private AtomicInteger passed = new AtomicInteger();     // 没有错误的文件个数
+    private AtomicInteger failed = new AtomicInteger();     // 有错误的文件个数
+    private AtomicLong bytes = new AtomicLong();            // 处理的源程序字节数
+    private long maxSteps;                                  // 每个程序最多执行步数,0表示不限制
+    private long timeoutMillis;                             // 每个程序最长执行时间,0表示不限制
+    private long maxCells;                                  // 每个程序最多的变量和数组元素个数,0表示不限制
+    private CompilationCache cache = new CompilationCache(256);     // 内容相同的文件只编译一次
+    private ResultCache resultCache;                        // 执行结果的缓存,为null时每次都执行
+
+    public CMMBatch(PrintStream out, boolean quiet) {
+        this.out = out;
+        this.quiet = quiet;
+    }
+
+    /**
+     * 功能介绍：设置磁盘缓存
+     */
+    public void setStore(CMMProgramStore store) {
+        cache.setStore(store);
+    }
+
+    /**
+     * 功能介绍：设置执行结果的缓存
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * 功能介绍：设置每个程序的资源限制,0表示不限制
+     */
+    public void setLimits(long maxSteps, long timeoutMillis, long maxCells) {
+        this.maxSteps = maxSteps;
+        this.timeoutMillis = timeoutMillis;
+        this.maxCells = maxCells;
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        long maxSteps = 0;
+        long timeoutMillis = 0;
+        long maxCells = 0;
+        Path cacheDirectory = null;
+        long cacheMegabytes = 64;
+        boolean memoize = false;
+        boolean refresh = false;
+        ArrayList<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ((args[i].equals("-t") || args[i].equals("--threads")) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-q") || args[i].equals("--quiet")) {
+                quiet = true;
+            } else if (args[i].equals("--max-steps") && i + 1 < args.length) {
+                maxSteps = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeoutMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-cells") && i + 1 < args.length) {
+                maxCells = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+                cacheMegabytes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--memoize")) {
+                memoize = true;
+            } else if (args[i].equals("--refresh")) {
+                refresh = true;
+            } else {
+                paths.add(Paths.get(args[i]));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("用法：CMMBatch [-t 线程数] [-q] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]"
+                    + " [--cache-dir 目录] [--cache-size MB] [--memoize] [--refresh] 文件或目录...");
+            System.exit(2);
+        }
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        CMMBatch batch = new CMMBatch(out, quiet);
+        batch.setLimits(maxSteps, timeoutMillis, maxCells);
+        boolean success;
+        try {
+            if (cacheDirectory != null)
+                batch.setStore(new CMMProgramStore(cacheDirectory, cacheMegabytes << 20));
+            if (memoize) {
+                ResultCache resultCache = new ResultCache(cacheMegabytes << 20);
+                if (cacheDirectory != null)
+                    resultCache.setDirectory(cacheDirectory, cacheMegabytes << 20);
+                resultCache.setBypass(refresh);
+                batch.setResultCache(resultCache);
+            }
+            success = batch.execute(collect(paths), threads);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("批处理失败：" + e);
+            success = false;
+        }
+        out.flush();
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：展开目录,按路径排序
+     * @param paths 命令行给出的文件和目录
+     * @return 所有程序文件
+     */
+    static List<Path> collect(List<Path> paths) throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> stream = Files.walk(path)) {
+                    files.addAll(stream.filter(Files::isRegularFile).filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.endsWith(".cmm") || name.endsWith(".txt");
+                    }).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 功能介绍：在线程池中处理所有文件,结束后输出汇总
+     * @param files 程序文件
+     * @param threads 线程数
+     * @return 所有文件都没有错误时返回true
+     */
+    public boolean execute(List<Path> files, int threads) throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (Path file : files) {
+            pool.execute(() -> process(file));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        synchronized (out) {
+            out.println("共" + files.size() + "个文件：通过" + passed.get() + "个,失败" + failed.get() + "个,"
+                    + threads + "个线程");
+            out.printf("用时 %.3f s,%.1f 文件/s,%.3f MB/s%n", seconds, files.size() / seconds,
+                    bytes.get() / 1e6 / seconds);
+            out.println("编译缓存：命中" + cache.getHits() + "次,未命中" + cache.getMisses() + "次,其中磁盘缓存命中"
+                    + cache.getDiskHits() + "次");
+            if (resultCache != null)
+                out.println("结果缓存：重放" + resultCache.getHits() + "次,执行" + resultCache.getMisses() + "次");
+            out.flush();
+        }
+        return failed.get() == 0;
+    }
+
+    /**
+     * 功能介绍：处理一个文件,处理完立即输出结果
+     */
+    private void process(Path file) {
+        MemoryOutputSink output = new MemoryOutputSink();
+        MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+        boolean success;
+        String exception = null;
+        try {
+            byte[] source = Files.readAllBytes(file);
+            bytes.addAndGet(source.length);
+            Path inputFile = Paths.get(file + ".in");
+            InputChannel input = Files.exists(inputFile)
+                    ? InputChannel.fromFile(inputFile) : InputChannel.fromLines(new ArrayList<>());
+            CMMExecutor executor = new CMMExecutor(input, output, diagnostics);
+            executor.setGovernor(new ResourceGovernor(maxSteps, timeoutMillis, maxCells));
+            executor.setCache(cache);
+            executor.setResultCache(resultCache);
+            success = executor.execute(new String(source, StandardCharsets.UTF_8))
+                    && diagnostics.getInputErrors().isEmpty();
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            success = false;
+            exception = e.toString();
+        }
+        (success ? passed : failed).incrementAndGet();
+        if (quiet && success)
+            return;
+        StringBuilder report = new StringBuilder();
+        report.append("==== ").append(file).append(success ? " 通过" : " 失败").append(" ====\n");
+        report.append(output.getText());
+        report.append(diagnostics.getText());
+        for (String inputError : diagnostics.getInputErrors()) {
+            report.append("输入错误：").append(inputError).append("\n");
+        }
+        if (exception != null)
+            report.append("执行异常：").append(exception).append("\n");
+        synchronized (out) {
+            out.print(report);
+            out.flush();
+        }
+    }
+}
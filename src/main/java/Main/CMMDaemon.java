@@ -0,0 +1,116 @@
+package Main;
+
+import service.DaemonClient;
+import service.DaemonServer;
+import service.ExecutionService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 常驻进程的命令行：daemon在前台启动常驻进程,预热后在Unix域套接字上接受请求,可以限制每次执行的资源;
+ * client把程序发送给常驻进程编译(--compile)或执行,输出和错误信息与直接执行时相同,
+ * 程序文件X存在同目录的X.in时按行作为read语句的输入,-i指定其他输入文件;--stats输出缓存统计,--stop结束常驻进程。
+ * 默认的套接字文件在临时目录中,每个用户一个;没有指定--timeout时每次执行最多10秒
+ * 用法：CMMDaemon daemon [--socket 套接字文件] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]
+ *      CMMDaemon client [--socket 套接字文件] [--compile] [-i 输入文件] 程序文件
+ *      CMMDaemon client [--socket 套接字文件] --stats|--stop
+ */
+public class CMMDaemon {
+    private static final int WARM_UP_TIMES = 2000;      // 启动时执行预热程序的次数
+
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(System.err, true, StandardCharsets.UTF_8);
+        Path socketFile = Paths.get(System.getProperty("java.io.tmpdir"),
+                "cmm-" + System.getProperty("user.name") + ".sock");
+        long maxSteps = 0;
+        long timeoutMillis = 0;
+        long maxCells = 0;
+        String request = "RUN";
+        String inputFile = null;
+        String file = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socketFile = Paths.get(args[++i]);
+            } else if (args[i].equals("--max-steps") && i + 1 < args.length) {
+                maxSteps = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeoutMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-cells") && i + 1 < args.length) {
+                maxCells = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--compile")) {
+                request = "COMPILE";
+            } else if (args[i].equals("--stats")) {
+                request = "STATS";
+            } else if (args[i].equals("--stop")) {
+                request = "STOP";
+            } else if (args[i].equals("-i") && i + 1 < args.length) {
+                inputFile = args[++i];
+            } else {
+                file = args[i];
+            }
+        }
+        String command = args.length > 0 ? args[0] : "";
+        boolean needsFile = request.equals("RUN") || request.equals("COMPILE");
+        if (!command.equals("daemon") && !(command.equals("client") && (file != null || !needsFile))) {
+            err.println("用法：CMMDaemon daemon [--socket 套接字文件] [--max-steps 步数] [--timeout 毫秒]"
+                    + " [--max-cells 个数]");
+            err.println("     CMMDaemon client [--socket 套接字文件] [--compile] [-i 输入文件] 程序文件");
+            err.println("     CMMDaemon client [--socket 套接字文件] --stats|--stop");
+            System.exit(2);
+        }
+        int status;
+        if (command.equals("daemon")) {
+            status = serve(socketFile, maxSteps, timeoutMillis, maxCells, err) ? 0 : 1;
+        } else {
+            try {
+                DaemonClient client = new DaemonClient(socketFile);
+                if (!needsFile) {
+                    status = client.request(request, null, null, out, err);
+                } else {
+                    byte[] source = Files.readAllBytes(Paths.get(file));
+                    Path input = Paths.get(inputFile != null ? inputFile : file + ".in");
+                    if (request.equals("RUN") && (inputFile != null || Files.isRegularFile(input))) {
+                        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                            status = client.request("RUN " + source.length, source, reader, out, err);
+                        }
+                    } else {
+                        status = client.request(request + " " + source.length, source, null, out, err);
+                    }
+                }
+            } catch (IOException e) {
+                err.println("不能连接常驻进程(先用daemon启动)：" + e);
+                status = 2;
+            }
+        }
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * 功能介绍：启动常驻进程,直到收到STOP请求
+     * @return 正常结束时返回true
+     */
+    private static boolean serve(Path socketFile, long maxSteps, long timeoutMillis, long maxCells,
+                                 PrintStream err) {
+        try (ExecutionService service = new ExecutionService();
+             DaemonServer server = new DaemonServer(socketFile, service)) {
+            service.setLimits(maxSteps, timeoutMillis, maxCells);
+            server.bind();
+            long start = System.nanoTime();
+            server.warmUp(WARM_UP_TIMES);
+            err.printf("常驻进程已在%s上监听,预热用时 %.3f s%n", socketFile, (System.nanoTime() - start) / 1e9);
+            server.serve();
+            return true;
+        } catch (IOException e) {
+            err.println("常驻进程启动失败：" + e.getMessage());
+            return false;
+        }
+    }
+}
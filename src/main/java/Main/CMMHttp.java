@@ -0,0 +1,55 @@
+package Main;
+
+import service.ExecutionService;
+import service.HttpService;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 本机HTTP服务的命令行：在回环地址上启动HttpService,直到进程被结束;
+ * 资源限制是每个请求可以使用的上限,请求中可以给出更严格的限制
+ * 用法：CMMHttp [--port 端口] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]
+ */
+public class CMMHttp {
+    public static void main(String[] args) {
+        PrintStream err = new PrintStream(System.err, true, StandardCharsets.UTF_8);
+        int port = 8080;
+        long maxSteps = 0;
+        long timeoutMillis = 0;
+        long maxCells = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-steps") && i + 1 < args.length) {
+                maxSteps = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeoutMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-cells") && i + 1 < args.length) {
+                maxCells = Long.parseLong(args[++i]);
+            } else {
+                err.println("用法：CMMHttp [--port 端口] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]");
+                System.exit(2);
+            }
+        }
+        ExecutionService service = new ExecutionService();
+        service.setLimits(maxSteps, timeoutMillis, maxCells);
+        HttpService httpService;
+        try {
+            httpService = new HttpService(service, port);
+        } catch (IOException e) {
+            err.println("HTTP服务启动失败：" + e.getMessage());
+            service.close();
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            httpService.close();
+            service.close();
+        }));
+        httpService.start();
+        err.println("HTTP服务已在http://127.0.0.1:" + httpService.getPort() + "/上监听,会话线程："
+                + (service.isVirtual() ? "虚拟线程" : "平台线程"));
+    }
+}
@@ -0,0 +1,227 @@
+package Main;
+
+import compiler.CMMProgram;
+import compiler.CMMProgramStore;
+import compiler.CompilationCache;
+import compiler.InputChannel;
+import compiler.MemoryDiagnosticSink;
+import compiler.OutputSink;
+import compiler.ResourceGovernor;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 评测模式：程序只编译一次,在线程池中用每组测试输入并行执行,逐行与期望输出比较,
+ * 第一处不一致时立即取消该组的执行,最后按测试组的顺序输出每组的结果和用时;
+ * 测试目录中的X.in为输入,X.out为期望输出,没有X.in时输入为空;给出缓存目录时未修改的程序从磁盘缓存读入
+ * 用法：CMMJudge [-t 线程数] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]
+ *      [--cache-dir 目录] [--cache-size MB] 程序文件 测试目录
+ */
+public class CMMJudge {
+    /* 评测结果 */
+    static final String ACCEPTED = "通过";
+    static final String WRONG_ANSWER = "答案错误";
+    static final String RUNTIME_ERROR = "运行错误";
+    static final String TIME_LIMIT = "超出时间限制";
+    static final String MEMORY_LIMIT = "超出内存限制";
+    static final String COMPILE_ERROR = "编译错误";
+
+    private CMMProgram program;                     // 编译后的程序
+    private long maxSteps;                          // 每组最多执行步数,0表示不限制
+    private long timeoutMillis;                     // 每组最长执行时间,0表示不限制
+    private long maxCells;                          // 每组最多的变量和数组元素个数,0表示不限制
+
+    public CMMJudge(CMMProgram program, long maxSteps, long timeoutMillis, long maxCells) {
+        this.program = program;
+        this.maxSteps = maxSteps;
+        this.timeoutMillis = timeoutMillis;
+        this.maxCells = maxCells;
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxSteps = 0;
+        long timeoutMillis = 0;
+        long maxCells = 0;
+        Path cacheDirectory = null;
+        long cacheMegabytes = 64;
+        ArrayList<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ((args[i].equals("-t") || args[i].equals("--threads")) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--max-steps") && i + 1 < args.length) {
+                maxSteps = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeoutMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-cells") && i + 1 < args.length) {
+                maxCells = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+                cacheMegabytes = Long.parseLong(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.size() != 2) {
+            System.err.println("用法：CMMJudge [-t 线程数] [--max-steps 步数] [--timeout 毫秒] [--max-cells 个数]"
+                    + " [--cache-dir 目录] [--cache-size MB] 程序文件 测试目录");
+            System.exit(2);
+        }
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        boolean success;
+        try {
+            String source = new String(Files.readAllBytes(Paths.get(paths.get(0))), StandardCharsets.UTF_8);
+            CMMProgram program;
+            if (cacheDirectory != null) {
+                CompilationCache cache = new CompilationCache(1);
+                cache.setStore(new CMMProgramStore(cacheDirectory, cacheMegabytes << 20));
+                program = cache.compile(source);
+            } else {
+                program = CMMProgram.compile(source);
+            }
+            if (!program.isValid()) {
+                out.println(COMPILE_ERROR);
+                out.print(program.getErrorInfo());
+                success = false;
+            } else {
+                CMMJudge judge = new CMMJudge(program, maxSteps, timeoutMillis, maxCells);
+                success = judge.judge(collect(Paths.get(paths.get(1))), threads, out);
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            System.err.println("评测失败：" + e);
+            success = false;
+        }
+        out.flush();
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：查找测试目录中所有的期望输出文件X.out,按名字排序
+     */
+    static List<Path> collect(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(p -> p.getFileName().toString().endsWith(".out")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 功能介绍：并行评测所有测试组,按顺序输出结果
+     * @param expectedFiles 期望输出文件
+     * @param threads 线程数
+     * @param out 结果输出
+     * @return 所有测试组都通过时返回true
+     */
+    public boolean judge(List<Path> expectedFiles, int threads, PrintStream out)
+            throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<String>> verdicts = new ArrayList<>();
+        for (Path expectedFile : expectedFiles) {
+            verdicts.add(pool.submit(() -> judge(expectedFile)));
+        }
+        int accepted = 0;
+        for (int i = 0; i < verdicts.size(); i++) {
+            String verdict = verdicts.get(i).get();
+            if (verdict.startsWith(ACCEPTED))
+                accepted++;
+            String name = expectedFiles.get(i).getFileName().toString();
+            out.println(name.substring(0, name.length() - ".out".length()) + "  " + verdict);
+        }
+        pool.shutdown();
+        out.println("通过" + accepted + "/" + verdicts.size() + "组");
+        return accepted == verdicts.size();
+    }
+
+    /**
+     * 功能介绍：评测一组测试
+     * @param expectedFile 期望输出文件X.out
+     * @return 评测结果、用时和第一处不一致的位置
+     */
+    private String judge(Path expectedFile) throws IOException {
+        String name = expectedFile.toString();
+        Path inputFile = Paths.get(name.substring(0, name.length() - ".out".length()) + ".in");
+        InputChannel input = Files.exists(inputFile)
+                ? InputChannel.fromFile(inputFile) : InputChannel.fromLines(new ArrayList<>());
+        ResourceGovernor governor = new ResourceGovernor(maxSteps, timeoutMillis, maxCells);
+        ComparingOutputSink output = new ComparingOutputSink(Files.readAllLines(expectedFile, StandardCharsets.UTF_8),
+                governor);
+        MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+        long start = System.nanoTime();
+        boolean success = program.run(input, output, diagnostics, governor);
+        long millis = (System.nanoTime() - start) / 1000000;
+        String verdict;
+        if (output.getMismatch() != null) {
+            verdict = WRONG_ANSWER + "  " + millis + " ms  " + output.getMismatch();
+        } else if (governor.getExceeded() == ResourceGovernor.STEPS || governor.getExceeded() == ResourceGovernor.TIME) {
+            verdict = TIME_LIMIT + "  " + millis + " ms";
+        } else if (governor.getExceeded() == ResourceGovernor.MEMORY) {
+            verdict = MEMORY_LIMIT + "  " + millis + " ms";
+        } else if (!success || !diagnostics.getInputErrors().isEmpty()) {
+            verdict = RUNTIME_ERROR + "  " + millis + " ms";
+        } else if (!output.isComplete()) {
+            verdict = WRONG_ANSWER + "  " + millis + " ms  输出少于期望的" + output.getExpectedLines() + "行";
+        } else {
+            verdict = ACCEPTED + "  " + millis + " ms";
+        }
+        return verdict;
+    }
+
+    /**
+     * 逐行与期望输出比较的输出,第一处不一致时取消执行
+     */
+    private static class ComparingOutputSink implements OutputSink {
+        private List<String> expected;              // 期望输出的各行
+        private ResourceGovernor governor;          // 不一致时用来取消执行
+        private int next;                           // 下一行的行号(从0开始)
+        private String mismatch;                    // 第一处不一致的描述,一致时为null
+
+        ComparingOutputSink(List<String> expected, ResourceGovernor governor) {
+            this.expected = expected;
+            this.governor = governor;
+        }
+
+        @Override
+        public synchronized void write(String line) {
+            if (mismatch != null)
+                return;
+            if (next >= expected.size()) {
+                mismatch = "第" + (next + 1) + "行：输出多于期望的" + expected.size() + "行";
+            } else if (!expected.get(next).equals(line)) {
+                mismatch = "第" + (next + 1) + "行：期望\"" + expected.get(next) + "\",实际\"" + line + "\"";
+            }
+            next++;
+            if (mismatch != null)
+                governor.cancel();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        synchronized String getMismatch() {
+            return mismatch;
+        }
+
+        synchronized boolean isComplete() {
+            return next == expected.size();
+        }
+
+        int getExpectedLines() {
+            return expected.size();
+        }
+    }
+}
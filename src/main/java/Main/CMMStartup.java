@@ -0,0 +1,218 @@
+package Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 启动时间：cds用训练程序批处理执行一次,退出时把加载的类保存为类数据共享(AppCDS)归档,
+ * 之后用java -XX:SharedArchiveFile=归档文件 -jar cmm.jar ...启动时直接映射这些类,不再解析和校验;
+ * bench分别在不使用类数据共享、只使用JDK自带的归档和使用应用归档时多次启动批处理执行一个小程序,
+ * 输出从启动进程到第一次输出以及到进程结束的时间的中位数。
+ * 归档与生成它的JDK和jar绑定,JDK或jar改变后需要重新生成;类路径中只能有jar文件
+ * 用法：CMMStartup cds [-o 归档文件] [训练程序...]
+ *      CMMStartup bench [-n 次数] [--archive 归档文件] [程序文件]
+ */
+public class CMMStartup {
+    /** 没有给出训练程序和测试程序时使用,包含声明、数组、循环、分支、实数运算和输出 */
+    private static final String TRAINING_PROGRAM = String.join("\n",
+            "int n = 10;",
+            "int a[10];",
+            "real sum = 0.0;",
+            "int i;",
+            "for (i = 0; i < n; i = i + 1) {",
+            "    a[i] = i * i;",
+            "}",
+            "i = 0;",
+            "while (i < n) {",
+            "    if (a[i] > 20) {",
+            "        sum = sum + a[i] / 2.0;",
+            "    } else {",
+            "        sum = sum - 1;",
+            "    }",
+            "    i = i + 1;",
+            "}",
+            "bool done = sum > 100;",
+            "write(sum);",
+            "write(done);",
+            "");
+
+    private PrintStream out;            // 结果输出
+    private String java;                // 当前JDK的java命令
+    private String classPath;           // 当前进程的类路径,子进程使用相同的类路径
+
+    public CMMStartup(PrintStream out) {
+        this.out = out;
+        java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        classPath = System.getProperty("java.class.path");
+    }
+
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(System.err, true, StandardCharsets.UTF_8);
+        String archive = null;
+        int times = 10;
+        ArrayList<String> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                archive = args[++i];
+            } else if (args[i].equals("--archive") && i + 1 < args.length) {
+                archive = args[++i];
+            } else if (args[i].equals("-n") && i + 1 < args.length) {
+                times = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                files.add(args[i]);
+            }
+        }
+        String command = args.length > 0 ? args[0] : "";
+        if (!command.equals("cds") && !command.equals("bench")) {
+            err.println("用法：CMMStartup cds [-o 归档文件] [训练程序...]");
+            err.println("     CMMStartup bench [-n 次数] [--archive 归档文件] [程序文件]");
+            System.exit(2);
+        }
+        CMMStartup startup = new CMMStartup(out);
+        boolean success;
+        try {
+            List<String> programs = files.isEmpty() ? List.of(writeTrainingProgram().toString()) : files;
+            if (command.equals("cds")) {
+                success = startup.dump(Paths.get(archive != null ? archive : "cmm.jsa"), programs, err);
+            } else {
+                success = startup.bench(archive == null ? null : Paths.get(archive), programs.get(0), times, err);
+            }
+        } catch (IOException | InterruptedException e) {
+            err.println("执行失败：" + e);
+            success = false;
+        }
+        out.flush();
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：把内置的训练程序写入临时文件,退出时删除
+     */
+    private static Path writeTrainingProgram() throws IOException {
+        Path file = Files.createTempFile("cmm-training", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, TRAINING_PROGRAM.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * 功能介绍：训练运行,在子进程中批处理执行训练程序,退出时生成归档
+     * @param archive 归档文件
+     * @param programs 训练程序
+     * @return 生成了归档时返回true
+     */
+    public boolean dump(Path archive, List<String> programs, PrintStream err)
+            throws IOException, InterruptedException {
+        for (String entry : classPath.split(File.pathSeparator)) {
+            if (!Files.isRegularFile(Paths.get(entry))) {
+                err.println("生成归档需要从jar文件启动(java -jar cmm.jar cds),类路径中的" + entry + "不是jar文件");
+                return false;
+            }
+        }
+        Files.deleteIfExists(archive);
+        ArrayList<String> command = new ArrayList<>(Arrays.asList(java,
+                "-XX:ArchiveClassesAtExit=" + archive, "-cp", classPath, "Main.Main", "-t", "1"));
+        command.addAll(programs);
+        Process process = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        process.waitFor();
+        if (!Files.isRegularFile(archive)) {
+            err.println("没有生成归档,当前JDK可能不支持-XX:ArchiveClassesAtExit");
+            return false;
+        }
+        out.println("已生成" + archive + "(" + Files.size(archive) / 1024 + " KB),用java -XX:SharedArchiveFile="
+                + archive + " -jar ...启动");
+        return true;
+    }
+
+    /**
+     * 功能介绍：比较不同类数据共享设置下的启动时间,各设置轮流启动以减小机器负载变化的影响
+     * @param archive 应用归档,为null时不测试
+     * @param program 执行的程序
+     * @param times 每种设置的启动次数
+     * @return 所有启动都正常结束时返回true
+     */
+    public boolean bench(Path archive, String program, int times, PrintStream err)
+            throws IOException, InterruptedException {
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<String> options = new ArrayList<>();
+        names.add("不使用类数据共享");
+        options.add("-Xshare:off");
+        names.add("JDK自带的归档");
+        options.add("-Xshare:auto");
+        if (archive != null) {
+            // 归档不能使用时-Xshare:on启动失败,避免把未使用归档的时间当作结果
+            if (run("-XX:SharedArchiveFile=" + archive, "-Xshare:on", program) == null) {
+                err.println("归档" + archive + "不能使用,请用当前的JDK和jar重新生成");
+                return false;
+            }
+            names.add("应用归档");
+            options.add("-XX:SharedArchiveFile=" + archive);
+        }
+        long[][] firstOutput = new long[options.size()][times];
+        long[][] total = new long[options.size()][times];
+        for (String option : options) {
+            // 预热文件系统缓存,不计入结果
+            run(option, option, program);
+        }
+        for (int i = 0; i < times; i++) {
+            for (int j = 0; j < options.size(); j++) {
+                long[] time = run(options.get(j), options.get(j), program);
+                if (time == null) {
+                    err.println(names.get(j) + "时启动失败");
+                    return false;
+                }
+                firstOutput[j][i] = time[0];
+                total[j][i] = time[1];
+            }
+        }
+        out.println("启动" + times + "次的中位数：");
+        out.println("    首次输出    进程结束");
+        for (int j = 0; j < options.size(); j++) {
+            out.printf("%10.1fms%10.1fms  %s%n", median(firstOutput[j]) / 1e6, median(total[j]) / 1e6, names.get(j));
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：启动一次批处理执行程序
+     * @param option 类数据共享的选项
+     * @param share -Xshare选项,与option相同时不重复给出
+     * @return 到第一次输出和进程结束的纳秒数,进程失败时返回null
+     */
+    private long[] run(String option, String share, String program) throws IOException, InterruptedException {
+        ArrayList<String> command = new ArrayList<>(Arrays.asList(java, option));
+        if (!share.equals(option))
+            command.add(share);
+        command.addAll(Arrays.asList("-cp", classPath, "Main.Main", "-t", "1", program));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        long first = 0;
+        try (InputStream stream = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            while (stream.read(buffer) >= 0) {
+                if (first == 0)
+                    first = System.nanoTime() - start;
+            }
+        }
+        int status = process.waitFor();
+        long end = System.nanoTime() - start;
+        return status == 0 && first != 0 ? new long[]{first, end} : null;
+    }
+
+    private static long median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -2,8 +2,37 @@ package Main;
 
 import GUI.CompilerGUI;
 
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) {
+        // judge开头时为评测模式,aot开头时提前编译,cds和bench开头时生成类数据共享归档和测量启动时间,
+        // daemon和client开头时启动常驻进程和向其发送请求,http开头时启动本机HTTP服务,
+        // 其他命令行参数时批处理执行,否则打开图形界面
+        if (args.length > 0 && args[0].equals("judge")) {
+            CMMJudge.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("aot")) {
+            CMMAot.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("cds") || args[0].equals("bench"))) {
+            CMMStartup.main(args);
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("daemon") || args[0].equals("client"))) {
+            CMMDaemon.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("http")) {
+            CMMHttp.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0) {
+            CMMBatch.main(args);
+            return;
+        }
         new CompilerGUI();
     }
 }
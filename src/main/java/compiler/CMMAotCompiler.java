@@ -0,0 +1,803 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.TreeNode;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * 提前编译：把没有错误的程序的语法树翻译为Java源程序,用JDK自带的编译器编译为类文件,
+ * 与CMMRuntime一起打包为可以直接用java -jar运行的jar,运行时不再做词法分析、语法分析和解释执行。
+ * 变量在编译时按作用域确定,int变量和数组元素为long(UNSET表示未初始化),其他类型与解释器一样保存字符串形式,
+ * 输出与解释器完全相同;只支持解释器不会报类型错误的程序,遇到不支持的写法时在错误信息中说明,
+ * 运行时的语义错误(未初始化、下标越界、除数为0)与解释器的格式相同,但在第一个错误处结束程序
+ */
+public class CMMAotCompiler {
+    public static final String CLASS_NAME = "CMMApp";       // 编译得到的主类名
+    private static final String[] RUNTIME_CLASSES = {"CMMRuntime.class", "CMMRuntime$Abort.class"};
+
+    private TreeNode root;                                  // 优化和分析后的语法树
+    private String errorInfo = "";                          // 不支持提前编译的原因
+    private int errorNum = 0;                               // 不支持提前编译的位置个数
+    private ArrayList<HashMap<String, Variable>> scopes = new ArrayList<>();   // 作用域栈,记录变量名和变量
+    private int variableNum = 0;                            // 已声明的变量个数
+    private int tempNum = 0;                                // 已使用的临时变量个数
+    private StringBuilder code;                             // 生成的Java源程序
+    private int indent;                                     // 当前的缩进层数
+
+    /**
+     * 编译时确定的变量
+     */
+    private static class Variable {
+        private String name;                                // CMM中的变量名
+        private String kind;                                // 类型int real bool string
+        private String javaName;                            // 生成的Java变量名
+        private boolean array;                              // 是否为数组
+
+        Variable(String name, String kind, String javaName, boolean array) {
+            this.name = name;
+            this.kind = kind;
+            this.javaName = javaName;
+            this.array = array;
+        }
+    }
+
+    public CMMAotCompiler(CMMProgram program) {
+        root = program.getRoot();
+    }
+
+    private void error(String error, int line) {
+        errorNum++;
+        errorInfo += ConstVar.ERROR + "第 " + line + " 行：" + error + "\n";
+    }
+
+    /**
+     * 功能介绍：生成Java源程序
+     * @return 生成的源程序,程序有不支持的写法时返回null
+     */
+    public String generate() {
+        if (root == null) {
+            error("程序有词法或语法错误", 0);
+            return null;
+        }
+        code = new StringBuilder();
+        code.append("import compiler.CMMRuntime;\n\n");
+        code.append("public class ").append(CLASS_NAME).append(" {\n");
+        code.append("    public static void main(String[] args) {\n");
+        code.append("        CMMRuntime.execute(").append(CLASS_NAME).append("::run);\n");
+        code.append("    }\n\n");
+        code.append("    private static void run() {\n");
+        indent = 2;
+        block(root);
+        code.append("    }\n");
+        code.append("}\n");
+        return errorNum == 0 ? code.toString() : null;
+    }
+
+    /**
+     * 功能介绍：生成并编译Java源程序,把主类和运行时打包为jar
+     * @param jarFile 生成的jar文件
+     * @return 成功时返回true,否则原因在getErrorInfo中
+     */
+    public boolean compile(Path jarFile) throws IOException {
+        String source = generate();
+        if (source == null)
+            return false;
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            error("当前Java运行环境没有编译器,请使用JDK", 0);
+            return false;
+        }
+        Path directory = Files.createTempDirectory("cmm-aot");
+        try {
+            Path sourceFile = directory.resolve(CLASS_NAME + ".java");
+            Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+            StringWriter messages = new StringWriter();
+            try (StandardJavaFileManager fileManager = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+                Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sourceFile.toFile());
+                List<String> options = Arrays.asList("-d", directory.toString(), "-encoding", "UTF-8", "-nowarn",
+                        "-classpath", runtimeLocation().toString());
+                if (!javac.getTask(messages, fileManager, null, options, null, units).call()) {
+                    error("Java编译失败：\n" + messages, 0);
+                    return false;
+                }
+            }
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, CLASS_NAME);
+            try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarFile), manifest)) {
+                jar.putNextEntry(new JarEntry(CLASS_NAME + ".class"));
+                Files.copy(directory.resolve(CLASS_NAME + ".class"), jar);
+                jar.closeEntry();
+                for (String name : RUNTIME_CLASSES) {
+                    jar.putNextEntry(new JarEntry("compiler/" + name));
+                    try (InputStream in = CMMRuntime.class.getResourceAsStream(name)) {
+                        copy(in, jar);
+                    }
+                    jar.closeEntry();
+                }
+            }
+            return true;
+        } finally {
+            try (Stream<Path> stream = Files.walk(directory)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * 功能介绍：CMMRuntime所在的类路径(目录或jar),编译生成的源程序时使用
+     */
+    private static Path runtimeLocation() throws IOException {
+        try {
+            return Paths.get(CMMRuntime.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        if (in == null)
+            throw new IOException("找不到运行时的类文件");
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    /* 以下为语句的翻译 */
+
+    private void line(String text) {
+        for (int i = 0; i < indent; i++) {
+            code.append("    ");
+        }
+        code.append(text).append("\n");
+    }
+
+    /**
+     * 功能介绍：翻译一个代码块,代码块有自己的作用域
+     */
+    private void block(TreeNode root) {
+        scopes.add(new HashMap<>());
+        for (int i = 0; i < root.getChildCount(); i++) {
+            statement(root.getChildAt(i));
+        }
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * 功能介绍：翻译用大括号包围的代码块
+     */
+    private void nestedBlock(TreeNode root) {
+        line("{");
+        indent++;
+        block(root);
+        indent--;
+        line("}");
+    }
+
+    private void statement(TreeNode node) {
+        switch (node.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                declare(node);
+                break;
+            case ConstVar.ASSIGN:
+                assign(node);
+                break;
+            case ConstVar.FOR:
+                line("{");
+                indent++;
+                assign(node.getChildAt(0).getChildAt(0));
+                line("while (" + loopCondition(node.getChildAt(1).getChildAt(0)) + ") {");
+                indent++;
+                nestedBlock(node.getChildAt(3));
+                assign(node.getChildAt(2).getChildAt(0));
+                indent--;
+                line("}");
+                indent--;
+                line("}");
+                break;
+            case ConstVar.IF:
+                line("if (" + condition(node.getChildAt(0).getChildAt(0)) + ") {");
+                indent++;
+                block(node.getChildAt(1));
+                indent--;
+                if (node.getChildCount() == 3) {
+                    line("} else {");
+                    indent++;
+                    block(node.getChildAt(2));
+                    indent--;
+                }
+                line("}");
+                break;
+            case ConstVar.WHILE:
+                line("while (" + loopCondition(node.getChildAt(0).getChildAt(0)) + ") {");
+                indent++;
+                block(node.getChildAt(1));
+                indent--;
+                line("}");
+                break;
+            case ConstVar.READ:
+                read(node.getChildAt(0));
+                break;
+            case ConstVar.WRITE:
+                write(node.getChildAt(0));
+                break;
+            default:
+                error("不支持的语句" + node.getContent(), node.getLineNum());
+                break;
+        }
+    }
+
+    /**
+     * 功能介绍：翻译声明语句,与CMMSemanticAnalysis.forDeclare一致,初始值中的标识符在新变量声明之前查找
+     */
+    private void declare(TreeNode root) {
+        String kind = root.getContent();
+        int index = 0;
+        while (index < root.getChildCount()) {
+            TreeNode idNode = root.getChildAt(index++);
+            String name = idNode.getContent();
+            if (scopes.get(scopes.size() - 1).containsKey(name)) {
+                error("变量" + name + "已被声明", idNode.getLineNum());
+                return;
+            }
+            String javaName = "v" + variableNum++;
+            if (idNode.getChildCount() != 0) {
+                TreeNode sizeNode = idNode.getChildAt(0);
+                String size;
+                if (sizeNode.getNodeKind().equals("整数") || sizeNode.getNodeKind().equals("标识符")
+                        || isArithmetic(sizeNode)) {
+                    if (sizeNode.getChildCount() != 0 && sizeNode.getNodeKind().equals("标识符")) {
+                        error("数组大小不支持使用数组元素", sizeNode.getLineNum());
+                        return;
+                    }
+                    size = intValue(sizeNode);
+                } else {
+                    error("数组大小必须为整数类型", sizeNode.getLineNum());
+                    return;
+                }
+                if (size == null)
+                    return;
+                String type = kind.equals(ConstVar.INT) ? "long[]" : "String[]";
+                String create = kind.equals(ConstVar.INT) ? "newInts" : "newStrings";
+                line(type + " " + javaName + " = CMMRuntime." + create + "(" + size + ", " + root.getLineNum() + ");");
+                if (index < root.getChildCount() && root.getChildAt(index).getContent().equals(ConstVar.ASSIGN)) {
+                    error("数组声明不支持初始值", idNode.getLineNum());
+                    return;
+                }
+                scopes.get(scopes.size() - 1).put(name, new Variable(name, kind, javaName, true));
+                continue;
+            }
+            String value = kind.equals(ConstVar.INT) ? "CMMRuntime.UNSET" : "null";
+            if (index < root.getChildCount() && root.getChildAt(index).getContent().equals(ConstVar.ASSIGN)) {
+                value = initialValue(kind, root.getChildAt(index).getChildAt(0));
+                if (value == null)
+                    return;
+                index++;
+            }
+            line((kind.equals(ConstVar.INT) ? "long " : "String ") + javaName + " = " + value + ";");
+            scopes.get(scopes.size() - 1).put(name, new Variable(name, kind, javaName, false));
+        }
+    }
+
+    /**
+     * 功能介绍：声明时的初始值
+     * @return Java表达式,不支持时返回null
+     */
+    private String initialValue(String kind, TreeNode valueNode) {
+        String nodeKind = valueNode.getNodeKind();
+        Variable variable = null;
+        if (nodeKind.equals("标识符")) {
+            // 与解释器一致,声明的初始值按变量名取值,不支持数组元素
+            if (valueNode.getChildCount() != 0) {
+                error("声明的初始值不支持数组元素", valueNode.getLineNum());
+                return null;
+            }
+            variable = resolve(valueNode);
+            if (variable == null)
+                return null;
+        }
+        String type = variable != null ? variable.kind : null;
+        switch (kind) {
+            case ConstVar.INT:
+                if (nodeKind.equals("整数") || ConstVar.INT.equals(type)
+                        || (isArithmetic(valueNode) && ConstVar.INT.equals(type(valueNode))))
+                    return longValue(valueNode);
+                break;
+            case ConstVar.REAL:
+                if (nodeKind.equals("整数") || nodeKind.equals("实数") || ConstVar.INT.equals(type)
+                        || ConstVar.REAL.equals(type))
+                    return realText(valueNode);
+                if (isArithmetic(valueNode)) {
+                    String valueType = type(valueNode);
+                    if (valueType == null)
+                        return null;
+                    return valueType.equals(ConstVar.INT) ? realText(valueNode)
+                            : "CMMRuntime.assignReal(" + realText(valueNode) + ", null)";
+                }
+                break;
+            case ConstVar.STRING:
+                if (nodeKind.equals("字符串"))
+                    return literal(valueNode.getContent());
+                if (ConstVar.STRING.equals(type)) {
+                    // 与解释器一致,检查变量已初始化后以变量名作为初始值
+                    if (!valueNode.isProvenInitialized())
+                        line("CMMRuntime.get(" + variable.javaName + ", " + literal(variable.name) + ", "
+                                + valueNode.getLineNum() + ");");
+                    return literal(valueNode.getContent());
+                }
+                break;
+            default:
+                if (nodeKind.equals("整数") && checkInteger(valueNode))
+                    return Integer.parseInt(valueNode.getContent()) <= 0 ? "\"false\"" : "\"true\"";
+                if (nodeKind.equals("布尔值"))
+                    return literal(valueNode.getContent());
+                if (ConstVar.INT.equals(type))
+                    return "(" + intValue(valueNode) + " <= 0 ? \"false\" : \"true\")";
+                if (ConstVar.BOOL.equals(type))
+                    return stringValue(valueNode, variable);
+                if (isComparison(valueNode)) {
+                    String condition = condition(valueNode);
+                    return condition == null ? null : "String.valueOf(" + condition + ")";
+                }
+                break;
+        }
+        if (errorNum == 0)
+            error("不支持提前编译该" + kind + "型变量的初始值", valueNode.getLineNum());
+        return null;
+    }
+
+    /**
+     * 功能介绍：翻译赋值语句,与CMMSemanticAnalysis.forAssign一致,先计算左边的下标再计算右边的值
+     */
+    private void assign(TreeNode root) {
+        TreeNode idNode = root.getChildAt(0);
+        Variable variable = resolve(idNode);
+        if (variable == null)
+            return;
+        TreeNode valueNode = root.getChildAt(1);
+        String nodeKind = valueNode.getNodeKind();
+        String type = type(valueNode);
+        if (type == null)
+            return;
+        String target = variable.javaName;
+        boolean element = idNode.getChildCount() != 0;
+        if (element) {
+            String index = index(idNode.getChildAt(0), variable);
+            if (index == null)
+                return;
+            String temp = "t" + tempNum++;
+            line("{");
+            indent++;
+            line("int " + temp + " = " + index + ";");
+            target = variable.javaName + "[" + temp + "]";
+        }
+        String value = null;
+        switch (variable.kind) {
+            case ConstVar.INT:
+                if (type.equals(ConstVar.INT))
+                    value = longValue(valueNode);
+                break;
+            case ConstVar.REAL:
+                if (type.equals(ConstVar.INT) || !isArithmetic(valueNode))
+                    value = type.equals(ConstVar.INT) || type.equals(ConstVar.REAL) ? realText(valueNode) : null;
+                else
+                    value = "CMMRuntime.assignReal(" + realText(valueNode) + ", " + target + ")";
+                break;
+            case ConstVar.BOOL:
+                // 解释器按字面量解析整数,只支持整数常量
+                if (nodeKind.equals("整数"))
+                    value = Integer.parseInt(valueNode.getContent()) <= 0 ? "\"false\"" : "\"true\"";
+                else if (nodeKind.equals("布尔值"))
+                    value = literal(valueNode.getContent());
+                else if (type.equals(ConstVar.BOOL) && nodeKind.equals("标识符"))
+                    value = stringValue(valueNode, resolve(valueNode));
+                else if (isComparison(valueNode))
+                    value = "String.valueOf(" + condition(valueNode) + ")";
+                break;
+            default:
+                if (nodeKind.equals("字符串"))
+                    value = literal(valueNode.getContent());
+                else if (type.equals(ConstVar.STRING) && nodeKind.equals("标识符"))
+                    value = stringValue(valueNode, resolve(valueNode));
+                break;
+        }
+        if (value == null) {
+            if (errorNum == 0)
+                error("不能将" + type + "型的值赋给" + variable.kind + "型变量" + variable.name, root.getLineNum());
+        } else {
+            line(target + " = " + value + ";");
+        }
+        if (element) {
+            indent--;
+            line("}");
+        }
+    }
+
+    /**
+     * 功能介绍：翻译read语句,输入不合法时变量保持原值
+     */
+    private void read(TreeNode idNode) {
+        Variable variable = resolve(idNode);
+        if (variable == null)
+            return;
+        String method;
+        switch (variable.kind) {
+            case ConstVar.INT:
+                method = "readInt";
+                break;
+            case ConstVar.REAL:
+                method = "readReal";
+                break;
+            case ConstVar.BOOL:
+                method = "readBool";
+                break;
+            default:
+                method = "readString";
+                break;
+        }
+        if (idNode.getChildCount() != 0) {
+            String index = index(idNode.getChildAt(0), variable);
+            if (index == null)
+                return;
+            String temp = "t" + tempNum++;
+            String target = variable.javaName + "[" + temp + "]";
+            line("{");
+            indent++;
+            line("int " + temp + " = " + index + ";");
+            line(target + " = CMMRuntime." + method + "(" + target + ", " + literal(variable.name + "@")
+                    + " + " + temp + ");");
+            indent--;
+            line("}");
+        } else {
+            line(variable.javaName + " = CMMRuntime." + method + "(" + variable.javaName + ", "
+                    + literal(variable.name) + ");");
+        }
+    }
+
+    /**
+     * 功能介绍：翻译write语句,与CMMSemanticAnalysis.forWrite一致,布尔常量和比较表达式不输出
+     */
+    private void write(TreeNode node) {
+        String kind = node.getNodeKind();
+        if (kind.equals("整数") || kind.equals("实数") || kind.equals("字符串")) {
+            line("CMMRuntime.write(" + literal(node.getContent()) + ");");
+        } else if (kind.equals("标识符") || isArithmetic(node)) {
+            String type = type(node);
+            if (type == null)
+                return;
+            if (type.equals(ConstVar.INT)) {
+                line("CMMRuntime.write(CMMRuntime.toText(" + longValue(node) + "));");
+            } else if (type.equals(ConstVar.REAL)) {
+                line("CMMRuntime.write(" + realText(node) + ");");
+            } else {
+                line("CMMRuntime.write(" + stringValue(node, resolve(node)) + ");");
+            }
+        }
+    }
+
+    /* 以下为表达式的翻译 */
+
+    private static boolean isArithmetic(TreeNode node) {
+        String content = node.getContent();
+        return node.getNodeKind().equals("运算符") && (content.equals(ConstVar.PLUS) || content.equals(ConstVar.MINUS)
+                || content.equals(ConstVar.TIMES) || content.equals(ConstVar.DIVIDE));
+    }
+
+    private static boolean isComparison(TreeNode node) {
+        String content = node.getContent();
+        return node.getNodeKind().equals("运算符") && (content.equals(ConstVar.LT) || content.equals(ConstVar.GT)
+                || content.equals(ConstVar.EQUAL) || content.equals(ConstVar.NEQUAL));
+    }
+
+    /**
+     * 功能介绍：检查整数常量的形式与解释器一致且在int范围内
+     */
+    private boolean checkInteger(TreeNode node) {
+        if (CMMRuntime.isInteger(node.getContent())) {
+            try {
+                Integer.parseInt(node.getContent());
+                return true;
+            } catch (NumberFormatException e) {
+                // 超出int范围
+            }
+        }
+        error("不支持的整数常量" + node.getContent(), node.getLineNum());
+        return false;
+    }
+
+    /**
+     * 功能介绍：按作用域查找变量,检查是否为数组与用法一致
+     * @return 未声明或用法不一致时返回null
+     */
+    private Variable resolve(TreeNode idNode) {
+        String name = idNode.getContent();
+        for (int i = scopes.size() - 1; i > -1; i--) {
+            Variable variable = scopes.get(i).get(name);
+            if (variable != null) {
+                if (variable.array != (idNode.getChildCount() != 0)) {
+                    error(variable.array ? "数组" + name + "缺少下标" : "变量" + name + "不是数组", idNode.getLineNum());
+                    return null;
+                }
+                return variable;
+            }
+        }
+        error("变量" + name + "在使用前未声明", idNode.getLineNum());
+        return null;
+    }
+
+    /**
+     * 功能介绍：表达式的类型
+     * @return int real bool string,不支持时返回null
+     */
+    private String type(TreeNode node) {
+        switch (node.getNodeKind()) {
+            case "整数":
+                return checkInteger(node) ? ConstVar.INT : null;
+            case "实数":
+                if (CMMRuntime.isReal(node.getContent()))
+                    return ConstVar.REAL;
+                error("不支持的实数常量" + node.getContent(), node.getLineNum());
+                return null;
+            case "布尔值":
+                return ConstVar.BOOL;
+            case "字符串":
+                return ConstVar.STRING;
+            case "标识符":
+                Variable variable = resolve(node);
+                if (variable == null)
+                    return null;
+                if (node.getChildCount() != 0) {
+                    TreeNode indexNode = node.getChildAt(0);
+                    if (indexNode.getNodeKind().equals("标识符") && indexNode.getChildCount() != 0) {
+                        error("数组下标不支持使用数组元素", indexNode.getLineNum());
+                        return null;
+                    }
+                    if (!ConstVar.INT.equals(type(indexNode))) {
+                        if (errorNum == 0)
+                            error("数组下标必须为整数类型", indexNode.getLineNum());
+                        return null;
+                    }
+                }
+                return variable.kind;
+        }
+        if (isArithmetic(node) || isComparison(node)) {
+            String type1 = numberType(node.getChildAt(0));
+            String type2 = numberType(node.getChildAt(1));
+            if (type1 == null || type2 == null)
+                return null;
+            if (isComparison(node))
+                return ConstVar.BOOL;
+            return type1.equals(ConstVar.INT) && type2.equals(ConstVar.INT) ? ConstVar.INT : ConstVar.REAL;
+        }
+        error("不支持的表达式" + node.getContent(), node.getLineNum());
+        return null;
+    }
+
+    /**
+     * 功能介绍：运算对象的类型,只能是int或real
+     */
+    private String numberType(TreeNode node) {
+        String type = type(node);
+        if (type == null)
+            return null;
+        if (!type.equals(ConstVar.INT) && !type.equals(ConstVar.REAL) || isComparison(node)) {
+            error("运算对象必须为整数或实数", node.getLineNum());
+            return null;
+        }
+        return type;
+    }
+
+    /**
+     * 功能介绍：数组下标,未证明不越界时检查
+     */
+    private String index(TreeNode indexNode, Variable variable) {
+        String index = intValue(indexNode);
+        if (index == null)
+            return null;
+        if (indexNode.isProvenInBounds())
+            return index;
+        return "CMMRuntime.index(" + index + ", " + variable.javaName + ".length, " + indexNode.getLineNum() + ")";
+    }
+
+    /**
+     * 功能介绍：int类型的表达式
+     * @return Java中int类型的表达式,不支持时返回null
+     */
+    private String intValue(TreeNode node) {
+        if (!ConstVar.INT.equals(type(node))) {
+            if (errorNum == 0)
+                error("表达式必须为整数类型", node.getLineNum());
+            return null;
+        }
+        if (node.getNodeKind().equals("整数"))
+            return node.getContent().equals("-0") ? "0" : node.getContent();
+        if (node.getNodeKind().equals("标识符"))
+            return "((int) " + longValue(node) + ")";
+        String value1 = intValue(node.getChildAt(0));
+        String value2 = intValue(node.getChildAt(1));
+        if (node.getContent().equals(ConstVar.DIVIDE))
+            return "CMMRuntime.div(" + value1 + ", " + value2 + ", " + node.getLineNum() + ")";
+        return "(" + value1 + " " + node.getContent() + " " + value2 + ")";
+    }
+
+    /**
+     * 功能介绍：赋给int变量的值,常量和变量保留-0
+     * @return Java中long类型的表达式
+     */
+    private String longValue(TreeNode node) {
+        if (!node.getNodeKind().equals("整数") && !node.getNodeKind().equals("标识符"))
+            return intValue(node);
+        if (!ConstVar.INT.equals(type(node))) {
+            if (errorNum == 0)
+                error("表达式必须为整数类型", node.getLineNum());
+            return null;
+        }
+        if (node.getNodeKind().equals("整数"))
+            return node.getContent().equals("-0") ? "CMMRuntime.NEG_ZERO" : node.getContent();
+        Variable variable = resolve(node);
+        if (node.getChildCount() != 0) {
+            String index = index(node.getChildAt(0), variable);
+            if (node.isProvenInitialized())
+                return variable.javaName + "[" + index + "]";
+            return "CMMRuntime.getLong(" + variable.javaName + ", " + index + ", " + literal(variable.name)
+                    + ", " + node.getLineNum() + ")";
+        }
+        if (node.isProvenInitialized())
+            return variable.javaName;
+        return "CMMRuntime.getLong(" + variable.javaName + ", " + literal(variable.name) + ", "
+                + node.getLineNum() + ")";
+    }
+
+    /**
+     * 功能介绍：int或real类型的表达式作为real值的字符串形式
+     */
+    private String realText(TreeNode node) {
+        String type = type(node);
+        if (ConstVar.INT.equals(type)) {
+            if (node.getNodeKind().equals("整数"))
+                return literal(String.valueOf(Double.parseDouble(node.getContent())));
+            return "CMMRuntime.toReal(" + longValue(node) + ")";
+        }
+        if (node.getNodeKind().equals("实数"))
+            return literal(node.getContent());
+        if (node.getNodeKind().equals("标识符"))
+            return stringValue(node, resolve(node));
+        return "CMMRuntime.calculate('" + node.getContent() + "', " + number(node.getChildAt(0)) + ", "
+                + number(node.getChildAt(1)) + ", " + node.getLineNum() + ")";
+    }
+
+    /**
+     * 功能介绍：int或real类型的表达式作为double值,与解释器一样由字符串形式解析
+     */
+    private String number(TreeNode node) {
+        if (ConstVar.INT.equals(type(node)))
+            return "(double) " + intValue(node);
+        if (node.getNodeKind().equals("实数"))
+            return String.valueOf(Double.parseDouble(node.getContent()));
+        return "CMMRuntime.toDouble(" + realText(node) + ")";
+    }
+
+    /**
+     * 功能介绍：real、bool或string类型变量的值
+     */
+    private String stringValue(TreeNode node, Variable variable) {
+        if (variable == null)
+            return null;
+        if (node.getChildCount() != 0) {
+            String index = index(node.getChildAt(0), variable);
+            if (node.isProvenInitialized())
+                return variable.javaName + "[" + index + "]";
+            return "CMMRuntime.get(" + variable.javaName + ", " + index + ", " + literal(variable.name) + ", "
+                    + node.getLineNum() + ")";
+        }
+        if (node.isProvenInitialized())
+            return variable.javaName;
+        return "CMMRuntime.get(" + variable.javaName + ", " + literal(variable.name) + ", " + node.getLineNum() + ")";
+    }
+
+    /**
+     * 功能介绍：while和for的条件,常量条件使用CMMRuntime中的字段,避免javac报告之后的语句不可达
+     */
+    private String loopCondition(TreeNode node) {
+        String condition = condition(node);
+        if (condition == null)
+            return "CMMRuntime.FALSE";
+        return condition;
+    }
+
+    /**
+     * 功能介绍：翻译条件,与CMMSemanticAnalysis.forCondition一致,算术表达式和其他常量作为条件时为假且不计算
+     * @return Java中boolean类型的表达式
+     */
+    private String condition(TreeNode node) {
+        // 与解释器一致,按内容判断true和false,内容为true的字符串常量也为真
+        if (node.getContent().equals(ConstVar.TRUE))
+            return "CMMRuntime.TRUE";
+        if (node.getContent().equals(ConstVar.FALSE))
+            return "CMMRuntime.FALSE";
+        if (node.getNodeKind().equals("标识符")) {
+            Variable variable = resolve(node);
+            if (variable == null)
+                return null;
+            if (!variable.kind.equals(ConstVar.BOOL)) {
+                error("不能将变量" + variable.name + "作为判断条件", node.getLineNum());
+                return null;
+            }
+            if (type(node) == null)
+                return null;
+            return "\"true\".equals(" + stringValue(node, variable) + ")";
+        }
+        if (!isComparison(node))
+            return "CMMRuntime.FALSE";
+        if (type(node) == null)
+            return null;
+        TreeNode node1 = node.getChildAt(0);
+        TreeNode node2 = node.getChildAt(1);
+        String operator = node.getContent().equals(ConstVar.NEQUAL) ? "!=" : node.getContent();
+        boolean isInt = ConstVar.INT.equals(type(node1)) && ConstVar.INT.equals(type(node2));
+        if (!node1.getNodeKind().equals("标识符") && !isArithmetic(node1)
+                && !node2.getNodeKind().equals("标识符") && !isArithmetic(node2)) {
+            // 两个常量比较时在编译时计算
+            return CMMSemanticAnalysis.compare(node.getContent(), node1.getContent(), node2.getContent())
+                    ? "CMMRuntime.TRUE" : "CMMRuntime.FALSE";
+        }
+        if (isInt)
+            return "(" + intValue(node1) + " " + operator + " " + intValue(node2) + ")";
+        return "(" + number(node1) + " " + operator + " " + number(node2) + ")";
+    }
+
+    /**
+     * 功能介绍：Java字符串常量
+     */
+    private static String literal(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7f) {
+                // 不能用\\u转义,javac在词法分析之前就会替换为原字符
+                builder.append(String.format("\\%03o", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    public String getErrorInfo() {
+        return errorInfo;
+    }
+
+    public int getErrorNum() {
+        return errorNum;
+    }
+}
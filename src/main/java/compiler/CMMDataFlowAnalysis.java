@@ -0,0 +1,712 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据流分析：在执行之前遍历抽象语法树，证明变量的确定初始化以及数组下标的取值范围，
+ * 证明成立的标识符结点和下标结点会被标记，CMMSemanticAnalysis执行时跳过对应的运行时检查
+ */
+public class CMMDataFlowAnalysis {
+    private static final long NEG_INF = Long.MIN_VALUE;     // 区间下界负无穷
+    private static final long POS_INF = Long.MAX_VALUE;     // 区间上界正无穷
+    private static final int MAX_TRACKED_SIZE = 1 << 16;    // 超过该大小的数组不逐个跟踪元素的初始化情况
+
+    private TreeNode root;                                  // 语法分析得到的抽象语法树的根节点
+
+    private ArrayList<HashMap<String, Variable>> scopes = new ArrayList<>();    // 作用域栈,与执行时的level一一对应
+
+    private boolean record = true;                          // 是否在结点上记录结果,循环求不动点时关闭
+
+    public CMMDataFlowAnalysis(TreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * 功能介绍：数据流分析主方法
+     */
+    public void execute() {
+        scopes.clear();
+        record = true;
+        block(root, new State());
+    }
+
+    /**
+     * 变量：声明语句一定成功时known为true,否则该名字在运行时是否被声明无法确定
+     */
+    private static class Variable {
+        private String kind;          // 变量类型
+        private int arraySize;        // 0表示普通变量,否则为数组大小
+        private boolean known;        // 声明是否一定成功
+
+        private Variable(String kind, int arraySize, boolean known) {
+            this.kind = kind;
+            this.arraySize = arraySize;
+            this.known = known;
+        }
+    }
+
+    /**
+     * 变量在某一程序点上的事实：是否一定已初始化、整数取值区间、数组元素是否一定已初始化
+     */
+    private static class Fact {
+        private boolean initialized;
+        private long low = NEG_INF;
+        private long high = POS_INF;
+        private boolean[] elements;   // 数组元素的初始化情况,过大的数组为null
+
+        private Fact copy() {
+            Fact fact = new Fact();
+            fact.initialized = initialized;
+            fact.low = low;
+            fact.high = high;
+            fact.elements = elements == null ? null : elements.clone();
+            return fact;
+        }
+
+        private boolean allElementsInitialized() {
+            if (elements == null)
+                return false;
+            for (boolean element : elements) {
+                if (!element)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 程序点上的状态,reachable为false表示该点不可达
+     */
+    private static class State {
+        private HashMap<Variable, Fact> facts = new HashMap<>();
+        private boolean reachable = true;
+
+        private State copy() {
+            State state = new State();
+            state.reachable = reachable;
+            for (Map.Entry<Variable, Fact> entry : facts.entrySet()) {
+                state.facts.put(entry.getKey(), entry.getValue().copy());
+            }
+            return state;
+        }
+    }
+
+    /**
+     * 表达式的分析结果：safe为true表示求值一定成功且不会报错
+     */
+    private static class Value {
+        private String kind;          // 表达式类型,无法确定时为null
+        private boolean safe;
+        private long low = NEG_INF;
+        private long high = POS_INF;
+        private Variable variable;    // 表达式为普通变量时指向该变量,用于条件细化
+    }
+
+    /**
+     * 功能介绍：分析一个代码块,进入时新建作用域,退出时删除块内声明的变量
+     * @param root  代码块结点
+     * @param state 进入代码块时的状态
+     * @return 退出代码块时的状态
+     */
+    private State block(TreeNode root, State state) {
+        scopes.add(new HashMap<>());
+        for (int i = 0; i < root.getChildCount(); i++) {
+            state = statement(root.getChildAt(i), state);
+        }
+        HashMap<String, Variable> scope = scopes.remove(scopes.size() - 1);
+        for (Variable variable : scope.values()) {
+            state.facts.remove(variable);
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：分析单条语句,与CMMSemanticAnalysis.statement的分派一致
+     */
+    private State statement(TreeNode node, State state) {
+        if (!state.reachable)
+            return state;
+        switch (node.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                return declare(node, state);
+            case ConstVar.ASSIGN:
+                return assign(node, state);
+            case ConstVar.FOR:
+                return loop(node.getChildAt(1).getChildAt(0), node.getChildAt(3),
+                        node.getChildAt(2).getChildAt(0), assign(node.getChildAt(0).getChildAt(0), state));
+            case ConstVar.IF:
+                return ifStatement(node, state);
+            case ConstVar.WHILE:
+                return loop(node.getChildAt(0).getChildAt(0), node.getChildAt(1), null, state);
+            case ConstVar.READ:
+                return read(node.getChildAt(0), state);
+            case ConstVar.WRITE:
+                expression(node.getChildAt(0), state);
+                return state;
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：分析declare语句,只有一定成功的声明才会被记为已知变量
+     */
+    private State declare(TreeNode root, State state) {
+        String kind = root.getContent();
+        HashMap<String, Variable> scope = scopes.get(scopes.size() - 1);
+        // 同一语句中之前的声明是否一定成功,执行时遇到错误会直接跳过其余部分
+        boolean known = true;
+        int index = 0;
+        while (index < root.getChildCount()) {
+            TreeNode temp = root.getChildAt(index);
+            String name = temp.getContent();
+            boolean declared = known && !scope.containsKey(name);
+            Fact fact = new Fact();
+            Variable variable;
+            if (temp.getChildCount() == 0) {
+                index++;
+                if (index < root.getChildCount()
+                        && root.getChildAt(index).getContent().equals(ConstVar.ASSIGN)) {
+                    TreeNode valueNode = root.getChildAt(index).getChildAt(0);
+                    Value value = expression(valueNode, state);
+                    // 初始化失败时执行可能直接返回,该声明是否成功无法确定
+                    declared = declared && initializes(kind, valueNode, value);
+                    fact.initialized = true;
+                    if (kind.equals(ConstVar.INT)) {
+                        fact.low = value.low;
+                        fact.high = value.high;
+                    }
+                    index++;
+                }
+                variable = new Variable(kind, 0, declared);
+            } else {
+                index++;
+                TreeNode sizeNode = temp.getChildAt(0);
+                Value size = expression(sizeNode, state);
+                declared = declared && size.safe && ConstVar.INT.equals(size.kind)
+                        && size.low == size.high && size.low >= 1;
+                variable = new Variable(kind, declared ? (int) size.low : 0, declared);
+                if (declared && size.low <= MAX_TRACKED_SIZE)
+                    fact.elements = new boolean[(int) size.low];
+            }
+            if (declared) {
+                scope.put(name, variable);
+                state.facts.put(variable, fact);
+            } else {
+                known = false;
+                if (!scope.containsKey(name))
+                    scope.put(name, variable);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：判断声明时的初始化是否一定成功,与CMMSemanticAnalysis.forDeclare的判断顺序一致
+     */
+    private static boolean initializes(String kind, TreeNode valueNode, Value value) {
+        String content = valueNode.getContent();
+        String nodeKind = valueNode.getNodeKind();
+        boolean isID = nodeKind.equals("标识符") && valueNode.getChildCount() == 0;
+        switch (kind) {
+            case ConstVar.INT:
+                if (nodeKind.equals("整数"))
+                    return value.safe;
+                return (isID || isArithmetic(content)) && value.safe && ConstVar.INT.equals(value.kind);
+            case ConstVar.REAL:
+                if (nodeKind.equals("整数") || nodeKind.equals("实数"))
+                    return value.safe;
+                return (isID || isArithmetic(content)) && value.safe
+                        && (ConstVar.INT.equals(value.kind) || ConstVar.REAL.equals(value.kind));
+            case ConstVar.STRING:
+                if (matchInteger(content) || matchReal(content)
+                        || content.equals(ConstVar.TRUE) || content.equals(ConstVar.FALSE))
+                    return false;
+                return nodeKind.equals("字符串") || (isID && value.safe && ConstVar.STRING.equals(value.kind));
+            default:
+                if (matchInteger(content) || content.equals(ConstVar.TRUE) || content.equals(ConstVar.FALSE))
+                    return true;
+                if (matchReal(content) || nodeKind.equals("字符串"))
+                    return false;
+                if (isID)
+                    return value.safe && (ConstVar.INT.equals(value.kind) || ConstVar.BOOL.equals(value.kind));
+                return isComparison(content);
+        }
+    }
+
+    /**
+     * 功能介绍：分析assign语句
+     */
+    private State assign(TreeNode root, State state) {
+        if (!state.reachable)
+            return state;
+        TreeNode left = root.getChildAt(0);
+        Variable variable = lookup(left.getContent());
+        Value index = null;
+        boolean inBounds = false;
+        if (left.getChildCount() != 0) {
+            index = expression(left.getChildAt(0), state);
+            inBounds = bounds(left.getChildAt(0), index, variable);
+        }
+        TreeNode right = root.getChildAt(1);
+        Value value = expression(right, state);
+        if (variable == null) {
+            havoc(left.getContent(), state);
+            return state;
+        }
+        Fact fact = state.facts.get(variable);
+        if (fact == null)
+            return state;
+        boolean success = (variable.arraySize == 0 ? left.getChildCount() == 0 : inBounds)
+                && assignable(variable.kind, right, value);
+        if (variable.arraySize == 0) {
+            if (success) {
+                fact.initialized = true;
+                fact.low = value.low;
+                fact.high = value.high;
+            } else if (value.kind == null || value.kind.equals(ConstVar.INT)) {
+                // 赋值可能成功也可能失败,取两种情况的并集
+                fact.low = Math.min(fact.low, value.low);
+                fact.high = Math.max(fact.high, value.high);
+            }
+        } else if (success && fact.elements != null && index.low == index.high) {
+            fact.elements[(int) index.low] = true;
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：判断赋值是否一定成功,与CMMSemanticAnalysis.forAssign的类型规则一致
+     */
+    private static boolean assignable(String kind, TreeNode right, Value value) {
+        if (!value.safe || value.kind == null)
+            return false;
+        switch (kind) {
+            case ConstVar.INT:
+                return value.kind.equals(ConstVar.INT);
+            case ConstVar.REAL:
+                return value.kind.equals(ConstVar.INT) || value.kind.equals(ConstVar.REAL);
+            case ConstVar.BOOL:
+                return value.kind.equals(ConstVar.BOOL)
+                        || (value.kind.equals(ConstVar.INT) && right.getNodeKind().equals("整数"));
+            default:
+                return value.kind.equals(ConstVar.STRING);
+        }
+    }
+
+    /**
+     * 功能介绍：分析read语句,输入可能出错,因此不会使变量变为已初始化
+     */
+    private State read(TreeNode root, State state) {
+        Variable variable = lookup(root.getContent());
+        if (root.getChildCount() != 0) {
+            bounds(root.getChildAt(0), expression(root.getChildAt(0), state), variable);
+        }
+        if (variable == null) {
+            havoc(root.getContent(), state);
+        } else if (variable.arraySize == 0 && state.facts.containsKey(variable)) {
+            state.facts.get(variable).low = NEG_INF;
+            state.facts.get(variable).high = POS_INF;
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：分析if语句,两个分支分别细化条件后求并
+     */
+    private State ifStatement(TreeNode root, State state) {
+        TreeNode conditionNode = root.getChildAt(0).getChildAt(0);
+        Value condition = expression(conditionNode, state);
+        State thenState = refine(conditionNode, condition, state.copy(), true);
+        State elseState = refine(conditionNode, condition, state, false);
+        // 执行时if语句和else语句各自进入一层新的作用域
+        thenState = block(root.getChildAt(1), thenState);
+        if (root.getChildCount() == 3)
+            elseState = block(root.getChildAt(2), elseState);
+        return join(thenState, elseState);
+    }
+
+    /**
+     * 功能介绍：分析while和for循环,在循环头求不动点(区间使用加宽保证终止),
+     * 之后再以不动点状态分析一遍循环体并记录结果
+     * @param conditionNode 循环条件
+     * @param body          循环体
+     * @param change        for循环的change语句,while循环为null
+     * @param entry         进入循环时的状态
+     * @return 退出循环时的状态
+     */
+    private State loop(TreeNode conditionNode, TreeNode body, TreeNode change, State entry) {
+        if (!entry.reachable)
+            return entry;
+        boolean saved = record;
+        record = false;
+        State head = entry.copy();
+        while (true) {
+            State next = iterate(conditionNode, body, change, head);
+            next = join(entry.copy(), next);
+            if (includes(head, next))
+                break;
+            head = widen(head, next);
+        }
+        record = saved;
+        if (record)
+            iterate(conditionNode, body, change, head);
+        return refine(conditionNode, expression(conditionNode, head), head, false);
+    }
+
+    /**
+     * 功能介绍：从循环头状态出发执行一次循环体
+     */
+    private State iterate(TreeNode conditionNode, TreeNode body, TreeNode change, State head) {
+        Value condition = expression(conditionNode, head);
+        State state = block(body, refine(conditionNode, condition, head.copy(), true));
+        if (change != null)
+            state = assign(change, state);
+        return state;
+    }
+
+    /**
+     * 功能介绍：分析表达式,在record为true时标记标识符结点和数组下标结点
+     */
+    private Value expression(TreeNode node, State state) {
+        Value value = new Value();
+        String kind = node.getNodeKind();
+        String content = node.getContent();
+        if (kind.equals("整数")) {
+            value.kind = ConstVar.INT;
+            if (matchInteger(content) && content.length() < 12) {
+                long i = Long.parseLong(content);
+                if (i >= Integer.MIN_VALUE && i <= Integer.MAX_VALUE) {
+                    value.safe = true;
+                    value.low = i;
+                    value.high = i;
+                }
+            }
+        } else if (kind.equals("实数")) {
+            value.kind = ConstVar.REAL;
+            value.safe = matchReal(content);
+        } else if (kind.equals("字符串")) {
+            value.kind = ConstVar.STRING;
+            value.safe = true;
+        } else if (kind.equals("布尔值")) {
+            value.kind = ConstVar.BOOL;
+            value.safe = true;
+        } else if (kind.equals("标识符")) {
+            value = identifier(node, state);
+        } else if (isArithmetic(content) && node.getChildCount() == 2) {
+            value = arithmetic(node, state);
+        } else if (isComparison(content) && node.getChildCount() == 2) {
+            Value left = expression(node.getChildAt(0), state);
+            Value right = expression(node.getChildAt(1), state);
+            value.kind = ConstVar.BOOL;
+            value.safe = left.safe && right.safe && isNumber(left.kind) && isNumber(right.kind);
+        }
+        return value;
+    }
+
+    /**
+     * 功能介绍：分析标识符(包括数组元素)的读取
+     */
+    private Value identifier(TreeNode node, State state) {
+        Value value = new Value();
+        Variable variable = lookup(node.getContent());
+        Fact fact = variable == null ? null : state.facts.get(variable);
+        boolean proven = false;
+        if (node.getChildCount() != 0) {
+            TreeNode indexNode = node.getChildAt(0);
+            Value index = expression(indexNode, state);
+            boolean inBounds = bounds(indexNode, index, variable);
+            proven = inBounds && fact != null && (fact.allElementsInitialized()
+                    || (fact.elements != null && index.low == index.high && fact.elements[(int) index.low]));
+        } else if (variable != null && variable.arraySize == 0 && fact != null) {
+            proven = fact.initialized;
+            value.variable = variable;
+            if (proven && variable.kind.equals(ConstVar.INT)) {
+                value.low = fact.low;
+                value.high = fact.high;
+            }
+        }
+        if (variable != null)
+            value.kind = variable.kind;
+        value.safe = proven;
+        if (record)
+            node.setProvenInitialized(proven);
+        return value;
+    }
+
+    /**
+     * 功能介绍：判断数组下标是否一定在范围内
+     */
+    private boolean bounds(TreeNode indexNode, Value index, Variable variable) {
+        boolean proven = variable != null && variable.arraySize > 0 && index.safe
+                && ConstVar.INT.equals(index.kind) && index.low >= 0 && index.high < variable.arraySize;
+        if (record)
+            indexNode.setProvenInBounds(proven);
+        return proven;
+    }
+
+    /**
+     * 功能介绍：分析算术表达式,整数运算计算结果区间,溢出时区间为全集
+     */
+    private Value arithmetic(TreeNode node, State state) {
+        Value left = expression(node.getChildAt(0), state);
+        Value right = expression(node.getChildAt(1), state);
+        Value value = new Value();
+        if (!isNumber(left.kind) || !isNumber(right.kind))
+            return value;
+        if (left.kind.equals(ConstVar.REAL) || right.kind.equals(ConstVar.REAL)) {
+            // 浮点运算结果的字符串形式(如科学计数法)无法静态保证,不视为安全
+            value.kind = ConstVar.REAL;
+            return value;
+        }
+        value.kind = ConstVar.INT;
+        value.safe = left.safe && right.safe;
+        if (left.low == NEG_INF || left.high == POS_INF || right.low == NEG_INF || right.high == POS_INF) {
+            if (node.getContent().equals(ConstVar.DIVIDE) && !(right.low > 0 || right.high < 0))
+                value.safe = false;
+            return value;
+        }
+        long[] corners;
+        switch (node.getContent()) {
+            case ConstVar.PLUS:
+                corners = new long[]{left.low + right.low, left.high + right.high};
+                break;
+            case ConstVar.MINUS:
+                corners = new long[]{left.low - right.high, left.high - right.low};
+                break;
+            case ConstVar.TIMES:
+                corners = new long[]{left.low * right.low, left.low * right.high,
+                        left.high * right.low, left.high * right.high};
+                break;
+            default:
+                if (right.low <= 0 && right.high >= 0) {
+                    // 除数可能为0
+                    value.safe = false;
+                    return value;
+                }
+                corners = new long[]{left.low / right.low, left.low / right.high,
+                        left.high / right.low, left.high / right.high};
+                break;
+        }
+        long low = POS_INF;
+        long high = NEG_INF;
+        for (long corner : corners) {
+            low = Math.min(low, corner);
+            high = Math.max(high, corner);
+        }
+        // 超出int范围会发生溢出,结果不可预测
+        if (low >= Integer.MIN_VALUE && high <= Integer.MAX_VALUE) {
+            value.low = low;
+            value.high = high;
+        }
+        return value;
+    }
+
+    /**
+     * 功能介绍：根据条件的真假细化变量的取值区间
+     * @param node      条件结点
+     * @param condition 条件的分析结果
+     * @param state     要细化的状态
+     * @param truth     条件为真还是为假
+     * @return 细化后的状态
+     */
+    private State refine(TreeNode node, Value condition, State state, boolean truth) {
+        if (!state.reachable)
+            return state;
+        String content = node.getContent();
+        if (node.getNodeKind().equals("布尔值")) {
+            if (content.equals(ConstVar.TRUE) != truth)
+                state.reachable = false;
+            return state;
+        }
+        // 条件求值出错时结果为false,此时不能根据条件为假进行细化
+        if (!isComparison(content) || node.getChildCount() != 2 || (!truth && !condition.safe))
+            return state;
+        Value left = expression(node.getChildAt(0), state);
+        Value right = expression(node.getChildAt(1), state);
+        if (!ConstVar.INT.equals(left.kind) || !ConstVar.INT.equals(right.kind))
+            return state;
+        switch (content) {
+            case ConstVar.LT:
+                if (truth) {
+                    restrict(state, left, NEG_INF, minus(right.high, 1));
+                    restrict(state, right, plus(left.low, 1), POS_INF);
+                } else {
+                    restrict(state, left, right.low, POS_INF);
+                    restrict(state, right, NEG_INF, left.high);
+                }
+                break;
+            case ConstVar.GT:
+                if (truth) {
+                    restrict(state, left, plus(right.low, 1), POS_INF);
+                    restrict(state, right, NEG_INF, minus(left.high, 1));
+                } else {
+                    restrict(state, left, NEG_INF, right.high);
+                    restrict(state, right, left.low, POS_INF);
+                }
+                break;
+            case ConstVar.EQUAL:
+            case ConstVar.NEQUAL:
+                if (truth == content.equals(ConstVar.EQUAL)) {
+                    restrict(state, left, right.low, right.high);
+                    restrict(state, right, left.low, left.high);
+                }
+                break;
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：将变量的区间与[low, high]求交,交集为空时状态不可达
+     */
+    private static void restrict(State state, Value value, long low, long high) {
+        if (value.variable == null || !state.reachable)
+            return;
+        Fact fact = state.facts.get(value.variable);
+        if (fact == null || !fact.initialized)
+            return;
+        fact.low = Math.max(fact.low, low);
+        fact.high = Math.min(fact.high, high);
+        if (fact.low > fact.high)
+            state.reachable = false;
+    }
+
+    private static long plus(long value, long i) {
+        return value == NEG_INF || value == POS_INF ? value : value + i;
+    }
+
+    private static long minus(long value, long i) {
+        return value == NEG_INF || value == POS_INF ? value : value - i;
+    }
+
+    /**
+     * 功能介绍：两个程序点状态求并
+     */
+    private static State join(State a, State b) {
+        if (!a.reachable)
+            return b;
+        if (!b.reachable)
+            return a;
+        State state = new State();
+        for (Map.Entry<Variable, Fact> entry : a.facts.entrySet()) {
+            Fact other = b.facts.get(entry.getKey());
+            if (other == null)
+                continue;
+            Fact fact = entry.getValue().copy();
+            fact.initialized = fact.initialized && other.initialized;
+            fact.low = Math.min(fact.low, other.low);
+            fact.high = Math.max(fact.high, other.high);
+            if (fact.elements != null) {
+                for (int i = 0; i < fact.elements.length; i++) {
+                    fact.elements[i] = fact.elements[i] && other.elements[i];
+                }
+            }
+            state.facts.put(entry.getKey(), fact);
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：加宽,区间边界继续扩大时直接扩大到无穷
+     */
+    private static State widen(State head, State next) {
+        if (!head.reachable)
+            return next.copy();
+        State state = join(head, next);
+        for (Map.Entry<Variable, Fact> entry : state.facts.entrySet()) {
+            Fact old = head.facts.get(entry.getKey());
+            Fact fact = entry.getValue();
+            if (fact.low < old.low)
+                fact.low = NEG_INF;
+            if (fact.high > old.high)
+                fact.high = POS_INF;
+        }
+        return state;
+    }
+
+    /**
+     * 功能介绍：判断next是否已被head包含,即循环头是否已到达不动点
+     */
+    private static boolean includes(State head, State next) {
+        if (!next.reachable)
+            return true;
+        if (!head.reachable)
+            return false;
+        for (Map.Entry<Variable, Fact> entry : head.facts.entrySet()) {
+            Fact fact = entry.getValue();
+            Fact other = next.facts.get(entry.getKey());
+            if (other == null)
+                return false;
+            if ((fact.initialized && !other.initialized) || other.low < fact.low || other.high > fact.high)
+                return false;
+            if (fact.elements != null) {
+                for (int i = 0; i < fact.elements.length; i++) {
+                    if (fact.elements[i] && !other.elements[i])
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：按作用域由内向外查找变量
+     * @return 声明一定成功的变量,未声明或无法确定时返回null
+     */
+    private Variable lookup(String name) {
+        for (int i = scopes.size() - 1; i > -1; i--) {
+            Variable variable = scopes.get(i).get(name);
+            if (variable != null)
+                return variable.known ? variable : null;
+        }
+        return null;
+    }
+
+    /**
+     * 功能介绍：名字无法确定指向哪个变量时,所有同名变量的取值区间都不再可信
+     */
+    private void havoc(String name, State state) {
+        for (HashMap<String, Variable> scope : scopes) {
+            Variable variable = scope.get(name);
+            if (variable != null && state.facts.containsKey(variable)) {
+                state.facts.get(variable).low = NEG_INF;
+                state.facts.get(variable).high = POS_INF;
+            }
+        }
+    }
+
+    private static boolean isNumber(String kind) {
+        return ConstVar.INT.equals(kind) || ConstVar.REAL.equals(kind);
+    }
+
+    private static boolean isArithmetic(String content) {
+        return content.equals(ConstVar.PLUS) || content.equals(ConstVar.MINUS)
+                || content.equals(ConstVar.TIMES) || content.equals(ConstVar.DIVIDE);
+    }
+
+    private static boolean isComparison(String content) {
+        return content.equals(ConstVar.EQUAL) || content.equals(ConstVar.NEQUAL)
+                || content.equals(ConstVar.LT) || content.equals(ConstVar.GT);
+    }
+
+    /**
+     * 功能介绍：识别正确的整数：排除多个零的情况
+     */
+    private static boolean matchInteger(String input) {
+        return input.matches("^-?\\d+$") && !input.matches("^-?0{1,}\\d+$");
+    }
+
+    /**
+     * 功能介绍：识别正确的浮点数：排除00.000的情况
+     */
+    private static boolean matchReal(String input) {
+        return input.matches("^(-?\\d+)(\\.\\d+)+$") && !input.matches("^(-?0{2,}+)(\\.\\d+)+$");
+    }
+}
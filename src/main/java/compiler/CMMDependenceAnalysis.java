@@ -0,0 +1,138 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.TreeNode;
+
+import java.util.HashSet;
+
+/**
+ * 依赖分析：找出各次迭代互不依赖、可以并行执行的for循环,
+ * 要求循环形如 for(i = e; i < n; i = i + c),c为正整数常量,n为常量或变量,
+ * 循环体只包含对数组元素 b[i] 的赋值,被赋值的数组只能以 i 为下标读取,
+ * 这样每次迭代只写自己的数组元素,不存在跨迭代的依赖,也没有read/write等输入输出
+ */
+public class CMMDependenceAnalysis {
+    private TreeNode root;                                  // 语法分析得到的抽象语法树的根节点
+
+    private int parallelNum = 0;                            // 可以并行的循环个数
+
+    public CMMDependenceAnalysis(TreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * 功能介绍：依赖分析主方法,为可以并行的for循环结点设置标记
+     */
+    public void execute() {
+        parallelNum = 0;
+        block(root);
+    }
+
+    private void block(TreeNode root) {
+        for (int i = 0; i < root.getChildCount(); i++) {
+            TreeNode node = root.getChildAt(i);
+            switch (node.getContent()) {
+                case ConstVar.IF:
+                    for (int j = 1; j < node.getChildCount(); j++) {
+                        block(node.getChildAt(j));
+                    }
+                    break;
+                case ConstVar.WHILE:
+                    block(node.getChildAt(1));
+                    break;
+                case ConstVar.FOR:
+                    block(node.getChildAt(3));
+                    node.setParallelizable(isParallelizable(node));
+                    if (node.isParallelizable())
+                        parallelNum++;
+                    break;
+            }
+        }
+    }
+
+    private static boolean isParallelizable(TreeNode root) {
+        // 初始化语句 i = e
+        TreeNode initialization = root.getChildAt(0).getChildAt(0);
+        if (!initialization.getContent().equals(ConstVar.ASSIGN) || initialization.getChildCount() != 2
+                || !isScalar(initialization.getChildAt(0)))
+            return false;
+        String variable = initialization.getChildAt(0).getContent();
+        // 条件 i < n
+        TreeNode condition = root.getChildAt(1).getChildAt(0);
+        if (!condition.getContent().equals(ConstVar.LT) || condition.getChildCount() != 2
+                || !isVariable(condition.getChildAt(0), variable))
+            return false;
+        TreeNode bound = condition.getChildAt(1);
+        if (!bound.getNodeKind().equals("整数") && !(isScalar(bound) && !bound.getContent().equals(variable)))
+            return false;
+        // change语句 i = i + c
+        TreeNode change = root.getChildAt(2).getChildAt(0);
+        if (!change.getContent().equals(ConstVar.ASSIGN) || change.getChildCount() != 2
+                || !isVariable(change.getChildAt(0), variable))
+            return false;
+        TreeNode step = change.getChildAt(1);
+        if (!step.getContent().equals(ConstVar.PLUS) || step.getChildCount() != 2
+                || !isVariable(step.getChildAt(0), variable) || !isPositive(step.getChildAt(1)))
+            return false;
+        // 循环体只包含 b[i] = expression
+        TreeNode body = root.getChildAt(3);
+        if (body.getChildCount() == 0)
+            return false;
+        HashSet<String> written = new HashSet<>();
+        for (int i = 0; i < body.getChildCount(); i++) {
+            TreeNode statement = body.getChildAt(i);
+            if (!statement.getContent().equals(ConstVar.ASSIGN) || statement.getChildCount() != 2)
+                return false;
+            TreeNode idNode = statement.getChildAt(0);
+            if (!idNode.getNodeKind().equals("标识符") || idNode.getContent().equals(variable)
+                    || idNode.getChildCount() != 1 || !isVariable(idNode.getChildAt(0), variable))
+                return false;
+            written.add(idNode.getContent());
+        }
+        for (int i = 0; i < body.getChildCount(); i++) {
+            if (!isIndependent(body.getChildAt(i).getChildAt(1), variable, written))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：判断表达式是否只以 i 为下标读取被赋值的数组
+     */
+    private static boolean isIndependent(TreeNode node, String variable, HashSet<String> written) {
+        if (node.getNodeKind().equals("标识符")) {
+            if (node.getChildCount() == 0)
+                return true;
+            if (written.contains(node.getContent()))
+                return isVariable(node.getChildAt(0), variable);
+            return isIndependent(node.getChildAt(0), variable, written);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (!isIndependent(node.getChildAt(i), variable, written))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isScalar(TreeNode node) {
+        return node.getNodeKind().equals("标识符") && node.getChildCount() == 0;
+    }
+
+    private static boolean isVariable(TreeNode node, String variable) {
+        return isScalar(node) && node.getContent().equals(variable);
+    }
+
+    private static boolean isPositive(TreeNode node) {
+        if (!node.getNodeKind().equals("整数"))
+            return false;
+        try {
+            return Integer.parseInt(node.getContent()) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public int getParallelNum() {
+        return parallelNum;
+    }
+}
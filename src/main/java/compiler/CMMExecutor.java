@@ -0,0 +1,88 @@
+package compiler;
+
+/**
+ * 不依赖图形界面的执行入口：词法分析、语法分析、优化和解释执行,
+ * 输入、输出和错误信息分别通过InputSource、OutputSink和DiagnosticSink传递,
+ * 图形界面、批处理和服务都通过它执行CMM程序
+ */
+public class CMMExecutor {
+    private InputSource input;              // read语句的输入
+    private OutputSink output;              // write语句的输出
+    private DiagnosticSink diagnostics;     // 错误信息
+    private ResourceGovernor governor;      // 资源限制,为null时不限制
+    private CompilationCache cache;         // 编译结果的缓存,为null时每次都重新编译
+    private ResultCache resultCache;        // 执行结果的缓存,为null时每次都执行
+
+    public CMMExecutor(InputSource input, OutputSink output, DiagnosticSink diagnostics) {
+        this.input = input;
+        this.output = output;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * 功能介绍：设置之后创建的解释器使用的资源限制,每次执行都重新计步和计时
+     * @param governor 资源限制
+     */
+    public void setGovernor(ResourceGovernor governor) {
+        this.governor = governor;
+    }
+
+    /**
+     * 功能介绍：设置编译结果的缓存,可以被多个CMMExecutor共用
+     * @param cache 编译结果的缓存
+     */
+    public void setCache(CompilationCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 功能介绍：设置执行结果的缓存,execute执行不读取输入的程序时重放缓存的结果
+     * @param resultCache 执行结果的缓存,为null时每次都执行
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * 功能介绍：编译源程序,有错误时输出错误信息
+     * @param source 源程序
+     * @return 编译得到的程序,有词法或语法错误时返回null
+     */
+    public CMMProgram compile(String source) {
+        CMMProgram program = cache == null ? CMMProgram.compile(source) : cache.compile(source);
+        if (!program.isValid()) {
+            diagnostics.report(program.getErrorInfo());
+            return null;
+        }
+        return program;
+    }
+
+    /**
+     * 功能介绍：创建解释器,调用者可以用start在新线程中执行,也可以用run在当前线程中执行
+     * @param program compile得到的程序
+     * @return 解释器
+     */
+    public CMMSemanticAnalysis createInterpreter(CMMProgram program) {
+        CMMSemanticAnalysis interpreter = program.createInterpreter(input, output, diagnostics);
+        if (governor != null)
+            interpreter.setGovernor(governor);
+        return interpreter;
+    }
+
+    /**
+     * 功能介绍：在当前线程中编译并执行程序
+     * @param source 源程序
+     * @return 没有词法、语法和语义错误时返回true
+     */
+    public boolean execute(String source) {
+        CMMProgram program = compile(source);
+        if (program == null)
+            return false;
+        if (resultCache != null)
+            return resultCache.run(program, input, output, diagnostics,
+                    governor != null ? governor : new ResourceGovernor());
+        CMMSemanticAnalysis interpreter = createInterpreter(program);
+        interpreter.run();
+        return interpreter.getErrorNum() == 0;
+    }
+}
@@ -0,0 +1,471 @@
+package compiler;
+
+import structure.BasicBlock;
+import structure.ConstVar;
+import structure.IRInstruction;
+import structure.IRProgram;
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * 中间代码生成：将语法树翻译为SSA形式的三地址码,
+ * if/while/for语句生成基本块,在控制流汇合处插入phi指令,
+ * SSA的构造在翻译过程中直接完成(Braun等人的算法),块的所有前驱确定后封闭该块并补全phi指令
+ */
+public class CMMIRGenerator {
+    private TreeNode root;                                  // 语法分析得到的抽象语法树的根节点
+
+    private IRProgram program;                              // 生成的中间代码
+
+    private BasicBlock current;                             // 当前基本块
+
+    private int valueNum = 0;                               // 已生成的SSA值个数
+
+    private int variableNum = 0;                            // 已声明的变量个数
+
+    private ArrayList<HashMap<String, String>> scopes = new ArrayList<>();     // 作用域栈,记录变量名和唯一变量名
+
+    private HashMap<String, String> types = new HashMap<>();                  // 唯一变量名对应的类型
+
+    private HashMap<String, HashMap<BasicBlock, String>> currentDef = new HashMap<>();   // 变量在各基本块末尾的SSA值
+
+    private HashMap<BasicBlock, HashMap<String, IRInstruction>> incompletePhis = new HashMap<>();  // 未封闭块中的phi
+
+    private HashSet<BasicBlock> sealed = new HashSet<>();                     // 已封闭的基本块
+
+    private HashMap<String, IRInstruction> definitions = new HashMap<>();     // SSA值对应的定义指令
+
+    public CMMIRGenerator(TreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * 功能介绍：中间代码生成主方法
+     * @return 生成的中间代码
+     */
+    public IRProgram execute() {
+        program = new IRProgram();
+        current = program.newBlock();
+        seal(current);
+        block(root);
+        return program;
+    }
+
+    /**
+     * 功能介绍：翻译一个代码块,代码块有自己的作用域
+     */
+    private void block(TreeNode root) {
+        scopes.add(new HashMap<>());
+        for (int i = 0; i < root.getChildCount(); i++) {
+            statement(root.getChildAt(i));
+        }
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private void statement(TreeNode node) {
+        switch (node.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                declare(node);
+                break;
+            case ConstVar.ASSIGN:
+                assign(node);
+                break;
+            case ConstVar.FOR:
+                forStatement(node);
+                break;
+            case ConstVar.IF:
+                ifStatement(node);
+                break;
+            case ConstVar.WHILE:
+                whileStatement(node);
+                break;
+            case ConstVar.READ:
+                read(node);
+                break;
+            case ConstVar.WRITE:
+                String value = expression(node.getChildAt(0));
+                emit(IRInstruction.WRITE, null, null, node.getLineNum()).addOperand(value);
+                break;
+        }
+    }
+
+    private void declare(TreeNode root) {
+        String kind = root.getContent();
+        for (int i = 0; i < root.getChildCount(); i++) {
+            TreeNode idNode = root.getChildAt(i);
+            String variable = idNode.getContent() + "." + variableNum++;
+            scopes.get(scopes.size() - 1).put(idNode.getContent(), variable);
+            types.put(variable, kind);
+            if (idNode.getChildCount() != 0) {
+                String size = expression(idNode.getChildAt(0));
+                IRInstruction array = emit(IRInstruction.ARRAY, null, kind, idNode.getLineNum());
+                array.addOperand("@" + variable);
+                array.addOperand(size);
+            } else if (i + 1 < root.getChildCount() && root.getChildAt(i + 1).getContent().equals(ConstVar.ASSIGN)) {
+                i++;
+                write(variable, convert(expression(root.getChildAt(i).getChildAt(0)), kind, idNode.getLineNum()), current);
+            } else {
+                // 每次执行声明语句变量都回到未初始化的状态
+                write(variable, undef(kind, idNode.getLineNum()), current);
+            }
+        }
+    }
+
+    private void assign(TreeNode root) {
+        TreeNode idNode = root.getChildAt(0);
+        String variable = resolve(idNode.getContent());
+        String value = expression(root.getChildAt(1));
+        if (variable == null)
+            return;
+        if (idNode.getChildCount() != 0) {
+            TreeNode indexNode = idNode.getChildAt(0);
+            store(variable, expression(indexNode), indexNode.isProvenInBounds(), value, root.getLineNum());
+        } else {
+            write(variable, convert(value, types.get(variable), root.getLineNum()), current);
+        }
+    }
+
+    private void read(TreeNode root) {
+        TreeNode idNode = root.getChildAt(0);
+        String variable = resolve(idNode.getContent());
+        if (variable == null)
+            return;
+        String index = idNode.getChildCount() != 0 ? expression(idNode.getChildAt(0)) : null;
+        String value = emit(IRInstruction.READ, newValue(), types.get(variable), root.getLineNum()).getResult();
+        if (index != null)
+            store(variable, index, idNode.getChildAt(0).isProvenInBounds(), value, root.getLineNum());
+        else
+            write(variable, value, current);
+    }
+
+    /**
+     * 功能介绍：翻译数组元素的赋值
+     * @param inBounds 数据流分析是否已证明下标不越界,保留在store指令中
+     */
+    private void store(String variable, String index, boolean inBounds, String value, int line) {
+        IRInstruction store = emit(IRInstruction.STORE, null, null, line);
+        store.addOperand("@" + variable);
+        store.addOperand(index);
+        store.addOperand(convert(value, types.get(variable), line));
+        store.setInBounds(inBounds);
+    }
+
+    private void ifStatement(TreeNode root) {
+        String condition = condition(root.getChildAt(0).getChildAt(0));
+        BasicBlock thenBlock = program.newBlock();
+        BasicBlock elseBlock = root.getChildCount() == 3 ? program.newBlock() : null;
+        BasicBlock join = program.newBlock();
+        branch(condition, thenBlock, elseBlock != null ? elseBlock : join, root.getLineNum());
+        seal(thenBlock);
+        current = thenBlock;
+        block(root.getChildAt(1));
+        jump(join, root.getLineNum());
+        if (elseBlock != null) {
+            seal(elseBlock);
+            current = elseBlock;
+            block(root.getChildAt(2));
+            jump(join, root.getLineNum());
+        }
+        seal(join);
+        current = join;
+    }
+
+    private void whileStatement(TreeNode root) {
+        BasicBlock header = program.newBlock();
+        BasicBlock body = program.newBlock();
+        BasicBlock exit = program.newBlock();
+        jump(header, root.getLineNum());
+        current = header;
+        branch(condition(root.getChildAt(0).getChildAt(0)), body, exit, root.getLineNum());
+        seal(body);
+        current = body;
+        block(root.getChildAt(1));
+        jump(header, root.getLineNum());
+        seal(header);
+        seal(exit);
+        current = exit;
+    }
+
+    private void forStatement(TreeNode root) {
+        assign(root.getChildAt(0).getChildAt(0));
+        BasicBlock header = program.newBlock();
+        BasicBlock body = program.newBlock();
+        BasicBlock exit = program.newBlock();
+        jump(header, root.getLineNum());
+        current = header;
+        branch(condition(root.getChildAt(1).getChildAt(0)), body, exit, root.getLineNum());
+        seal(body);
+        current = body;
+        block(root.getChildAt(3));
+        assign(root.getChildAt(2).getChildAt(0));
+        jump(header, root.getLineNum());
+        seal(header);
+        seal(exit);
+        current = exit;
+    }
+
+    private void branch(String condition, BasicBlock trueBlock, BasicBlock falseBlock, int line) {
+        IRInstruction br = emit(IRInstruction.BR, null, null, line);
+        br.addOperand(condition);
+        br.addTarget(trueBlock);
+        br.addTarget(falseBlock);
+        current.link(trueBlock);
+        current.link(falseBlock);
+    }
+
+    private void jump(BasicBlock target, int line) {
+        emit(IRInstruction.JMP, null, null, line).addTarget(target);
+        current.link(target);
+    }
+
+    /**
+     * 功能介绍：翻译条件,与CMMSemanticAnalysis.forCondition一致,算术表达式作为条件时为假
+     */
+    private String condition(TreeNode node) {
+        String value = expression(node);
+        if (type(value).equals(ConstVar.BOOL))
+            return value;
+        return constant(ConstVar.BOOL, ConstVar.FALSE, node.getLineNum());
+    }
+
+    /**
+     * 功能介绍：翻译表达式
+     * @return 表达式结果的SSA值
+     */
+    private String expression(TreeNode node) {
+        int line = node.getLineNum();
+        switch (node.getNodeKind()) {
+            case "整数":
+                return constant(ConstVar.INT, node.getContent(), line);
+            case "实数":
+                return constant(ConstVar.REAL, node.getContent(), line);
+            case "布尔值":
+                return constant(ConstVar.BOOL, node.getContent(), line);
+            case "字符串":
+                return constant(ConstVar.STRING, node.getContent(), line);
+            case "标识符":
+                String variable = resolve(node.getContent());
+                if (variable == null)
+                    return undef(ConstVar.INT, line);
+                if (node.getChildCount() != 0) {
+                    String index = expression(node.getChildAt(0));
+                    IRInstruction load = emit(IRInstruction.LOAD, newValue(), types.get(variable), line);
+                    load.addOperand("@" + variable);
+                    load.addOperand(index);
+                    return load.getResult();
+                }
+                return read(variable, current);
+        }
+        String op;
+        switch (node.getContent()) {
+            case ConstVar.PLUS:
+                op = IRInstruction.ADD;
+                break;
+            case ConstVar.MINUS:
+                op = IRInstruction.SUB;
+                break;
+            case ConstVar.TIMES:
+                op = IRInstruction.MUL;
+                break;
+            case ConstVar.DIVIDE:
+                op = IRInstruction.DIV;
+                break;
+            case ConstVar.LT:
+                op = IRInstruction.LT;
+                break;
+            case ConstVar.GT:
+                op = IRInstruction.GT;
+                break;
+            case ConstVar.EQUAL:
+                op = IRInstruction.EQ;
+                break;
+            default:
+                op = IRInstruction.NE;
+                break;
+        }
+        String value1 = expression(node.getChildAt(0));
+        String value2 = expression(node.getChildAt(1));
+        String type;
+        if (op.equals(IRInstruction.LT) || op.equals(IRInstruction.GT)
+                || op.equals(IRInstruction.EQ) || op.equals(IRInstruction.NE)) {
+            type = ConstVar.BOOL;
+        } else if (type(value1).equals(ConstVar.INT) && type(value2).equals(ConstVar.INT)) {
+            type = ConstVar.INT;
+        } else {
+            type = ConstVar.REAL;
+            value1 = convert(value1, type, line);
+            value2 = convert(value2, type, line);
+        }
+        IRInstruction instruction = emit(op, newValue(), type, line);
+        instruction.addOperand(value1);
+        instruction.addOperand(value2);
+        return instruction.getResult();
+    }
+
+    /**
+     * 功能介绍：int值赋给real变量或参与real运算时插入类型转换
+     */
+    private String convert(String value, String kind, int line) {
+        if (!kind.equals(ConstVar.REAL) || !type(value).equals(ConstVar.INT))
+            return value;
+        IRInstruction itof = emit(IRInstruction.ITOF, newValue(), ConstVar.REAL, line);
+        itof.addOperand(value);
+        return itof.getResult();
+    }
+
+    private String constant(String type, String literal, int line) {
+        IRInstruction instruction = emit(IRInstruction.CONST, newValue(), type, line);
+        instruction.setLiteral(literal);
+        return instruction.getResult();
+    }
+
+    /**
+     * 功能介绍：未初始化的值,放在入口块的开头以支配所有使用
+     */
+    private String undef(String type, int line) {
+        IRInstruction instruction = new IRInstruction(IRInstruction.UNDEF, newValue(), type, line);
+        program.getEntry().getInstructions().add(0, instruction);
+        definitions.put(instruction.getResult(), instruction);
+        return instruction.getResult();
+    }
+
+    private IRInstruction emit(String op, String result, String type, int line) {
+        IRInstruction instruction = new IRInstruction(op, result, type, line);
+        current.add(instruction);
+        if (result != null)
+            definitions.put(result, instruction);
+        return instruction;
+    }
+
+    private String newValue() {
+        return "%" + valueNum++;
+    }
+
+    private String type(String value) {
+        return definitions.get(value).getType();
+    }
+
+    /**
+     * 功能介绍：按作用域查找变量的唯一变量名
+     * @return 未声明时返回null
+     */
+    private String resolve(String name) {
+        for (int i = scopes.size() - 1; i > -1; i--) {
+            String variable = scopes.get(i).get(name);
+            if (variable != null)
+                return variable;
+        }
+        return null;
+    }
+
+    /* 以下为SSA构造 */
+
+    private void write(String variable, String value, BasicBlock block) {
+        currentDef.computeIfAbsent(variable, k -> new HashMap<>()).put(block, value);
+    }
+
+    private String read(String variable, BasicBlock block) {
+        HashMap<BasicBlock, String> defs = currentDef.get(variable);
+        if (defs != null && defs.containsKey(block))
+            return defs.get(block);
+        return readRecursive(variable, block);
+    }
+
+    private String readRecursive(String variable, BasicBlock block) {
+        String value;
+        if (!sealed.contains(block)) {
+            // 前驱尚未确定,先放置不完整的phi
+            IRInstruction phi = phi(variable, block);
+            incompletePhis.computeIfAbsent(block, k -> new HashMap<>()).put(variable, phi);
+            value = phi.getResult();
+        } else if (block.getPredecessors().isEmpty()) {
+            value = undef(types.get(variable), 0);
+        } else if (block.getPredecessors().size() == 1) {
+            value = read(variable, block.getPredecessors().get(0));
+        } else {
+            IRInstruction phi = phi(variable, block);
+            // 先记录phi以打断循环中的递归
+            write(variable, phi.getResult(), block);
+            value = addPhiOperands(variable, phi, block);
+        }
+        write(variable, value, block);
+        return value;
+    }
+
+    private IRInstruction phi(String variable, BasicBlock block) {
+        IRInstruction phi = new IRInstruction(IRInstruction.PHI, newValue(), types.get(variable), 0);
+        block.addPhi(phi);
+        definitions.put(phi.getResult(), phi);
+        return phi;
+    }
+
+    private String addPhiOperands(String variable, IRInstruction phi, BasicBlock block) {
+        for (BasicBlock predecessor : block.getPredecessors()) {
+            phi.addOperand(read(variable, predecessor));
+            phi.addTarget(predecessor);
+        }
+        return tryRemoveTrivialPhi(phi, block);
+    }
+
+    /**
+     * 功能介绍：所有操作数相同(或为自身)的phi是多余的,用该操作数替换
+     */
+    private String tryRemoveTrivialPhi(IRInstruction phi, BasicBlock block) {
+        String same = null;
+        for (String operand : phi.getOperands()) {
+            if (operand.equals(same) || operand.equals(phi.getResult()))
+                continue;
+            if (same != null)
+                return phi.getResult();
+            same = operand;
+        }
+        if (same == null)
+            same = undef(phi.getType(), 0);
+        block.getInstructions().remove(phi);
+        // 使用该phi的其他phi可能也变为多余
+        ArrayList<IRInstruction> users = new ArrayList<>();
+        ArrayList<BasicBlock> userBlocks = new ArrayList<>();
+        for (BasicBlock temp : program.getBlocks()) {
+            for (IRInstruction instruction : temp.getInstructions()) {
+                if (instruction != phi && instruction.getOp().equals(IRInstruction.PHI)
+                        && instruction.getOperands().contains(phi.getResult())) {
+                    users.add(instruction);
+                    userBlocks.add(temp);
+                }
+            }
+        }
+        HashMap<String, String> map = new HashMap<>();
+        map.put(phi.getResult(), same);
+        program.replaceUses(map);
+        for (HashMap<BasicBlock, String> defs : currentDef.values()) {
+            for (BasicBlock temp : defs.keySet()) {
+                if (defs.get(temp).equals(phi.getResult()))
+                    defs.put(temp, same);
+            }
+        }
+        for (int i = 0; i < users.size(); i++) {
+            if (userBlocks.get(i).getInstructions().contains(users.get(i)))
+                tryRemoveTrivialPhi(users.get(i), userBlocks.get(i));
+        }
+        return same;
+    }
+
+    /**
+     * 功能介绍：封闭基本块,此后不会再增加前驱,补全块中不完整的phi
+     */
+    private void seal(BasicBlock block) {
+        HashMap<String, IRInstruction> phis = incompletePhis.remove(block);
+        if (phis != null) {
+            for (String variable : phis.keySet()) {
+                addPhiOperands(variable, phis.get(variable), block);
+            }
+        }
+        sealed.add(block);
+    }
+}
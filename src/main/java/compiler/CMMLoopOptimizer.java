@@ -0,0 +1,525 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * 循环优化：循环不变式外提以及归纳变量的强度削减,在CMMDataFlowAnalysis之后执行,
+ * 依赖数据流分析对标识符结点的标记来判断表达式求值一定不会出错,
+ * 新生成的临时变量以$开头,不会与CMM程序中的标识符重名,解释器不把它们计入资源限制
+ */
+public class CMMLoopOptimizer {
+    private TreeNode root;                                  // 语法分析得到的抽象语法树的根节点
+
+    private ArrayList<HashMap<String, String>> scopes = new ArrayList<>();     // 作用域栈,记录变量名和声明类型
+
+    private int tempNum = 0;                                // 已生成的临时变量个数
+
+    private int optimizeNum = 0;                            // 优化次数
+
+    private String optimizeInfo = "";                       // 优化信息
+
+    public CMMLoopOptimizer(TreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * 功能介绍：循环优化主方法
+     * @return 优化后的语法树根结点
+     */
+    public TreeNode execute() {
+        scopes.clear();
+        optimizeNum = 0;
+        optimizeInfo = "";
+        block(root);
+        return root;
+    }
+
+    private void info(String info, int line) {
+        optimizeNum++;
+        optimizeInfo += "第 " + line + " 行：" + info + "\n";
+    }
+
+    /**
+     * 功能介绍：优化一个代码块,先优化内层循环,再优化外层循环
+     * @param root 代码块结点
+     */
+    private void block(TreeNode root) {
+        scopes.add(new HashMap<>());
+        for (int i = 0; i < root.getChildCount(); i++) {
+            TreeNode node = root.getChildAt(i);
+            switch (node.getContent()) {
+                case ConstVar.INT:
+                case ConstVar.REAL:
+                case ConstVar.BOOL:
+                case ConstVar.STRING:
+                    for (int j = 0; j < node.getChildCount(); j++) {
+                        if (!node.getChildAt(j).getContent().equals(ConstVar.ASSIGN))
+                            declare(node.getChildAt(j).getContent(), node.getContent());
+                    }
+                    break;
+                case ConstVar.IF:
+                    block(node.getChildAt(1));
+                    if (node.getChildCount() == 3)
+                        block(node.getChildAt(2));
+                    break;
+                case ConstVar.WHILE:
+                    block(node.getChildAt(1));
+                    i += loop(root, node, node.getChildAt(1), false);
+                    break;
+                case ConstVar.FOR:
+                    block(node.getChildAt(3));
+                    i += loop(root, node, node.getChildAt(3), true);
+                    break;
+            }
+        }
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * 功能介绍：优化一个循环
+     * @param parent 循环语句所在的代码块
+     * @param node   循环语句结点
+     * @param body   循环体
+     * @param isFor  是否为for循环
+     * @return 在循环语句之前插入的语句个数
+     */
+    private int loop(TreeNode parent, TreeNode node, TreeNode body, boolean isFor) {
+        // 循环中被赋值和被声明的变量
+        HashMap<String, Integer> assigned = new HashMap<>();
+        HashSet<String> declared = new HashSet<>();
+        for (int i = 0; i < body.getChildCount(); i++) {
+            scan(body.getChildAt(i), assigned, declared);
+        }
+        // 循环中可以被替换的表达式,父结点在子结点之前
+        ArrayList<TreeNode> candidates = new ArrayList<>();
+        TreeNode conditionNode = node.getChildAt(isFor ? 1 : 0).getChildAt(0);
+        collectChildren(conditionNode, candidates);
+        int last = body.getChildCount();
+        if (!isFor && last != 0 && body.getChildAt(last - 1).getContent().equals(ConstVar.ASSIGN))
+            last--;
+        for (int i = 0; i < last; i++) {
+            collect(body.getChildAt(i), candidates);
+        }
+        int inserted = strengthReduce(parent, node, body, isFor, assigned, declared, candidates);
+        if (isFor) {
+            // for循环的初始化语句和change语句同样会改变变量的值
+            count(node.getChildAt(0).getChildAt(0).getChildAt(0).getContent(), assigned);
+            count(node.getChildAt(2).getChildAt(0).getChildAt(0).getContent(), assigned);
+        } else if (last < body.getChildCount()) {
+            collect(body.getChildAt(last), candidates);
+        }
+        return inserted + hoist(parent, node, assigned, declared, candidates);
+    }
+
+    /**
+     * 功能介绍：循环不变式外提,操作数都在循环中不被改变的整数表达式在循环之前计算一次
+     * @return 在循环语句之前插入的语句个数
+     */
+    private int hoist(TreeNode parent, TreeNode node, HashMap<String, Integer> assigned,
+                      HashSet<String> declared, ArrayList<TreeNode> candidates) {
+        LinkedHashMap<String, String> temps = new LinkedHashMap<>();
+        int inserted = 0;
+        for (TreeNode candidate : candidates) {
+            if (!candidate.isNodeAncestor(node) || !isInvariant(candidate, assigned, declared)
+                    || !hasIdentifier(candidate))
+                continue;
+            String text = toText(candidate);
+            String name = temps.get(text);
+            if (name == null) {
+                name = newTemp();
+                temps.put(text, name);
+                insertDeclare(parent, node, name, copy(candidate));
+                inserted++;
+                info("循环不变式 " + text + " 外提为 " + name, candidate.getLineNum());
+            }
+            replace(candidate, name);
+        }
+        return inserted;
+    }
+
+    /**
+     * 功能介绍：归纳变量强度削减,将循环中多次出现的 i+k i-k i*k 等表达式替换为临时变量,
+     * 临时变量在循环之前初始化,在每次循环结束时随归纳变量一起递增
+     * @return 在循环语句之前插入的语句个数
+     */
+    private int strengthReduce(TreeNode parent, TreeNode node, TreeNode body, boolean isFor,
+                               HashMap<String, Integer> assigned, HashSet<String> declared,
+                               ArrayList<TreeNode> candidates) {
+        // 归纳变量的递增语句 iv = iv + c 或 iv = iv - c
+        TreeNode change;
+        String initValue = null;
+        if (isFor) {
+            TreeNode initialization = node.getChildAt(0).getChildAt(0);
+            change = node.getChildAt(2).getChildAt(0);
+            if (initialization.getChildCount() < 2 || !isIntLiteral(initialization.getChildAt(1)))
+                return 0;
+            initValue = initialization.getChildAt(1).getContent();
+            if (!initialization.getChildAt(0).getContent().equals(change.getChildAt(0).getContent()))
+                return 0;
+        } else {
+            if (body.getChildCount() == 0)
+                return 0;
+            change = body.getChildAt(body.getChildCount() - 1);
+            if (!change.getContent().equals(ConstVar.ASSIGN))
+                return 0;
+        }
+        String step = step(change);
+        if (step == null)
+            return 0;
+        String variable = change.getChildAt(0).getContent();
+        Integer times = assigned.get(variable);
+        if (times != null && times != (isFor ? 0 : 1) || declared.contains(variable) || !isInt(variable))
+            return 0;
+        // 按表达式分组,只有出现两次及以上时替换才有收益
+        LinkedHashMap<String, ArrayList<TreeNode>> groups = new LinkedHashMap<>();
+        for (TreeNode candidate : candidates) {
+            if (isInduction(candidate, variable)) {
+                groups.computeIfAbsent(toText(candidate), k -> new ArrayList<>()).add(candidate);
+            }
+        }
+        int inserted = 0;
+        for (ArrayList<TreeNode> group : groups.values()) {
+            if (group.size() < 2)
+                continue;
+            TreeNode first = group.get(0);
+            TreeNode left = first.getChildAt(0);
+            TreeNode right = first.getChildAt(1);
+            boolean variableLeft = left.getNodeKind().equals("标识符");
+            String constant = variableLeft ? right.getContent() : left.getContent();
+            // 表达式随归纳变量的变化量
+            String delta;
+            switch (first.getContent()) {
+                case ConstVar.TIMES:
+                    delta = CMMSemanticAnalysis.calculate(ConstVar.TIMES, step, constant, true);
+                    break;
+                case ConstVar.MINUS:
+                    delta = variableLeft ? step : CMMSemanticAnalysis.calculate(ConstVar.MINUS, "0", step, true);
+                    break;
+                default:
+                    delta = step;
+                    break;
+            }
+            String name = newTemp();
+            TreeNode value;
+            if (isFor) {
+                value = new TreeNode("整数", CMMSemanticAnalysis.calculate(first.getContent(),
+                        variableLeft ? initValue : constant, variableLeft ? constant : initValue, true),
+                        first.getLineNum());
+            } else {
+                value = copy(first);
+            }
+            insertDeclare(parent, node, name, value);
+            inserted++;
+            // 每次循环结束时 $n = $n + delta
+            TreeNode update = new TreeNode("运算符", ConstVar.ASSIGN, change.getLineNum());
+            update.add(new TreeNode("标识符", name, change.getLineNum()));
+            TreeNode plus = new TreeNode("运算符", ConstVar.PLUS, change.getLineNum());
+            TreeNode temp = new TreeNode("标识符", name, change.getLineNum());
+            temp.setProvenInitialized(true);
+            plus.add(temp);
+            plus.add(new TreeNode("整数", delta, change.getLineNum()));
+            update.add(plus);
+            body.add(update);
+            count(name, assigned);
+            info("归纳变量 " + variable + " 的表达式 " + toText(first) + " 强度削减为 " + name, first.getLineNum());
+            for (TreeNode candidate : group) {
+                replace(candidate, name);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * 功能介绍：取得递增语句的步长
+     * @param change 形如 iv = iv + c 或 iv = iv - c 的赋值语句
+     * @return 步长,不符合形式时返回null
+     */
+    private static String step(TreeNode change) {
+        if (change.getChildCount() < 2)
+            return null;
+        TreeNode idNode = change.getChildAt(0);
+        TreeNode value = change.getChildAt(1);
+        if (idNode.getChildCount() != 0 || value.getChildCount() != 2)
+            return null;
+        TreeNode left = value.getChildAt(0);
+        TreeNode right = value.getChildAt(1);
+        if (!left.getNodeKind().equals("标识符") || left.getChildCount() != 0
+                || !left.getContent().equals(idNode.getContent()) || !left.isProvenInitialized()
+                || !isIntLiteral(right))
+            return null;
+        if (value.getContent().equals(ConstVar.PLUS))
+            return right.getContent();
+        if (value.getContent().equals(ConstVar.MINUS))
+            return CMMSemanticAnalysis.calculate(ConstVar.MINUS, "0", right.getContent(), true);
+        return null;
+    }
+
+    /**
+     * 功能介绍：判断表达式是否为归纳变量与整数常量的 + - * 运算
+     */
+    private static boolean isInduction(TreeNode node, String variable) {
+        if (node.getChildCount() != 2 || node.getContent().equals(ConstVar.DIVIDE))
+            return false;
+        TreeNode left = node.getChildAt(0);
+        TreeNode right = node.getChildAt(1);
+        if (isIntLiteral(right))
+            return isVariable(left, variable);
+        return isIntLiteral(left) && isVariable(right, variable);
+    }
+
+    private static boolean isVariable(TreeNode node, String variable) {
+        return node.getNodeKind().equals("标识符") && node.getChildCount() == 0
+                && node.getContent().equals(variable) && node.isProvenInitialized();
+    }
+
+    /**
+     * 功能介绍：判断表达式是否为循环不变的整数表达式,并且求值一定不会出错
+     */
+    private boolean isInvariant(TreeNode node, HashMap<String, Integer> assigned, HashSet<String> declared) {
+        if (isIntLiteral(node))
+            return true;
+        if (node.getNodeKind().equals("标识符")) {
+            String name = node.getContent();
+            return node.getChildCount() == 0 && node.isProvenInitialized() && isInt(name)
+                    && !assigned.containsKey(name) && !declared.contains(name);
+        }
+        if (!isArithmetic(node.getContent()) || node.getChildCount() != 2)
+            return false;
+        // 除数必须是非零常量,否则可能出现除数为0的错误
+        if (node.getContent().equals(ConstVar.DIVIDE)
+                && (!isIntLiteral(node.getChildAt(1)) || Integer.parseInt(node.getChildAt(1).getContent()) == 0))
+            return false;
+        return isInvariant(node.getChildAt(0), assigned, declared)
+                && isInvariant(node.getChildAt(1), assigned, declared);
+    }
+
+    private static boolean hasIdentifier(TreeNode node) {
+        if (node.getNodeKind().equals("标识符"))
+            return true;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (hasIdentifier(node.getChildAt(i)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 功能介绍：统计语句中被赋值的变量(包括read)和被声明的变量
+     */
+    private static void scan(TreeNode node, HashMap<String, Integer> assigned, HashSet<String> declared) {
+        switch (node.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    if (!node.getChildAt(i).getContent().equals(ConstVar.ASSIGN))
+                        declared.add(node.getChildAt(i).getContent());
+                }
+                return;
+            case ConstVar.ASSIGN:
+                count(node.getChildAt(0).getContent(), assigned);
+                return;
+            case ConstVar.READ:
+                count(node.getChildAt(0).getContent(), assigned);
+                return;
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            scan(node.getChildAt(i), assigned, declared);
+        }
+    }
+
+    private static void count(String name, HashMap<String, Integer> assigned) {
+        assigned.merge(name, 1, Integer::sum);
+    }
+
+    /**
+     * 功能介绍：收集语句中可以被整数变量替换的算术表达式,
+     * 标识符与算术表达式处理方式不同的位置(bool/string变量的初始值、数组大小、单独作为条件)不收集
+     */
+    private void collect(TreeNode node, ArrayList<TreeNode> candidates) {
+        switch (node.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                boolean isNumber = node.getContent().equals(ConstVar.INT) || node.getContent().equals(ConstVar.REAL);
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    TreeNode temp = node.getChildAt(i);
+                    if (temp.getContent().equals(ConstVar.ASSIGN)) {
+                        if (isNumber)
+                            collectExpression(temp.getChildAt(0), candidates);
+                        else
+                            collectChildren(temp.getChildAt(0), candidates);
+                    } else if (temp.getChildCount() != 0) {
+                        collectChildren(temp.getChildAt(0), candidates);
+                    }
+                }
+                return;
+            case ConstVar.ASSIGN:
+                collectIndex(node.getChildAt(0), candidates);
+                collectExpression(node.getChildAt(1), candidates);
+                return;
+            case ConstVar.READ:
+                collectIndex(node.getChildAt(0), candidates);
+                return;
+            case ConstVar.WRITE:
+                collectExpression(node.getChildAt(0), candidates);
+                return;
+            case ConstVar.IF:
+                collectChildren(node.getChildAt(0).getChildAt(0), candidates);
+                for (int i = 1; i < node.getChildCount(); i++) {
+                    TreeNode statementNode = node.getChildAt(i);
+                    for (int j = 0; j < statementNode.getChildCount(); j++) {
+                        collect(statementNode.getChildAt(j), candidates);
+                    }
+                }
+                return;
+            case ConstVar.WHILE:
+                collectChildren(node.getChildAt(0).getChildAt(0), candidates);
+                for (int j = 0; j < node.getChildAt(1).getChildCount(); j++) {
+                    collect(node.getChildAt(1).getChildAt(j), candidates);
+                }
+                return;
+            case ConstVar.FOR:
+                collect(node.getChildAt(0).getChildAt(0), candidates);
+                collectChildren(node.getChildAt(1).getChildAt(0), candidates);
+                collect(node.getChildAt(2).getChildAt(0), candidates);
+                for (int j = 0; j < node.getChildAt(3).getChildCount(); j++) {
+                    collect(node.getChildAt(3).getChildAt(j), candidates);
+                }
+        }
+    }
+
+    private void collectExpression(TreeNode node, ArrayList<TreeNode> candidates) {
+        if (isArithmetic(node.getContent()) && node.getChildCount() == 2)
+            candidates.add(node);
+        collectChildren(node, candidates);
+    }
+
+    private void collectChildren(TreeNode node, ArrayList<TreeNode> candidates) {
+        if (node.getNodeKind().equals("标识符")) {
+            collectIndex(node, candidates);
+            return;
+        }
+        if (!isArithmetic(node.getContent()) && !isComparison(node.getContent()))
+            return;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            collectExpression(node.getChildAt(i), candidates);
+        }
+    }
+
+    private void collectIndex(TreeNode idNode, ArrayList<TreeNode> candidates) {
+        if (idNode.getChildCount() != 0)
+            collectExpression(idNode.getChildAt(0), candidates);
+    }
+
+    /**
+     * 功能介绍：在循环语句之前插入临时变量的声明 int name = value;
+     */
+    private void insertDeclare(TreeNode parent, TreeNode node, String name, TreeNode value) {
+        TreeNode declareNode = new TreeNode("关键字", ConstVar.INT, node.getLineNum());
+        declareNode.add(new TreeNode("标识符", name, node.getLineNum()));
+        TreeNode assignNode = new TreeNode("分隔符", ConstVar.ASSIGN, node.getLineNum());
+        assignNode.add(value);
+        declareNode.add(assignNode);
+        parent.insert(declareNode, parent.getIndex(node));
+        declare(name, ConstVar.INT);
+    }
+
+    /**
+     * 功能介绍：用临时变量替换表达式,临时变量一定已初始化,下标检查的标记从原表达式继承
+     */
+    private static void replace(TreeNode node, String name) {
+        TreeNode temp = new TreeNode("标识符", name, node.getLineNum());
+        temp.setProvenInitialized(true);
+        temp.setProvenInBounds(node.isProvenInBounds());
+        TreeNode parent = node.getParent();
+        int index = parent.getIndex(node);
+        parent.remove(index);
+        parent.insert(temp, index);
+    }
+
+    /**
+     * 功能介绍：复制表达式,包括数据流分析的标记
+     */
+    private static TreeNode copy(TreeNode node) {
+        TreeNode result = new TreeNode(node.getNodeKind(), node.getContent(), node.getLineNum());
+        result.setProvenInitialized(node.isProvenInitialized());
+        result.setProvenInBounds(node.isProvenInBounds());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            result.add(copy(node.getChildAt(i)));
+        }
+        return result;
+    }
+
+    /**
+     * 功能介绍：表达式的文本形式,用于判断两个表达式是否相同以及输出优化信息
+     */
+    private static String toText(TreeNode node) {
+        if (node.getChildCount() == 2 && isArithmetic(node.getContent()))
+            return "(" + toText(node.getChildAt(0)) + " " + node.getContent() + " " + toText(node.getChildAt(1)) + ")";
+        if (node.getChildCount() == 1)
+            return node.getContent() + "[" + toText(node.getChildAt(0)) + "]";
+        return node.getContent();
+    }
+
+    private String newTemp() {
+        return "$" + tempNum++;
+    }
+
+    private void declare(String name, String kind) {
+        scopes.get(scopes.size() - 1).put(name, kind);
+    }
+
+    /**
+     * 功能介绍：判断名字在所有可见作用域中是否只被声明为int
+     */
+    private boolean isInt(String name) {
+        boolean declared = false;
+        for (HashMap<String, String> scope : scopes) {
+            String kind = scope.get(name);
+            if (kind == null)
+                continue;
+            if (!kind.equals(ConstVar.INT))
+                return false;
+            declared = true;
+        }
+        return declared;
+    }
+
+    private static boolean isIntLiteral(TreeNode node) {
+        if (!node.getNodeKind().equals("整数"))
+            return false;
+        try {
+            Integer.parseInt(node.getContent());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isArithmetic(String content) {
+        return content.equals(ConstVar.PLUS) || content.equals(ConstVar.MINUS)
+                || content.equals(ConstVar.TIMES) || content.equals(ConstVar.DIVIDE);
+    }
+
+    private static boolean isComparison(String content) {
+        return content.equals(ConstVar.EQUAL) || content.equals(ConstVar.NEQUAL)
+                || content.equals(ConstVar.LT) || content.equals(ConstVar.GT);
+    }
+
+    public int getOptimizeNum() {
+        return optimizeNum;
+    }
+
+    public String getOptimizeInfo() {
+        return optimizeInfo;
+    }
+}
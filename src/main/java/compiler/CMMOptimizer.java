@@ -0,0 +1,343 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * 抽象语法树优化：常量折叠以及删除不可达的if/else分支和永不执行的while/for循环,
+ * 在语法分析之后、执行之前对语法树原地修改
+ */
+public class CMMOptimizer {
+    private TreeNode root;                                  // 语法分析得到的抽象语法树的根节点
+
+    private ArrayList<HashMap<String, String>> scopes = new ArrayList<>();     // 作用域栈,记录变量名和声明类型
+
+    private int optimizeNum = 0;                            // 优化次数
+
+    private String optimizeInfo = "";                       // 优化信息
+
+    public CMMOptimizer(TreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * 功能介绍：优化主方法
+     * @return 优化后的语法树根结点
+     */
+    public TreeNode execute() {
+        scopes.clear();
+        optimizeNum = 0;
+        optimizeInfo = "";
+        block(root);
+        return root;
+    }
+
+    private void info(String info, int line) {
+        optimizeNum++;
+        optimizeInfo += "第 " + line + " 行：" + info + "\n";
+    }
+
+    /**
+     * 功能介绍：优化一个代码块中的所有语句
+     * @param root 代码块结点
+     */
+    private void block(TreeNode root) {
+        scopes.add(new HashMap<>());
+        int i = 0;
+        while (i < root.getChildCount()) {
+            // statement返回false表示该语句已被删除
+            if (statement(root.getChildAt(i)))
+                i++;
+        }
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * 功能介绍：优化单条语句
+     * @param node 语句结点
+     * @return 语句被删除时返回false
+     */
+    private boolean statement(TreeNode node) {
+        switch (node.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                declare(node);
+                break;
+            case ConstVar.ASSIGN:
+                assign(node);
+                break;
+            case ConstVar.FOR:
+                return forStatement(node);
+            case ConstVar.IF:
+                return ifStatement(node);
+            case ConstVar.WHILE:
+                return whileStatement(node);
+            case ConstVar.READ:
+                TreeNode idNode = node.getChildAt(0);
+                if (idNode.getChildCount() != 0)
+                    fold(idNode.getChildAt(0));
+                break;
+            case ConstVar.WRITE:
+                fold(node.getChildAt(0));
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：优化declare语句,只有int和real变量的初始值会整体折叠,
+     * bool和string变量对算术表达式的处理与字面量不同,只折叠其子表达式;
+     * int变量的初始值为实数字面量时只报错并继续声明,为表达式时报错后不再声明,因此结果为实数时不折叠
+     */
+    private void declare(TreeNode root) {
+        String kind = root.getContent();
+        for (int i = 0; i < root.getChildCount(); i++) {
+            TreeNode temp = root.getChildAt(i);
+            if (temp.getContent().equals(ConstVar.ASSIGN) && temp.getChildCount() != 0) {
+                TreeNode valueNode = temp.getChildAt(0);
+                if (kind.equals(ConstVar.BOOL) && isComparison(valueNode.getContent()))
+                    foldCondition(valueNode);
+                else if (kind.equals(ConstVar.INT))
+                    fold(valueNode, true);
+                else if (kind.equals(ConstVar.REAL))
+                    fold(valueNode);
+                else
+                    foldChildren(valueNode);
+            } else {
+                if (temp.getChildCount() != 0)
+                    fold(temp.getChildAt(0));
+                scopes.get(scopes.size() - 1).put(temp.getContent(), kind);
+            }
+        }
+    }
+
+    /**
+     * 功能介绍：优化assign语句,赋值对象一定是数值变量时右边的算术表达式才整体折叠
+     */
+    private void assign(TreeNode root) {
+        TreeNode idNode = root.getChildAt(0);
+        if (idNode.getChildCount() != 0)
+            fold(idNode.getChildAt(0));
+        if (root.getChildCount() < 2)
+            return;
+        TreeNode valueNode = root.getChildAt(1);
+        if (isComparison(valueNode.getContent()))
+            foldCondition(valueNode);
+        else if (isNumber(idNode.getContent()))
+            fold(valueNode);
+        else
+            foldChildren(valueNode);
+    }
+
+    /**
+     * 功能介绍：优化if语句,条件恒为真时删除else分支,恒为假时删除if分支
+     * @return if语句被删除时返回false
+     */
+    private boolean ifStatement(TreeNode root) {
+        TreeNode conditionNode = foldCondition(root.getChildAt(0).getChildAt(0));
+        if (conditionNode.getNodeKind().equals("布尔值")) {
+            if (conditionNode.getContent().equals(ConstVar.TRUE)) {
+                if (root.getChildCount() == 3) {
+                    root.remove(2);
+                    info("if条件恒为真,删除else分支", root.getLineNum());
+                }
+            } else if (root.getChildCount() == 3) {
+                TreeNode statementNode = root.getChildAt(1);
+                if (statementNode.getChildCount() != 0) {
+                    statementNode.removeAllChildren();
+                    statementNode.setContent("EmptyStm");
+                    info("if条件恒为假,删除if分支", root.getLineNum());
+                }
+            } else {
+                remove(root);
+                info("if条件恒为假且没有else分支,删除if语句", root.getLineNum());
+                return false;
+            }
+        }
+        block(root.getChildAt(1));
+        if (root.getChildCount() == 3)
+            block(root.getChildAt(2));
+        return true;
+    }
+
+    /**
+     * 功能介绍：优化while语句,条件恒为假时删除整个循环
+     * @return while语句被删除时返回false
+     */
+    private boolean whileStatement(TreeNode root) {
+        TreeNode conditionNode = foldCondition(root.getChildAt(0).getChildAt(0));
+        if (conditionNode.getNodeKind().equals("布尔值") && conditionNode.getContent().equals(ConstVar.FALSE)) {
+            remove(root);
+            info("while循环条件恒为假,删除while语句", root.getLineNum());
+            return false;
+        }
+        block(root.getChildAt(1));
+        return true;
+    }
+
+    /**
+     * 功能介绍：优化for语句,条件恒为假时只保留初始化语句
+     * @return 始终返回true,for语句被替换时替换后的语句占据原位置
+     */
+    private boolean forStatement(TreeNode root) {
+        TreeNode initializationNode = root.getChildAt(0).getChildAt(0);
+        assign(initializationNode);
+        TreeNode conditionNode = foldCondition(root.getChildAt(1).getChildAt(0));
+        if (conditionNode.getNodeKind().equals("布尔值") && conditionNode.getContent().equals(ConstVar.FALSE)) {
+            replace(root, initializationNode);
+            info("for循环条件恒为假,只保留初始化语句", root.getLineNum());
+            return true;
+        }
+        assign(root.getChildAt(2).getChildAt(0));
+        block(root.getChildAt(3));
+        return true;
+    }
+
+    /**
+     * 功能介绍：对算术表达式进行常量折叠,运算结果与CMMSemanticAnalysis.forExpression一致,
+     * 除数为0或结果格式与执行时不同的表达式保留原样,由执行时报错
+     * @param node 表达式结点
+     * @return 折叠后的结点
+     */
+    private TreeNode fold(TreeNode node) {
+        return fold(node, false);
+    }
+
+    /**
+     * @param integerOnly 为true时只在结果为整数时折叠表达式本身,子表达式仍然全部折叠
+     */
+    private TreeNode fold(TreeNode node, boolean integerOnly) {
+        foldChildren(node);
+        String content = node.getContent();
+        if (!isArithmetic(content) || !isConstant(node))
+            return node;
+        String value1 = node.getChildAt(0).getContent();
+        String value2 = node.getChildAt(1).getContent();
+        boolean isInt = node.getChildAt(0).getNodeKind().equals("整数")
+                && node.getChildAt(1).getNodeKind().equals("整数");
+        String value = CMMSemanticAnalysis.calculate(content, value1, value2, isInt);
+        if (value == null || (!isInt && (integerOnly || !matchReal(value))))
+            return node;
+        TreeNode result = new TreeNode(isInt ? "整数" : "实数", value, node.getLineNum());
+        info("常量折叠 " + value1 + " " + content + " " + value2 + " => " + value, node.getLineNum());
+        replace(node, result);
+        return result;
+    }
+
+    /**
+     * 功能介绍：对条件进行常量折叠,比较结果与CMMSemanticAnalysis.forCondition一致
+     * @param node 条件结点
+     * @return 折叠后的结点
+     */
+    private TreeNode foldCondition(TreeNode node) {
+        if (!isComparison(node.getContent()))
+            return fold(node);
+        foldChildren(node);
+        if (!isConstant(node))
+            return node;
+        String value1 = node.getChildAt(0).getContent();
+        String value2 = node.getChildAt(1).getContent();
+        String value = String.valueOf(CMMSemanticAnalysis.compare(node.getContent(), value1, value2));
+        TreeNode result = new TreeNode("布尔值", value, node.getLineNum());
+        info("常量折叠 " + value1 + " " + node.getContent() + " " + value2 + " => " + value, node.getLineNum());
+        replace(node, result);
+        return result;
+    }
+
+    /**
+     * 功能介绍：只折叠表达式的子表达式,不折叠表达式本身
+     */
+    private void foldChildren(TreeNode node) {
+        if (node.getNodeKind().equals("标识符")) {
+            // 数组下标
+            if (node.getChildCount() != 0)
+                fold(node.getChildAt(0));
+            return;
+        }
+        if (!isArithmetic(node.getContent()) && !isComparison(node.getContent()))
+            return;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            fold(node.getChildAt(i));
+        }
+    }
+
+    /**
+     * 功能介绍：判断二元运算的两个运算对象是否都是数值字面量
+     */
+    private static boolean isConstant(TreeNode node) {
+        return node.getChildCount() == 2 && isLiteral(node.getChildAt(0)) && isLiteral(node.getChildAt(1));
+    }
+
+    /**
+     * 功能介绍：判断结点是否为可以参与折叠的数值字面量
+     */
+    private static boolean isLiteral(TreeNode node) {
+        if (node.getNodeKind().equals("整数")) {
+            try {
+                Integer.parseInt(node.getContent());
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return node.getNodeKind().equals("实数") && matchReal(node.getContent());
+    }
+
+    /**
+     * 功能介绍：判断名字在所有可见作用域中是否只被声明为int或real
+     */
+    private boolean isNumber(String name) {
+        boolean declared = false;
+        for (HashMap<String, String> scope : scopes) {
+            String kind = scope.get(name);
+            if (kind == null)
+                continue;
+            if (!kind.equals(ConstVar.INT) && !kind.equals(ConstVar.REAL))
+                return false;
+            declared = true;
+        }
+        return declared;
+    }
+
+    private static void replace(TreeNode node, TreeNode newNode) {
+        TreeNode parent = node.getParent();
+        int index = parent.getIndex(node);
+        parent.remove(index);
+        parent.insert(newNode, index);
+    }
+
+    private static void remove(TreeNode node) {
+        TreeNode parent = node.getParent();
+        parent.remove(node);
+    }
+
+    private static boolean isArithmetic(String content) {
+        return content.equals(ConstVar.PLUS) || content.equals(ConstVar.MINUS)
+                || content.equals(ConstVar.TIMES) || content.equals(ConstVar.DIVIDE);
+    }
+
+    private static boolean isComparison(String content) {
+        return content.equals(ConstVar.EQUAL) || content.equals(ConstVar.NEQUAL)
+                || content.equals(ConstVar.LT) || content.equals(ConstVar.GT);
+    }
+
+    /**
+     * 功能介绍：识别正确的浮点数：排除00.000的情况
+     */
+    private static boolean matchReal(String input) {
+        return input.matches("^(-?\\d+)(\\.\\d+)+$") && !input.matches("^(-?0{2,}+)(\\.\\d+)+$");
+    }
+
+    public int getOptimizeNum() {
+        return optimizeNum;
+    }
+
+    public String getOptimizeInfo() {
+        return optimizeInfo;
+    }
+}
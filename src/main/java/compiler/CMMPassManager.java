@@ -0,0 +1,64 @@
+package compiler;
+
+import structure.IRProgram;
+
+import java.util.ArrayList;
+
+/**
+ * 优化遍管理：按添加顺序反复执行所有优化遍,直到没有优化遍再修改中间代码
+ */
+public class CMMPassManager {
+    private static final int MAX_ROUNDS = 10;               // 最多执行的轮数
+
+    private ArrayList<IRPass> passes = new ArrayList<>();   // 优化遍
+
+    private int optimizeNum = 0;                            // 优化次数
+
+    private String optimizeInfo = "";                       // 优化信息
+
+    /**
+     * 功能介绍：默认的优化遍：公共子表达式删除、死存储删除
+     */
+    public static CMMPassManager createDefault() {
+        CMMPassManager passManager = new CMMPassManager();
+        passManager.addPass(new CommonSubexpressionPass());
+        passManager.addPass(new DeadStorePass());
+        return passManager;
+    }
+
+    public void addPass(IRPass pass) {
+        passes.add(pass);
+    }
+
+    /**
+     * 功能介绍：执行所有优化遍
+     * @param program 中间代码
+     * @return 优化后的中间代码
+     */
+    public IRProgram execute(IRProgram program) {
+        optimizeNum = 0;
+        optimizeInfo = "";
+        for (int round = 1; round <= MAX_ROUNDS; round++) {
+            boolean changed = false;
+            for (IRPass pass : passes) {
+                int num = pass.run(program);
+                if (num != 0) {
+                    changed = true;
+                    optimizeNum += num;
+                    optimizeInfo += "第 " + round + " 轮：" + pass.getName() + " 修改 " + num + " 处\n";
+                }
+            }
+            if (!changed)
+                break;
+        }
+        return program;
+    }
+
+    public int getOptimizeNum() {
+        return optimizeNum;
+    }
+
+    public String getOptimizeInfo() {
+        return optimizeInfo;
+    }
+}
@@ -0,0 +1,190 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.Token;
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编译一次、可以多次执行的程序：由源程序经过词法分析、语法分析、优化和分析得到,创建后不再修改,
+ * 解释器只读取语法树,每次执行的变量、输入输出等状态都在run时新建,因此同一个程序可以在多个线程中同时执行
+ */
+public class CMMProgram {
+    private final String source;                    // 源程序
+    private final List<Token> tokens;               // 词法分析得到的token,只读
+    private final TreeNode root;                    // 优化后的语法树,有词法或语法错误时为null
+    private final int errorNum;                     // 词法和语法错误个数
+    private final String errorInfo;                 // 词法和语法错误信息,与图形界面的格式相同
+    private final int lexerErrorNum;                // 词法错误个数
+    private final String lexerErrorInfo;            // 词法错误信息
+    private final boolean readsInput;               // 程序中是否有read语句
+    private volatile String hash;                   // 源程序的SHA-256,第一次使用时计算
+
+    private CMMProgram(String source, List<Token> tokens, TreeNode root, int errorNum, String errorInfo,
+                       CMMLexer cmmLexer) {
+        this(source, tokens, root, errorNum, errorInfo, cmmLexer.getErrorNum(),
+                cmmLexer.getErrorInfo() == null ? "" : cmmLexer.getErrorInfo());
+    }
+
+    private CMMProgram(String source, List<Token> tokens, TreeNode root, int errorNum, String errorInfo,
+                       int lexerErrorNum, String lexerErrorInfo) {
+        this.source = source;
+        this.tokens = tokens;
+        this.root = root;
+        this.errorNum = errorNum;
+        this.errorInfo = errorInfo;
+        this.lexerErrorNum = lexerErrorNum;
+        this.lexerErrorInfo = lexerErrorInfo;
+        readsInput = root != null && containsRead(root);
+    }
+
+    /**
+     * 功能介绍：查找语法树中的read语句
+     */
+    private static boolean containsRead(TreeNode node) {
+        if (ConstVar.READ.equals(node.getContent()))
+            return true;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (containsRead(node.getChildAt(i)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 功能介绍：由磁盘缓存中读入的token和语法树恢复没有错误的程序
+     * @param root 已freeze的语法树
+     */
+    static CMMProgram restore(String source, List<Token> tokens, TreeNode root) {
+        return new CMMProgram(source, tokens, root, 0, "", 0, "");
+    }
+
+    /**
+     * 功能介绍：编译源程序
+     * @param source 源程序
+     * @return 编译得到的程序,有词法或语法错误时isValid返回false
+     */
+    public static CMMProgram compile(String source) {
+        CMMLexer cmmLexer = new CMMLexer();
+        cmmLexer.setSourceText(source);
+        cmmLexer.execute(source);
+        List<Token> tokens = Collections.unmodifiableList(new ArrayList<>(cmmLexer.getTokens()));
+        CMMParser cmmParser = new CMMParser(cmmLexer.getTokens());
+        TreeNode root = cmmParser.execute();
+        if (cmmLexer.getErrorNum() != 0 || cmmParser.getErrorNum() != 0 || root == null) {
+            String lexerError = cmmLexer.getErrorInfo();
+            String parserError = cmmParser.getErrorInfo();
+            StringBuilder info = new StringBuilder();
+            info.append("词法分析共").append(cmmLexer.getErrorNum()).append("个错误：").append("\n");
+            if (lexerError != null && !lexerError.equals("")) {
+                info.append(lexerError);
+            }
+            info.append("\n").append("语法分析共").append(cmmParser.getErrorNum()).append("个错误：").append("\n");
+            if (parserError != null && !parserError.equals("")) {
+                info.append(parserError);
+            }
+            return new CMMProgram(source, tokens, null, cmmLexer.getErrorNum() + cmmParser.getErrorNum(),
+                    info.toString(), cmmLexer);
+        }
+        // 常量折叠和死代码删除
+        new CMMOptimizer(root).execute();
+        // 数据流分析,标记可以省略的运行时检查
+        new CMMDataFlowAnalysis(root).execute();
+        // 循环不变式外提和归纳变量强度削减,依赖数据流分析的标记
+        new CMMLoopOptimizer(root).execute();
+        // 依赖分析,标记可以并行执行的for循环
+        new CMMDependenceAnalysis(root).execute();
+        // 之后语法树只被读取
+        root.freeze();
+        return new CMMProgram(source, tokens, root, 0, "", cmmLexer);
+    }
+
+    /**
+     * 功能介绍：在当前线程中执行程序,不限制资源
+     * @return 没有错误时返回true
+     */
+    public boolean run(InputSource input, OutputSink output, DiagnosticSink diagnostics) {
+        return run(input, output, diagnostics, new ResourceGovernor());
+    }
+
+    /**
+     * 功能介绍：在当前线程中执行程序
+     * @param input read语句的输入
+     * @param output write语句的输出
+     * @param diagnostics 错误信息,有词法或语法错误时只输出这些错误
+     * @param governor 本次执行的资源限制
+     * @return 没有错误时返回true
+     */
+    public boolean run(InputSource input, OutputSink output, DiagnosticSink diagnostics, ResourceGovernor governor) {
+        if (root == null) {
+            diagnostics.report(errorInfo);
+            return false;
+        }
+        CMMSemanticAnalysis interpreter = createInterpreter(input, output, diagnostics);
+        interpreter.setGovernor(governor);
+        interpreter.run();
+        return interpreter.getErrorNum() == 0;
+    }
+
+    /**
+     * 功能介绍：创建一次执行用的解释器,可以用start、run或resume执行
+     * @return 有词法或语法错误时返回null
+     */
+    public CMMSemanticAnalysis createInterpreter(InputSource input, OutputSink output, DiagnosticSink diagnostics) {
+        return root == null ? null : new CMMSemanticAnalysis(root, input, output, diagnostics);
+    }
+
+    public boolean isValid() {
+        return root != null;
+    }
+
+    /**
+     * 功能介绍：程序是否读取输入;不读取输入的程序每次执行的输出都相同,可以缓存执行结果
+     */
+    public boolean readsInput() {
+        return readsInput;
+    }
+
+    /**
+     * 功能介绍：源程序的SHA-256,与编译结果缓存的键相同
+     */
+    public String getHash() {
+        String hash = this.hash;
+        if (hash == null) {
+            hash = CompilationCache.hash(source);
+            this.hash = hash;
+        }
+        return hash;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    TreeNode getRoot() {
+        return root;
+    }
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    public int getErrorNum() {
+        return errorNum;
+    }
+
+    public String getErrorInfo() {
+        return errorInfo;
+    }
+
+    public int getLexerErrorNum() {
+        return lexerErrorNum;
+    }
+
+    public String getLexerErrorInfo() {
+        return lexerErrorInfo;
+    }
+}
@@ -0,0 +1,255 @@
+package compiler;
+
+import structure.Token;
+import structure.TreeNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 编译结果的磁盘缓存：把没有错误的程序的token和优化后的语法树以二进制格式保存在缓存目录中,
+ * 文件名是源程序的SHA-256,再次执行未修改的程序时用内存映射读入,不再做词法分析、语法分析、优化和分析;
+ * 缓存文件总大小超过上限时按最后访问时间淘汰最久未使用的文件
+ *
+ * 文件格式(大端)：魔数CMMC、版本号、源程序的SHA-256(32字节)、字符串表、token、前序排列的语法树结点;
+ * 字符串用字符串表的下标表示,-1表示null;每个结点依次为类型、内容、行号、标记和孩子个数
+ */
+public class CMMProgramStore {
+    private static final int MAGIC = 0x434D4D43;        // "CMMC"
+    private static final int VERSION = 2;               // 格式或优化改变时加1,旧的缓存文件自动失效
+    private static final String SUFFIX = ".cmmc";       // 缓存文件的扩展名
+    private static final int PROVEN_INITIALIZED = 1;    // 结点标记的各位
+    private static final int PROVEN_IN_BOUNDS = 2;
+    private static final int PARALLELIZABLE = 4;
+
+    private Path directory;                             // 缓存目录
+    private long maxBytes;                              // 缓存文件的总大小上限
+
+    /**
+     * @param directory 缓存目录,不存在时创建
+     * @param maxBytes 缓存文件的总大小上限
+     */
+    public CMMProgramStore(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * 功能介绍：读入源程序的编译结果,并把缓存文件标记为最近使用
+     * @param source 源程序
+     * @return 缓存中没有、版本不同或文件损坏时返回null
+     */
+    public CMMProgram load(String source) {
+        String hash = CompilationCache.hash(source);
+        Path file = directory.resolve(hash + SUFFIX);
+        if (!Files.isRegularFile(file))
+            return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                return null;
+            byte[] digest = new byte[32];
+            buffer.get(digest);
+            if (!CompilationCache.toHex(digest).equals(hash))
+                return null;
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int tokenNum = buffer.getInt();
+            ArrayList<Token> tokens = new ArrayList<>(tokenNum);
+            for (int i = 0; i < tokenNum; i++) {
+                int line = buffer.getInt();
+                int column = buffer.getInt();
+                String kind = string(strings, buffer.getInt());
+                Token token = new Token(line, column, kind, string(strings, buffer.getInt()));
+                token.setIdKind(string(strings, buffer.getInt()));
+                tokens.add(token);
+            }
+            TreeNode root = readNode(buffer, strings);
+            root.freeze();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return CMMProgram.restore(source, Collections.unmodifiableList(tokens), root);
+        } catch (IOException | RuntimeException e) {
+            // 文件损坏或被同时删除,按未命中处理
+            return null;
+        }
+    }
+
+    /**
+     * 功能介绍：保存没有错误的程序的编译结果,之后淘汰超出总大小上限的最久未使用的文件
+     * @param program 编译得到的程序
+     */
+    public void save(CMMProgram program) {
+        if (!program.isValid())
+            return;
+        String hash = CompilationCache.hash(program.getSource());
+        Path file = directory.resolve(hash + SUFFIX);
+        try {
+            byte[] bytes = encode(program);
+            // 先写临时文件再改名,其他进程不会读到写了一半的文件
+            Path temp = Files.createTempFile(directory, hash, ".tmp");
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            evict(directory, SUFFIX, maxBytes);
+        } catch (IOException e) {
+            // 缓存写入失败不影响执行
+        }
+    }
+
+    /**
+     * 功能介绍：把程序编码为缓存文件的内容
+     */
+    private static byte[] encode(CMMProgram program) throws IOException {
+        HashMap<String, Integer> indexes = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeInt(program.getTokens().size());
+        for (Token token : program.getTokens()) {
+            out.writeInt(token.getLine());
+            out.writeInt(token.getCulomn());
+            out.writeInt(intern(token.getKind(), indexes, strings));
+            out.writeInt(intern(token.getContent(), indexes, strings));
+            out.writeInt(intern(token.getIdKind(), indexes, strings));
+        }
+        writeNode(program.getRoot(), out, indexes, strings);
+        out.flush();
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(body.size() + 64);
+        DataOutputStream header = new DataOutputStream(file);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.write(CompilationCache.digest(program.getSource()));
+        header.writeInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            header.writeInt(bytes.length);
+            header.write(bytes);
+        }
+        header.flush();
+        body.writeTo(file);
+        return file.toByteArray();
+    }
+
+    /**
+     * 功能介绍：前序写出语法树
+     */
+    private static void writeNode(TreeNode node, DataOutputStream out, HashMap<String, Integer> indexes,
+                                  ArrayList<String> strings) throws IOException {
+        out.writeInt(intern(node.getNodeKind(), indexes, strings));
+        out.writeInt(intern(node.getContent(), indexes, strings));
+        out.writeInt(node.getLineNum());
+        out.writeByte((node.isProvenInitialized() ? PROVEN_INITIALIZED : 0)
+                | (node.isProvenInBounds() ? PROVEN_IN_BOUNDS : 0)
+                | (node.isParallelizable() ? PARALLELIZABLE : 0));
+        out.writeInt(node.getChildCount());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            writeNode(node.getChildAt(i), out, indexes, strings);
+        }
+    }
+
+    /**
+     * 功能介绍：按前序读入语法树
+     */
+    private static TreeNode readNode(ByteBuffer buffer, String[] strings) {
+        String kind = string(strings, buffer.getInt());
+        TreeNode node = new TreeNode(kind, string(strings, buffer.getInt()), buffer.getInt());
+        int flags = buffer.get();
+        node.setProvenInitialized((flags & PROVEN_INITIALIZED) != 0);
+        node.setProvenInBounds((flags & PROVEN_IN_BOUNDS) != 0);
+        node.setParallelizable((flags & PARALLELIZABLE) != 0);
+        int childCount = buffer.getInt();
+        for (int i = 0; i < childCount; i++) {
+            node.add(readNode(buffer, strings));
+        }
+        return node;
+    }
+
+    /**
+     * 功能介绍：取得字符串在字符串表中的下标,不在表中时加入
+     */
+    private static int intern(String string, HashMap<String, Integer> indexes, ArrayList<String> strings) {
+        if (string == null)
+            return -1;
+        Integer index = indexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * 功能介绍：缓存文件总大小超过上限时,按最后访问时间从旧到新删除
+     * @param directory 缓存目录
+     * @param suffix 缓存文件的扩展名,只统计和删除这些文件
+     * @param maxBytes 总大小上限
+     */
+    static void evict(Path directory, String suffix, long maxBytes) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(suffix)).collect(Collectors.toList());
+        }
+        HashMap<Path, Long> times = new HashMap<>();
+        long total = 0;
+        for (Path file : files) {
+            try {
+                times.put(file, Files.getLastModifiedTime(file).toMillis());
+                total += Files.size(file);
+            } catch (IOException e) {
+                // 已被其他进程删除
+                times.put(file, Long.MIN_VALUE);
+            }
+        }
+        files.sort(Comparator.comparing(times::get));
+        for (Path file : files) {
+            if (total <= maxBytes)
+                break;
+            try {
+                long size = Files.size(file);
+                Files.delete(file);
+                total -= size;
+            } catch (IOException e) {
+                // 已被其他进程删除
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,263 @@
+package compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 提前编译得到的程序使用的运行时：read/write的输入输出、未初始化变量和数组下标的检查以及与解释器相同的浮点数运算;
+ * 只依赖JDK,与编译得到的类一起打包,运行时不需要词法分析、语法分析和解释器。
+ * 与解释器不同,遇到第一个语义错误时输出错误信息并结束程序
+ */
+public final class CMMRuntime {
+    /** 未初始化的int变量和数组元素的值,不可能是int值 */
+    public static final long UNSET = Long.MIN_VALUE;
+    /** 解释器按字符串保存int值,"-0"输出时仍为-0;低32位为0,转换为int时就是0 */
+    public static final long NEG_ZERO = 1L << 32;
+    /** 不是常量表达式的true和false,用作循环条件时javac不会认为之后的语句不可达 */
+    public static boolean TRUE = true;
+    public static boolean FALSE = false;
+
+    private static final PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+    private static final PrintStream err = new PrintStream(System.err, true, StandardCharsets.UTF_8);
+    private static BufferedReader in;                   // 标准输入,第一次read时创建
+
+    private CMMRuntime() {
+    }
+
+    /**
+     * 功能介绍：执行编译得到的程序,有语义错误时以与解释器相同的格式输出并以状态1退出
+     * @param program 程序的主体
+     */
+    public static void execute(Runnable program) {
+        int status = 0;
+        try {
+            program.run();
+        } catch (Abort e) {
+            out.flush();
+            err.print("该程序中共有1个语义错误！\n" + "错误    ： " + "第 " + e.line + " 行：" + e.getMessage() + "\n");
+            status = 1;
+        }
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * 功能介绍：报告语义错误并结束程序
+     */
+    public static RuntimeException error(String message, int line) {
+        throw new Abort(message, line);
+    }
+
+    public static void write(String line) {
+        out.println(line);
+    }
+
+    /**
+     * 功能介绍：读取一行输入,读取前送出已有的输出
+     * @return 输入已结束时返回null
+     */
+    public static String read() {
+        out.flush();
+        try {
+            if (in == null)
+                in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            return in.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 功能介绍：输入错误,与StreamDiagnosticSink的格式相同,程序继续执行
+     */
+    public static void inputError(String message) {
+        out.flush();
+        err.println("输入错误：" + message);
+    }
+
+    /* 以下read方法返回变量的新值,输入不合法时返回原值 */
+
+    public static long readInt(long old, String name) {
+        String value = read();
+        if (value == null) {
+            inputError("没有可以赋值给变量" + name + "的输入");
+        } else if (isInteger(value)) {
+            return value.equals("-0") ? NEG_ZERO : Integer.parseInt(value);
+        } else {
+            inputError("不能将\"" + value + "\"赋值给变量" + name);
+        }
+        return old;
+    }
+
+    public static String readReal(String old, String name) {
+        String value = read();
+        if (value == null) {
+            inputError("没有可以赋值给变量" + name + "的输入");
+        } else if (isReal(value)) {
+            return value;
+        } else if (isInteger(value)) {
+            return String.valueOf(Double.parseDouble(value));
+        } else {
+            inputError("不能将\"" + value + "\"赋值给变量" + name);
+        }
+        return old;
+    }
+
+    public static String readBool(String old, String name) {
+        String value = read();
+        if (value == null) {
+            inputError("没有可以赋值给变量" + name + "的输入");
+        } else if (value.equals("true") || value.equals("false")) {
+            return value;
+        } else {
+            inputError("不能将\"" + value + "\"赋值给变量" + name);
+        }
+        return old;
+    }
+
+    public static String readString(String old, String name) {
+        String value = read();
+        if (value == null) {
+            inputError("没有可以赋值给变量" + name + "的输入");
+            return old;
+        }
+        return value;
+    }
+
+    /* 以下为变量和数组的检查 */
+
+    public static long getLong(long value, String name, int line) {
+        if (value == UNSET)
+            throw error("变量" + name + "在使用前未初始化", line);
+        return value;
+    }
+
+    public static String get(String value, String name, int line) {
+        if (value == null)
+            throw error("变量" + name + "在使用前未初始化", line);
+        return value;
+    }
+
+    public static long getLong(long[] array, int index, String name, int line) {
+        if (array[index] == UNSET)
+            throw error("变量" + name + "@" + index + "在使用前未初始化", line);
+        return array[index];
+    }
+
+    public static String get(String[] array, int index, String name, int line) {
+        if (array[index] == null)
+            throw error("变量" + name + "@" + index + "在使用前未初始化", line);
+        return array[index];
+    }
+
+    public static int index(int index, int size, int line) {
+        if (index < 0)
+            throw error("数组下标不能为负数", line);
+        if (index >= size)
+            throw error("数组下标越界", line);
+        return index;
+    }
+
+    public static long[] newInts(int size, int line) {
+        if (size < 1)
+            throw error("数组大小必须大于零", line);
+        long[] array = new long[size];
+        Arrays.fill(array, UNSET);
+        return array;
+    }
+
+    public static String[] newStrings(int size, int line) {
+        if (size < 1)
+            throw error("数组大小必须大于零", line);
+        return new String[size];
+    }
+
+    /* 以下为运算 */
+
+    public static int div(int value1, int value2, int line) {
+        if (value2 == 0)
+            throw error("除数不能为0", line);
+        return value1 / value2;
+    }
+
+    /**
+     * 功能介绍：浮点数运算,与CMMSemanticAnalysis.calculate按浮点数计算的部分相同
+     * @return 计算结果的字符串形式
+     */
+    public static String calculate(char operator, double value1, double value2, int line) {
+        BigDecimal bd1 = new BigDecimal(value1);
+        BigDecimal bd2 = new BigDecimal(value2);
+        switch (operator) {
+            case '+':
+                return String.valueOf(bd1.add(bd2).floatValue());
+            case '-':
+                return String.valueOf(bd1.subtract(bd2).floatValue());
+            case '*':
+                return String.valueOf(bd1.multiply(bd2).floatValue());
+            default:
+                if (bd2.equals(BigDecimal.valueOf(0)))
+                    throw error("除数不能为0", line);
+                return String.valueOf(bd1.divide(bd2, 3, RoundingMode.HALF_UP).floatValue());
+        }
+    }
+
+    public static double toDouble(String real) {
+        return Double.parseDouble(real);
+    }
+
+    /**
+     * 功能介绍：int变量的字符串形式
+     */
+    public static String toText(long value) {
+        return value == NEG_ZERO ? "-0" : String.valueOf((int) value);
+    }
+
+    /**
+     * 功能介绍：int值赋给real变量时的字符串形式
+     */
+    public static String toReal(long value) {
+        return value == NEG_ZERO ? "-0.0" : String.valueOf((double) (int) value);
+    }
+
+    /**
+     * 功能介绍：浮点数运算的结果赋给real变量,与解释器相同,结果不是整数或小数的形式时不赋值
+     * @param result 运算结果
+     * @param old 变量原来的值
+     * @return 变量的新值
+     */
+    public static String assignReal(String result, String old) {
+        if (isReal(result))
+            return result;
+        if (isInteger(result))
+            return String.valueOf(Double.parseDouble(result));
+        return old;
+    }
+
+    public static boolean isInteger(String input) {
+        return input.matches("^-?\\d+$") && !input.matches("^-?0{1,}\\d+$");
+    }
+
+    public static boolean isReal(String input) {
+        return input.matches("^(-?\\d+)(\\.\\d+)+$") && !input.matches("^(-?0{2,}+)(\\.\\d+)+$");
+    }
+
+    /**
+     * 语义错误,结束程序的执行
+     */
+    private static class Abort extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int line;                     // 出错的行号
+
+        Abort(String message, int line) {
+            super(message, null, false, false);
+            this.line = line;
+        }
+    }
+}
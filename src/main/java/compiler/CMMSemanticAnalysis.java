@@ -1,15 +1,31 @@
 package compiler;
 
-import GUI.CompilerGUI;
 import structure.ConstVar;
+import structure.OffHeapArena;
+import structure.OffHeapArray;
+import structure.OffHeapElement;
 import structure.SymbolTable;
 import structure.SymbolTableElement;
 import structure.TreeNode;
 
-import javax.swing.*;
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class CMMSemanticAnalysis extends Thread {
+    private static final int PARALLEL_THRESHOLD = 1024;     //迭代次数不少于该值时并行执行可并行的for循环
+
+    private static final int MIN_CHUNK_SIZE = 64;           //并行执行时每个任务最少的迭代次数
+
+    private static final int VECTOR_THRESHOLD = 16;         //迭代次数不少于该值时批量执行数组循环
+
+    private static final int OFF_HEAP_THRESHOLD = 1 << 16;  //int和real数组的大小不少于该值时存放在堆外
+
+    private static final long INPUT_POLL_MILLIS = 100;  //等待输入时检查是否已取消的间隔(毫秒)
+
     private SymbolTable table = new SymbolTable();      //语义分析时的符号表
 
     private TreeNode root;                              //语法分析得到的抽象语法树的根节点
@@ -20,10 +36,31 @@ public class CMMSemanticAnalysis extends Thread {
 
     private int level = 0;                              //语义分析标识符作用域，进入大括号+1，退出-1
 
-    private String userInput;                           //用户输入
+    private OffHeapArena arena = new OffHeapArena();    //本次执行中大数组的堆外存储
+
+    private InputSource input;                          //read语句的输入
+
+    private OutputSink output;                          //write语句的输出
+
+    private DiagnosticSink diagnostics;                 //错误信息
+
+    private ResourceGovernor governor = new ResourceGovernor();     //资源限制,默认不限制
 
-    public CMMSemanticAnalysis(TreeNode root) {
+    private ArrayDeque<Frame> frames;                   //可恢复执行时尚未完成的语句块和循环,为null时尚未开始可恢复执行
+
+    private boolean waiting;                            //可恢复执行时是否停在read语句处等待输入
+
+    private boolean inputProvided;                      //可恢复执行时read语句的输入是否已提供
+
+    private String pendingInput;                        //可恢复执行时提供给read语句的输入,null表示输入已结束
+
+    private long waitStart;                             //可恢复执行时开始等待输入的时间(System.nanoTime)
+
+    public CMMSemanticAnalysis(TreeNode root, InputSource input, OutputSink output, DiagnosticSink diagnostics) {
         this.root = root;
+        this.input = input;
+        this.output = output;
+        this.diagnostics = diagnostics;
     }
 
     private void error(String error, int line) {
@@ -51,31 +88,43 @@ public class CMMSemanticAnalysis extends Thread {
     }
 
     /**
-     * 功能介绍：设置用户输入
-     * @param userInput 输入的内容
+     * 功能介绍：设置资源限制,在start或run之前调用
+     * @param governor 资源限制
+     */
+    public void setGovernor(ResourceGovernor governor) {
+        this.governor = governor;
+    }
+
+    /**
+     * 功能介绍：中断执行线程的同时取消执行,并行执行循环的工作线程也会在下一次检查时结束
      */
-    public synchronized void setUserInput(String userInput) {
-        //当需要进行设置用户输入的时候，唤醒该进程
-        this.userInput = userInput;
-        notify();
+    @Override
+    public void interrupt() {
+        governor.cancel();
+        super.interrupt();
     }
 
     /**
-     * 功能介绍：读取用户输入（先挂起，userInput不为空的时候唤醒）
-     * @return 返回用户输入内容的字符串形式
+     * 功能介绍：读取一行输入,等待输入的时间不计入执行时间,等待时每INPUT_POLL_MILLIS毫秒检查一次是否已取消
+     * @param lineNum read语句的行号
+     * @return 返回用户输入内容的字符串形式,输入已结束时返回null
      */
-    private synchronized String readInput() {
-        String result;
+    private String readInput(int lineNum) {
+        // 等待输入前送出已有的输出
+        output.flush();
+        if (frames != null) {
+            inputProvided = false;
+            return pendingInput;
+        }
+        long start = System.nanoTime();
         try {
-            while (userInput == null) {
-                wait();
+            while (!input.await(INPUT_POLL_MILLIS)) {
+                governor.checkCancelled(lineNum);
             }
-        } catch (InterruptedException ie) {
-            ie.printStackTrace();
+            return input.read();
+        } finally {
+            governor.pause(System.nanoTime() - start);
         }
-        result = userInput;
-        userInput = null;
-        return result;
     }
 
     /**
@@ -83,21 +132,235 @@ public class CMMSemanticAnalysis extends Thread {
      */
     public void run() {
         table.removeAll();
-        statement(root);
+        governor.start();
+        try {
+            statement(root);
+        } catch (ExecutionLimitException e) {
+            // 超出资源限制或被取消,结束执行
+            error("执行已终止：" + e.getMessage(), e.getLineNum());
+        } finally {
+            arena.close();
+            output.flush();
+        }
         if (errorNum != 0) {
-            CompilerGUI.getErrorArea().append("该程序中共有" + errorNum + "个语义错误！\n");
-            CompilerGUI.getErrorArea().append(errorInfo);
+            diagnostics.report("该程序中共有" + errorNum + "个语义错误！\n" + errorInfo);
         }
     }
 
+    /**
+     * 功能介绍：可恢复执行,与run不同,遇到read语句时不阻塞线程,而是保存执行位置并返回,
+     * 执行位置(语句块中的下一条语句、循环和作用域)保存在frames中,可以在任意线程中调用resume继续执行,
+     * 但同一时刻只能有一个线程调用
+     * @param line 上一次返回false时等待的read语句的输入,为null时按输入已结束处理;第一次调用时忽略
+     * @return 执行结束时返回true,停在read语句处等待输入时返回false
+     */
+    public synchronized boolean resume(String line) {
+        if (frames == null) {
+            frames = new ArrayDeque<>();
+            frames.push(new Frame(Frame.BLOCK, root, 0));
+            table.removeAll();
+            governor.start();
+        } else if (waiting) {
+            // 等待输入的时间不计入执行时间
+            governor.pause(System.nanoTime() - waitStart);
+            waiting = false;
+            inputProvided = true;
+            pendingInput = line;
+        } else if (frames.isEmpty()) {
+            return true;
+        }
+        try {
+            if (!execute()) {
+                waiting = true;
+                waitStart = System.nanoTime();
+                output.flush();
+                return false;
+            }
+        } catch (ExecutionLimitException e) {
+            // 超出资源限制或被取消,结束执行
+            error("执行已终止：" + e.getMessage(), e.getLineNum());
+            frames.clear();
+        }
+        arena.close();
+        output.flush();
+        if (errorNum != 0) {
+            diagnostics.report("该程序中共有" + errorNum + "个语义错误！\n" + errorInfo);
+        }
+        return true;
+    }
+
+    public synchronized boolean isWaitingForInput() {
+        return waiting;
+    }
+
+    public synchronized boolean isFinished() {
+        return frames != null && frames.isEmpty();
+    }
+
+    /**
+     * 功能介绍：按frames执行语句,作用域和循环的处理与statement、forFor、forIf、forWhile相同
+     * @return 执行结束时返回true,遇到没有输入的read语句时返回false,该语句尚未执行
+     */
+    private boolean execute() {
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            switch (frame.kind) {
+                case Frame.BLOCK:
+                    if (frame.index == frame.node.getChildCount()) {
+                        frames.pop();
+                        break;
+                    }
+                    TreeNode currentNode = frame.node.getChildAt(frame.index);
+                    if (currentNode.getContent().equals(ConstVar.READ) && !inputProvided)
+                        return false;
+                    frame.index++;
+                    if (!isTempStatement(currentNode))
+                        governor.step(currentNode.getLineNum());
+                    executeStatement(currentNode);
+                    break;
+                case Frame.SCOPE:
+                    frames.pop();
+                    level--;
+                    table.release(frame.mark);
+                    break;
+                default:
+                    TreeNode loop = frame.node;
+                    boolean isFor = loop.getContent().equals(ConstVar.FOR);
+                    if (frame.started) {
+                        table.release(frame.iterationMark);
+                        // for循环执行一次后改变循环条件中的变量
+                        if (isFor)
+                            forAssign(loop.getChildAt(2).getChildAt(0));
+                    }
+                    frame.started = true;
+                    if (forCondition(loop.getChildAt(isFor ? 1 : 0).getChildAt(0))) {
+                        governor.step(loop.getLineNum());
+                        frames.push(new Frame(Frame.BLOCK, loop.getChildAt(isFor ? 3 : 1), 0));
+                    } else {
+                        frames.pop();
+                        level--;
+                        table.release(frame.mark);
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：可恢复执行时执行一条语句,if、for和while只进入作用域并压入frames
+     */
+    private void executeStatement(TreeNode currentNode) {
+        int mark;
+        switch (currentNode.getContent()) {
+            case ConstVar.INT:
+            case ConstVar.REAL:
+            case ConstVar.BOOL:
+            case ConstVar.STRING:
+                forDeclare(currentNode);
+                break;
+            case ConstVar.ASSIGN:
+                forAssign(currentNode);
+                break;
+            case ConstVar.READ:
+                forRead(currentNode.getChildAt(0));
+                break;
+            case ConstVar.WRITE:
+                forWrite(currentNode.getChildAt(0));
+                break;
+            case ConstVar.FOR:
+                mark = table.mark();
+                level++;
+                forAssign(currentNode.getChildAt(0).getChildAt(0));
+                // 批量执行和并行执行的循环体中没有read语句,直接执行完
+                if (forVector(currentNode) || currentNode.isParallelizable() && forParallel(currentNode)) {
+                    level--;
+                    table.release(mark);
+                } else {
+                    frames.push(new Frame(Frame.LOOP, currentNode, mark));
+                }
+                break;
+            case ConstVar.WHILE:
+                mark = table.mark();
+                level++;
+                if (forVector(currentNode)) {
+                    level--;
+                    table.release(mark);
+                } else {
+                    frames.push(new Frame(Frame.LOOP, currentNode, mark));
+                }
+                break;
+            case ConstVar.IF:
+                mark = table.mark();
+                level++;
+                if (forCondition(currentNode.getChildAt(0).getChildAt(0))) {
+                    frames.push(new Frame(Frame.SCOPE, currentNode, mark));
+                    frames.push(new Frame(Frame.BLOCK, currentNode.getChildAt(1), 0));
+                } else if (currentNode.getChildCount() == 3) {
+                    // else语句再进入一层作用域
+                    frames.push(new Frame(Frame.SCOPE, currentNode, mark));
+                    frames.push(new Frame(Frame.SCOPE, currentNode, table.mark()));
+                    level++;
+                    frames.push(new Frame(Frame.BLOCK, currentNode.getChildAt(2), 0));
+                } else {
+                    level--;
+                    table.release(mark);
+                }
+                break;
+        }
+    }
+
+    /**
+     * 可恢复执行时尚未完成的语句块、作用域或循环
+     */
+    private class Frame {
+        static final int BLOCK = 0;     // 语句块,index为下一条语句
+        static final int SCOPE = 1;     // 作用域,出栈时level减一并截断符号表到mark
+        static final int LOOP = 2;      // for或while循环,出栈时同SCOPE
+
+        int kind;                       // 种类
+        TreeNode node;                  // 语句块结点或循环、if语句结点
+        int index;                      // BLOCK：下一条语句的位置
+        int mark;                       // SCOPE和LOOP：进入作用域时符号表的位置
+        int iterationMark;              // LOOP：每次迭代开始时符号表的位置
+        boolean started;                // LOOP：是否已执行过循环体
+
+        Frame(int kind, TreeNode node, int mark) {
+            this.kind = kind;
+            this.node = node;
+            this.mark = mark;
+            iterationMark = table.mark();
+        }
+    }
+
+    /**
+     * 功能介绍：判断是否为CMMLoopOptimizer生成的临时变量(名字以$开头)
+     */
+    private static boolean isTemp(String name) {
+        return name.startsWith("$");
+    }
+
+    /**
+     * 功能介绍：判断语句是否为临时变量的声明或赋值,这些语句不计入执行步数,
+     * 与临时变量不计入变量个数一起,使资源限制对优化前后的程序相同
+     */
+    private static boolean isTempStatement(TreeNode statement) {
+        String content = statement.getContent();
+        return (content.equals(ConstVar.INT) || content.equals(ConstVar.ASSIGN)) && statement.getChildCount() != 0
+                && isTemp(statement.getChildAt(0).getContent());
+    }
+
     /**
      * 功能介绍：语义分析主方法
      * @param root 根结点
      */
     private void statement(TreeNode root) {
+        int mark;       //进入语句块时符号表的位置
         for (int i = 0; i < root.getChildCount(); i++) {
             TreeNode currentNode = root.getChildAt(i);
             String content = currentNode.getContent();
+            if (!isTempStatement(currentNode))
+                governor.step(currentNode.getLineNum());
             switch (content) {
                 case ConstVar.INT:
                 case ConstVar.REAL:
@@ -109,28 +372,31 @@ public class CMMSemanticAnalysis extends Thread {
                     forAssign(currentNode);
                     break;
                 case ConstVar.FOR:
-                    // 进入for循环语句，改变作用域
+                    // 进入for循环语句，改变作用域并记录符号表的位置
+                    mark = table.mark();
                     level++;
                     forFor(currentNode);
-                    // 退出for循环语句，改变作用域并更新符号表
+                    // 退出for循环语句，改变作用域并截断符号表
                     level--;
-                    table.update(level);       //当level减小时更新符号表,去除无用的元素
+                    table.release(mark);       //去除作用域内声明的元素
                     break;
                 case ConstVar.IF:
-                    // 进入if语句，改变作用域
+                    // 进入if语句，改变作用域并记录符号表的位置
+                    mark = table.mark();
                     level++;
                     forIf(currentNode);
-                    // 退出if语句，改变作用域并更新符号表
+                    // 退出if语句，改变作用域并截断符号表
                     level--;
-                    table.update(level);
+                    table.release(mark);
                     break;
                 case ConstVar.WHILE:
-                    // 进入while语句，改变作用域
+                    // 进入while语句，改变作用域并记录符号表的位置
+                    mark = table.mark();
                     level++;
                     forWhile(currentNode);
-                    // 退出while语句，改变作用域并更新符号表
+                    // 退出while语句，改变作用域并截断符号表
                     level--;
-                    table.update(level);
+                    table.release(mark);
                     break;
                 case ConstVar.READ:
                     forRead(currentNode.getChildAt(0));
@@ -385,6 +651,9 @@ public class CMMSemanticAnalysis extends Thread {
                         }
                         index++;
                     }
+                    // 编译器生成的临时变量不计入变量个数
+                    if (!isTemp(temp.getContent()))
+                        governor.allocate(table.programSize() + arena.getCells(), 1, temp.getLineNum());
                     table.add(element);
                 } else { // 声明数组
                     SymbolTableElement element = new SymbolTableElement(temp.getContent(), content, temp.getLineNum(), level);
@@ -397,8 +666,8 @@ public class CMMSemanticAnalysis extends Thread {
                             return;
                         }
                     } else if (temp.getChildAt(0).getNodeKind().equals("标识符")) {
-                        if (checkID(root, level)) {
-                            SymbolTableElement tempElement = table.getAllLevel(root.getContent(), level);
+                        if (checkID(temp.getChildAt(0), level)) {
+                            SymbolTableElement tempElement = table.getAllLevel(temp.getChildAt(0).getContent(), level);
                             if (tempElement.getKind().equals(ConstVar.INT)) {
                                 int i = Integer.parseInt(tempElement.getIntValue());
                                 if (i < 1) {
@@ -444,8 +713,17 @@ public class CMMSemanticAnalysis extends Thread {
                         return;
                     }
                     element.setArrayElementsNum(Integer.parseInt(sizeValue));
+                    // 数组本身和每个元素各占一个
+                    governor.allocate(table.programSize() + arena.getCells(), element.getArrayElementsNum() + 1L,
+                            temp.getLineNum());
                     table.add(element);
                     index++;
+                    if (element.getArrayElementsNum() >= OFF_HEAP_THRESHOLD
+                            && (content.equals(ConstVar.INT) || content.equals(ConstVar.REAL))) {
+                        // 大数组的元素存放在堆外,不在符号表中逐个创建
+                        element.setOffHeapArray(arena.allocate(content, element.getArrayElementsNum()));
+                        continue;
+                    }
                     for (int j = 0; j < Integer.parseInt(sizeValue); j++) {
                         String s = temp.getContent() + "@" + j;
                         SymbolTableElement ste = new SymbolTableElement(s, content, temp.getLineNum(), level);
@@ -658,17 +936,495 @@ public class CMMSemanticAnalysis extends Thread {
         TreeNode statementNode = root.getChildAt(3);
         // for循环语句初始化
         forAssign(initializationNode.getChildAt(0));
+        // 逐元素运算和归约循环批量执行
+        if (forVector(root))
+            return;
+        // 依赖分析已证明各次迭代互不依赖,迭代次数足够多时并行执行
+        if (root.isParallelizable() && forParallel(root))
+            return;
+        // 每次迭代结束时去除循环体内声明的元素
+        int mark = table.mark();
         // 条件为真
         while (forCondition(conditionNode.getChildAt(0))) {
+            governor.step(root.getLineNum());
             statement(statementNode);
-            level--;
-            table.update(level);
-            level++;
+            table.release(mark);
             // for循环执行一次后改变循环条件中的变量
             forAssign(changeNode.getChildAt(0));
         }
     }
 
+    /**
+     * 功能介绍：批量执行CMMVectorLoop识别出的数组循环,只有确定逐次执行不会出现任何错误
+     * (变量已初始化、下标不越界、类型一致)时才批量执行,否则返回false由调用者逐次执行,保持相同的报错
+     * @param root 语法树中for或while语句结点,for循环的初始化语句已执行
+     * @return 已批量执行时返回true
+     */
+    private boolean forVector(TreeNode root) {
+        CMMVectorLoop loop = CMMVectorLoop.match(root);
+        if (loop == null)
+            return false;
+        SymbolTableElement variable = scalar(loop.variable, ConstVar.INT);
+        String bound = operand(loop.bound, ConstVar.INT);
+        if (variable == null || bound == null)
+            return false;
+        int start = Integer.parseInt(variable.getIntValue());
+        long count = Math.max(0, (long) Integer.parseInt(bound) - start);
+        // 逐次执行时每次迭代计入迭代本身和循环体中的语句,最小值和最大值另外计入每次更新时的赋值语句,
+        // 剩余步数不够时逐次执行,在相同的位置终止
+        long steps = count * (root.getContent().equals(ConstVar.FOR) ? 2 : 3);
+        if (count < VECTOR_THRESHOLD || !governor.hasBudget(steps))
+            return false;
+        SymbolTableElement base = null;
+        SymbolTableElement target = null;
+        String kind;
+        if (loop.pattern == CMMVectorLoop.ELEMENTWISE) {
+            base = table.getAllLevel(loop.target, level);
+            if (base == null || !isRange(base, start, count))
+                return false;
+            kind = base.getKind();
+        } else {
+            target = table.getAllLevel(loop.target, level);
+            if (target == null)
+                return false;
+            kind = target.getKind();
+            target = scalar(loop.target, kind);
+            if (target == null)
+                return false;
+        }
+        boolean done;
+        if (!kind.equals(ConstVar.INT) && !kind.equals(ConstVar.REAL))
+            done = false;
+        else if (loop.pattern == CMMVectorLoop.ELEMENTWISE && loop.operator == null)
+            done = vectorCopy(loop, kind, start, (int) count, steps, root.getLineNum());
+        else if (kind.equals(ConstVar.INT))
+            done = vectorInt(loop, base, target, start, (int) count, steps, root.getLineNum());
+        else
+            done = vectorReal(loop, base, target, start, (int) count, steps, root.getLineNum());
+        if (!done)
+            return false;
+        // 循环结束时循环变量的值
+        String value = String.valueOf(start + count);
+        variable.setIntValue(value);
+        variable.setRealValue(String.valueOf(Double.parseDouble(value)));
+        return true;
+    }
+
+    /**
+     * 功能介绍：批量执行 c[i] = x,复制元素的原始字符串,与forAssign一样int值同时设置浮点值,real值不检查格式
+     * @return 不满足条件时返回false,尚未修改任何值
+     */
+    private boolean vectorCopy(CMMVectorLoop loop, String kind, int start, int count, long steps, int lineNum) {
+        String[] x = values(loop.left, kind, start, count);
+        if (x == null)
+            return false;
+        governor.charge(steps, lineNum);
+        SymbolTableElement[] targets = slice(loop.target, start, count);
+        for (int i = 0; i < count; i++) {
+            if (kind.equals(ConstVar.INT))
+                setNumber(targets[i], x[i], true);
+            else
+                targets[i].setRealValue(x[i]);
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：批量执行int数组的逐元素运算和归约,运算对象只在读入时转换一次,中间结果都是基本类型
+     * @return 不满足条件时返回false,尚未修改任何值
+     */
+    private boolean vectorInt(CMMVectorLoop loop, SymbolTableElement base, SymbolTableElement target, int start,
+                              int count, long steps, int lineNum) {
+        int[] x = intValues(loop.left, start, count);
+        int[] y = loop.right == null ? null : intValues(loop.right, start, count);
+        if (x == null || loop.right != null && y == null)
+            return false;
+        switch (loop.pattern) {
+            case CMMVectorLoop.ELEMENTWISE:
+                governor.charge(steps, lineNum);
+                setInts(base, loop.target, start, CMMVectorLoop.compute(loop.operator, x, y));
+                break;
+            case CMMVectorLoop.SUM:
+                governor.charge(steps, lineNum);
+                setNumber(target, String.valueOf(CMMVectorLoop.sum(Integer.parseInt(target.getIntValue()), x)),
+                        true);
+                break;
+            default:
+                int initial = Integer.parseInt(target.getIntValue());
+                steps += CMMVectorLoop.updates(loop.pattern, initial, x);
+                if (!governor.hasBudget(steps))
+                    return false;
+                governor.charge(steps, lineNum);
+                int index = CMMVectorLoop.extreme(loop.pattern, initial, x);
+                // 与逐次执行一样赋值元素的原始字符串
+                if (index != -1)
+                    setNumber(target, slice(loop.left.getContent(), start + index, 1)[0].getIntValue(), true);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：批量执行real数组的逐元素运算和归约,用double计算,CMMVectorLoop.compute不能保证结果与calculate
+     * 相同时对该元素使用calculate
+     * @return 不满足条件时返回false,尚未修改任何值
+     */
+    private boolean vectorReal(CMMVectorLoop loop, SymbolTableElement base, SymbolTableElement target, int start,
+                               int count, long steps, int lineNum) {
+        double[] x = realValues(loop.left, start, count);
+        double[] y = loop.right == null ? null : realValues(loop.right, start, count);
+        if (x == null || loop.right != null && y == null)
+            return false;
+        switch (loop.pattern) {
+            case CMMVectorLoop.ELEMENTWISE:
+                governor.charge(steps, lineNum);
+                OffHeapArray array = base.getOffHeapArray();
+                SymbolTableElement[] targets = array == null ? slice(loop.target, start, count) : null;
+                for (int i = 0; i < count; i++) {
+                    String value = CMMVectorLoop.compute(loop.operator, x[i], y[i]);
+                    if (value != null) {
+                        if (array != null)
+                            array.setValue(start + i, value);
+                        else
+                            targets[i].setRealValue(value);
+                    } else {
+                        value = calculate(loop.operator, String.valueOf(x[i]), String.valueOf(y[i]), false);
+                        setNumber(array != null ? slice(loop.target, start + i, 1)[0] : targets[i], value, false);
+                    }
+                }
+                break;
+            case CMMVectorLoop.SUM:
+                governor.charge(steps, lineNum);
+                double sum = Double.parseDouble(target.getRealValue());
+                for (double value : x) {
+                    String result = CMMVectorLoop.compute(ConstVar.PLUS, sum, value);
+                    if (result != null) {
+                        target.setRealValue(result);
+                        sum = Double.parseDouble(result);
+                    } else {
+                        setNumber(target, calculate(ConstVar.PLUS, target.getRealValue(), String.valueOf(value),
+                                false), false);
+                        sum = Double.parseDouble(target.getRealValue());
+                    }
+                }
+                break;
+            default:
+                double initial = Double.parseDouble(target.getRealValue());
+                steps += CMMVectorLoop.updates(loop.pattern, initial, x);
+                if (!governor.hasBudget(steps))
+                    return false;
+                governor.charge(steps, lineNum);
+                int index = CMMVectorLoop.extreme(loop.pattern, initial, x);
+                // 与逐次执行一样赋值元素的原始字符串
+                if (index != -1)
+                    target.setRealValue(slice(loop.left.getContent(), start + index, 1)[0].getRealValue());
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：与forAssign相同的规则将计算结果赋给int或real变量,结果格式不正确时不赋值
+     */
+    private static void setNumber(SymbolTableElement element, String value, boolean isInt) {
+        if (isInt) {
+            element.setIntValue(value);
+            element.setRealValue(String.valueOf(Double.parseDouble(value)));
+        } else if (matchInteger(value)) {
+            element.setRealValue(String.valueOf(Double.parseDouble(value)));
+        } else if (matchReal(value)) {
+            element.setRealValue(value);
+        }
+    }
+
+    /**
+     * 功能介绍：把int运算结果写入数组中从start开始的元素,堆外数组直接写入数值
+     */
+    private void setInts(SymbolTableElement base, String name, int start, int[] values) {
+        OffHeapArray array = base.getOffHeapArray();
+        if (array != null) {
+            for (int i = 0; i < values.length; i++)
+                array.setInt(start + i, values[i]);
+            return;
+        }
+        SymbolTableElement[] targets = slice(name, start, values.length);
+        for (int i = 0; i < values.length; i++) {
+            targets[i].setIntValue(String.valueOf(values[i]));
+            targets[i].setRealValue(String.valueOf((double) values[i]));
+        }
+    }
+
+    /**
+     * 功能介绍：取得已初始化的指定类型的普通变量
+     * @return 不满足条件时返回null
+     */
+    private SymbolTableElement scalar(String name, String kind) {
+        SymbolTableElement element = table.getAllLevel(name, level);
+        if (element == null || element.getArrayElementsNum() != 0 || !element.getKind().equals(kind))
+            return null;
+        String value = kind.equals(ConstVar.INT) ? element.getIntValue() : element.getRealValue();
+        return value.equals("") ? null : element;
+    }
+
+    /**
+     * 功能介绍：取得常量或已初始化的普通变量的值
+     * @return 不满足条件时返回null
+     */
+    private String operand(TreeNode node, String kind) {
+        if (node.getNodeKind().equals("整数"))
+            return kind.equals(ConstVar.INT) ? node.getContent() : null;
+        if (node.getNodeKind().equals("实数"))
+            return kind.equals(ConstVar.REAL) ? node.getContent() : null;
+        SymbolTableElement element = scalar(node.getContent(), kind);
+        if (element == null)
+            return null;
+        return kind.equals(ConstVar.INT) ? element.getIntValue() : element.getRealValue();
+    }
+
+    /**
+     * 功能介绍：数组中从start开始的count个元素,数组元素在符号表中紧跟在数组之后
+     * @return 不是数组或下标越界时返回null
+     */
+    private SymbolTableElement[] slice(String name, int start, int count) {
+        SymbolTableElement base = table.getAllLevel(name, level);
+        if (base == null || !isRange(base, start, count))
+            return null;
+        if (base.getOffHeapArray() != null) {
+            SymbolTableElement[] result = new SymbolTableElement[count];
+            for (int j = 0; j < count; j++)
+                result[j] = new OffHeapElement(name + "@" + (start + j), base.getKind(), base.getLineNum(),
+                        base.getLevel(), base.getOffHeapArray(), start + j);
+            return result;
+        }
+        for (SymbolTable t = table; t != null; t = t.getOuter()) {
+            ArrayList<SymbolTableElement> elements = t.getSymbolTable();
+            for (int i = 0; i < elements.size(); i++) {
+                if (elements.get(i) == base) {
+                    SymbolTableElement[] result = new SymbolTableElement[count];
+                    for (int j = 0; j < count; j++)
+                        result[j] = elements.get(i + 1 + start + j);
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 功能介绍：运算对象在每次迭代中的值,数组元素必须已初始化
+     * @return 不满足条件时返回null
+     */
+    private String[] values(TreeNode node, String kind, int start, int count) {
+        String[] result = new String[count];
+        if (node.getChildCount() == 0) {
+            String value = operand(node, kind);
+            if (value == null)
+                return null;
+            Arrays.fill(result, value);
+            return result;
+        }
+        SymbolTableElement[] elements = slice(node.getContent(), start, count);
+        if (elements == null || !table.getAllLevel(node.getContent(), level).getKind().equals(kind))
+            return null;
+        for (int i = 0; i < count; i++) {
+            result[i] = kind.equals(ConstVar.INT) ? elements[i].getIntValue() : elements[i].getRealValue();
+            if (result[i].equals(""))
+                return null;
+        }
+        return result;
+    }
+
+    /**
+     * 功能介绍：int运算对象在每次迭代中的值,堆外数组直接读取数值,数组元素必须已初始化
+     * @return 不满足条件时返回null
+     */
+    private int[] intValues(TreeNode node, int start, int count) {
+        int[] result = new int[count];
+        if (node.getChildCount() == 0) {
+            String value = operand(node, ConstVar.INT);
+            if (value == null)
+                return null;
+            Arrays.fill(result, Integer.parseInt(value));
+            return result;
+        }
+        SymbolTableElement base = table.getAllLevel(node.getContent(), level);
+        if (base == null || !base.getKind().equals(ConstVar.INT) || !isRange(base, start, count))
+            return null;
+        OffHeapArray array = base.getOffHeapArray();
+        if (array != null) {
+            for (int i = 0; i < count; i++) {
+                if (!array.isInitialized(start + i))
+                    return null;
+                result[i] = array.getInt(start + i);
+            }
+            return result;
+        }
+        SymbolTableElement[] elements = slice(node.getContent(), start, count);
+        for (int i = 0; i < count; i++) {
+            String value = elements[i].getIntValue();
+            if (value.equals(""))
+                return null;
+            result[i] = Integer.parseInt(value);
+        }
+        return result;
+    }
+
+    /**
+     * 功能介绍：real运算对象在每次迭代中的值,堆外数组直接读取数值,数组元素必须已初始化
+     * @return 不满足条件时返回null
+     */
+    private double[] realValues(TreeNode node, int start, int count) {
+        double[] result = new double[count];
+        if (node.getChildCount() == 0) {
+            String value = operand(node, ConstVar.REAL);
+            if (value == null)
+                return null;
+            Arrays.fill(result, Double.parseDouble(value));
+            return result;
+        }
+        SymbolTableElement base = table.getAllLevel(node.getContent(), level);
+        if (base == null || !base.getKind().equals(ConstVar.REAL) || !isRange(base, start, count))
+            return null;
+        OffHeapArray array = base.getOffHeapArray();
+        if (array != null) {
+            for (int i = 0; i < count; i++) {
+                if (!array.isInitialized(start + i))
+                    return null;
+                result[i] = array.getDouble(start + i);
+            }
+            return result;
+        }
+        SymbolTableElement[] elements = slice(node.getContent(), start, count);
+        for (int i = 0; i < count; i++) {
+            String value = elements[i].getRealValue();
+            if (value.equals(""))
+                return null;
+            result[i] = Double.parseDouble(value);
+        }
+        return result;
+    }
+
+    /**
+     * 功能介绍：判断数组中从start开始的count个元素是否都存在
+     */
+    private static boolean isRange(SymbolTableElement base, int start, long count) {
+        return base.getArrayElementsNum() != 0 && start >= 0 && start + count <= base.getArrayElementsNum();
+    }
+
+    /**
+     * 功能介绍：并行执行for循环的各次迭代,每个任务按顺序执行一段连续的迭代,
+     * 任务有自己的符号表和循环变量,外层是主线程的符号表,数组元素和其他变量与主线程共享(依赖分析保证不会冲突),
+     * 主线程在所有任务结束前不修改符号表,
+     * 所有任务结束后按迭代顺序合并错误信息,因此报错的顺序与顺序执行相同
+     * @param root 语法树中for语句结点
+     * @return 不满足并行执行的条件时返回false,由调用者顺序执行
+     */
+    private boolean forParallel(TreeNode root) {
+        TreeNode conditionNode = root.getChildAt(1).getChildAt(0);
+        String name = conditionNode.getChildAt(0).getContent();
+        SymbolTableElement variable = table.getAllLevel(name, level);
+        if (variable == null || !variable.getKind().equals(ConstVar.INT) || variable.getArrayElementsNum() != 0
+                || variable.getIntValue().equals(""))
+            return false;
+        // 循环条件 i < n 中的n
+        TreeNode boundNode = conditionNode.getChildAt(1);
+        String bound;
+        if (boundNode.getNodeKind().equals("整数")) {
+            bound = boundNode.getContent();
+        } else {
+            SymbolTableElement temp = table.getAllLevel(boundNode.getContent(), level);
+            if (temp == null || !temp.getKind().equals(ConstVar.INT) || temp.getArrayElementsNum() != 0
+                    || temp.getIntValue().equals(""))
+                return false;
+            bound = temp.getIntValue();
+        }
+        long start = Integer.parseInt(variable.getIntValue());
+        long step = Integer.parseInt(root.getChildAt(2).getChildAt(0).getChildAt(1).getChildAt(1).getContent());
+        long end = Integer.parseInt(bound);
+        long count = start < end ? (end - start + step - 1) / step : 0;
+        // 循环变量溢出时顺序执行
+        if (count < PARALLEL_THRESHOLD || start + count * step > Integer.MAX_VALUE)
+            return false;
+        int chunkSize = (int) Math.max(MIN_CHUNK_SIZE,
+                (count + ForkJoinPool.getCommonPoolParallelism() * 4L - 1) / (ForkJoinPool.getCommonPoolParallelism() * 4L));
+        CMMSemanticAnalysis[] workers = new CMMSemanticAnalysis[(int) ((count + chunkSize - 1) / chunkSize)];
+        ForkJoinPool.commonPool().invoke(new IterationTask(this, root, variable, start, step, count, chunkSize,
+                workers, 0, workers.length));
+        for (CMMSemanticAnalysis worker : workers) {
+            errorNum += worker.errorNum;
+            errorInfo += worker.errorInfo;
+        }
+        // 循环结束时循环变量的值
+        String value = String.valueOf(start + count * step);
+        variable.setIntValue(value);
+        variable.setRealValue(String.valueOf(Double.parseDouble(value)));
+        return true;
+    }
+
+    /**
+     * 并行执行for循环的任务,将迭代按段二分,每段由一个新的CMMSemanticAnalysis顺序执行;
+     * 任务只在当前进程中使用,不会被序列化
+     */
+    private static class IterationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private transient CMMSemanticAnalysis owner;    // 主线程的执行者
+        private transient TreeNode root;                // for语句结点
+        private transient SymbolTableElement variable;  // 主线程中的循环变量
+        private long start;                             // 循环变量初值
+        private long step;                              // 循环变量步长
+        private long count;                             // 迭代次数
+        private int chunkSize;                          // 每段的迭代次数
+        private transient CMMSemanticAnalysis[] workers;    // 每段对应的执行者
+        private int from;                               // 第一段的编号
+        private int to;                                 // 最后一段的编号+1
+
+        IterationTask(CMMSemanticAnalysis owner, TreeNode root, SymbolTableElement variable, long start, long step,
+                      long count, int chunkSize, CMMSemanticAnalysis[] workers, int from, int to) {
+            this.owner = owner;
+            this.root = root;
+            this.variable = variable;
+            this.start = start;
+            this.step = step;
+            this.count = count;
+            this.chunkSize = chunkSize;
+            this.workers = workers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) / 2;
+                invokeAll(new IterationTask(owner, root, variable, start, step, count, chunkSize, workers, from,
+                                middle),
+                        new IterationTask(owner, root, variable, start, step, count, chunkSize, workers, middle, to));
+                return;
+            }
+            CMMSemanticAnalysis worker = new CMMSemanticAnalysis(root, owner.input, owner.output, owner.diagnostics);
+            worker.governor = owner.governor;
+            worker.level = owner.level;
+            // 任务的符号表中只有自己的循环变量,查找时先于主线程符号表中的循环变量找到,其余元素从外层查找
+            SymbolTableElement counter = new SymbolTableElement(variable.getName(), ConstVar.INT,
+                    variable.getLineNum(), variable.getLevel());
+            worker.table = new SymbolTable(owner.table);
+            worker.table.add(counter);
+            TreeNode statementNode = root.getChildAt(3);
+            long last = Math.min(count, (long) (from + 1) * chunkSize);
+            int mark = worker.table.mark();
+            for (long k = (long) from * chunkSize; k < last; k++) {
+                String value = String.valueOf(start + k * step);
+                counter.setIntValue(value);
+                counter.setRealValue(String.valueOf(Double.parseDouble(value)));
+                worker.governor.step(root.getLineNum());
+                worker.statement(statementNode);
+                worker.table.release(mark);
+            }
+            workers[from] = worker;
+        }
+    }
+
     /**
      * 功能介绍：分析if语句
      * @param root 语法树中if语句结点
@@ -684,10 +1440,11 @@ public class CMMSemanticAnalysis extends Thread {
             statement(statementNode);
         } else if (count == 3) { // 条件为假且有else语句
             TreeNode elseNode = root.getChildAt(2);
+            int mark = table.mark();
             level++;
             statement(elseNode);
             level--;
-            table.update(level);
+            table.release(mark);
         }  // 条件为假同时没有else语句
 
     }
@@ -701,11 +1458,15 @@ public class CMMSemanticAnalysis extends Thread {
         TreeNode conditionNode = root.getChildAt(0);
         // 根结点Statements
         TreeNode statementNode = root.getChildAt(1);
+        // 逐元素运算和归约循环批量执行
+        if (forVector(root))
+            return;
+        // 每次迭代结束时去除循环体内声明的元素
+        int mark = table.mark();
         while (forCondition(conditionNode.getChildAt(0))) {
+            governor.step(root.getLineNum());
             statement(statementNode);
-            level--;
-            table.update(level);
-            level++;
+            table.release(mark);
         }
     }
 
@@ -728,7 +1489,12 @@ public class CMMSemanticAnalysis extends Thread {
                     return;
                 }
             }
-            String value = readInput();
+            String value = readInput(root.getLineNum());
+            if (value == null) { // 输入已结束或等待输入时被取消
+                governor.check(root.getLineNum());
+                diagnostics.inputError("没有可以赋值给变量" + idName + "的输入");
+                return;
+            }
             switch (element.getKind()) {
                 case ConstVar.INT:
                     if (matchInteger(value)) {
@@ -736,7 +1502,7 @@ public class CMMSemanticAnalysis extends Thread {
                         table.getAllLevel(idName, level).setRealValue(String.valueOf(Double.parseDouble(value)));
                     } else { // 报错
                         String error = "不能将\"" + value + "\"赋值给变量" + idName;
-                        JOptionPane.showMessageDialog(new JPanel(), error, "输入错误",JOptionPane.ERROR_MESSAGE);
+                        diagnostics.inputError(error);
                     }
                     break;
                 case ConstVar.REAL:
@@ -746,7 +1512,7 @@ public class CMMSemanticAnalysis extends Thread {
                         table.getAllLevel(idName, level).setRealValue(String.valueOf(Double.parseDouble(value)));
                     } else { // 报错
                         String error = "不能将\"" + value + "\"赋值给变量" + idName;
-                        JOptionPane.showMessageDialog(new JPanel(), error, "输入错误",JOptionPane.ERROR_MESSAGE);
+                        diagnostics.inputError(error);
                     }
                     break;
                 case ConstVar.BOOL:
@@ -759,7 +1525,7 @@ public class CMMSemanticAnalysis extends Thread {
                             break;
                         default:  // 报错
                             String error = "不能将\"" + value + "\"赋值给变量" + idName;
-                            JOptionPane.showMessageDialog(new JPanel(), error, "输入错误",JOptionPane.ERROR_MESSAGE);
+                            diagnostics.inputError(error);
                             break;
                     }
                     break;
@@ -783,9 +1549,9 @@ public class CMMSemanticAnalysis extends Thread {
         // 结点的类型
         String kind = root.getNodeKind();
         if (kind.equals("整数") || kind.equals("实数")) { // 常量
-            CompilerGUI.getResultArea().setText(CompilerGUI.getResultArea().getText() + content + "\n");
+            output.write(content);
         } else if (kind.equals("字符串")) { // 字符串
-            CompilerGUI.getResultArea().setText(CompilerGUI.getResultArea().getText() + content + "\n");
+            output.write(content);
         } else if (kind.equals("标识符")) { // 标识符
             if (checkID(root, level)) {
                 if (root.getChildCount() != 0) {
@@ -799,13 +1565,13 @@ public class CMMSemanticAnalysis extends Thread {
                 SymbolTableElement temp = table.getAllLevel(content, level);
                 switch (temp.getKind()) {
                     case ConstVar.INT:
-                        CompilerGUI.getResultArea().setText(CompilerGUI.getResultArea().getText() + temp.getIntValue() + "\n");
+                        output.write(temp.getIntValue());
                         break;
                     case ConstVar.REAL:
-                        CompilerGUI.getResultArea().setText(CompilerGUI.getResultArea().getText() + temp.getRealValue() + "\n");
+                        output.write(temp.getRealValue());
                         break;
                     default:
-                        CompilerGUI.getResultArea().setText(CompilerGUI.getResultArea().getText() + temp.getStringValue() + "\n");
+                        output.write(temp.getStringValue());
                         break;
                 }
             }
@@ -815,7 +1581,7 @@ public class CMMSemanticAnalysis extends Thread {
                 || content.equals(ConstVar.DIVIDE)) { // 表达式,先计算出结果再将结果输出
             String value = forExpression(root);
             if (value != null) {
-                CompilerGUI.getResultArea().setText(CompilerGUI.getResultArea().getText() + value + "\n");
+                output.write(value);
             }
         }
     }
@@ -893,32 +1659,35 @@ public class CMMSemanticAnalysis extends Thread {
                 }
             }
             if (!results[0].equals("") && !results[1].equals("")) {
-                double element1 = Double.parseDouble(results[0]);
-                double element2 = Double.parseDouble(results[1]);
-                switch (content) {
-                    case ConstVar.GT:  // >
-                        if (element1 > element2)
-                            return true;
-                        break;
-                    case ConstVar.LT:  // <
-                        if (element1 < element2)
-                            return true;
-                        break;
-                    case ConstVar.EQUAL:  // ==
-                        if (element1 == element2)
-                            return true;
-                        break;
-                    default:  // <>
-                        if (element1 != element2)
-                            return true;
-                        break;
-                }
+                return compare(content, results[0], results[1]);
             }
         }
         // 语义分析出错或者分析条件结果为假返回false
         return false;
     }
 
+    /**
+     * 功能介绍：比较两个数值,CMMOptimizer常量折叠时共用
+     * @param operator 比较运算符 > < == <>
+     * @param value1   第一个比较对象
+     * @param value2   第二个比较对象
+     * @return 返回比较结果
+     */
+    static boolean compare(String operator, String value1, String value2) {
+        double element1 = Double.parseDouble(value1);
+        double element2 = Double.parseDouble(value2);
+        switch (operator) {
+            case ConstVar.GT:  // >
+                return element1 > element2;
+            case ConstVar.LT:  // <
+                return element1 < element2;
+            case ConstVar.EQUAL:  // ==
+                return element1 == element2;
+            default:  // <>
+                return element1 != element2;
+        }
+    }
+
     /**
      * 功能介绍：分析表达式并计算
      * @param root 根结点
@@ -949,7 +1718,7 @@ public class CMMSemanticAnalysis extends Thread {
                         else
                             return null;
                     }
-                    SymbolTableElement temp = table.getAllLevel(tempNode.getContent(), level);
+                    SymbolTableElement temp = table.getAllLevel(tempContent, level);
                     if (temp.getKind().equals(ConstVar.INT)) {
                         results[i] = temp.getIntValue();
                     } else if (temp.getKind().equals(ConstVar.REAL)) {
@@ -972,10 +1741,27 @@ public class CMMSemanticAnalysis extends Thread {
                     return null;
             }
         }
+        String result = calculate(content, results[0], results[1], isInt);
+        if (result == null) {
+            String error = "除数不能为0";
+            error(error, root.getLineNum());
+        }
+        return result;
+    }
+
+    /**
+     * 功能介绍：按照整数或浮点数语义计算两个运算对象的结果,CMMOptimizer常量折叠时共用
+     * @param operator 运算符 + - * /
+     * @param value1   第一个运算对象
+     * @param value2   第二个运算对象
+     * @param isInt    是否按整数计算
+     * @return 返回计算结果,除数为0时返回null
+     */
+    static String calculate(String operator, String value1, String value2, boolean isInt) {
         if (isInt) {
-            int e1 = Integer.parseInt(results[0]);
-            int e2 = Integer.parseInt(results[1]);
-            switch (content) {
+            int e1 = Integer.parseInt(value1);
+            int e2 = Integer.parseInt(value2);
+            switch (operator) {
                 case ConstVar.PLUS:
                     return String.valueOf(e1 + e2);
                 case ConstVar.MINUS:
@@ -984,19 +1770,17 @@ public class CMMSemanticAnalysis extends Thread {
                     return String.valueOf(e1 * e2);
                 default:
                     if (e2 == 0) {
-                        String error = "除数不能为0";
-                        error(error, root.getLineNum());
                         return null;
                     } else {
                         return String.valueOf(e1 / e2);
                     }
             }
         } else {
-            double e1 = Double.parseDouble(results[0]);
-            double e2 = Double.parseDouble(results[1]);
+            double e1 = Double.parseDouble(value1);
+            double e2 = Double.parseDouble(value2);
             BigDecimal bd1 = new BigDecimal(e1);
             BigDecimal bd2 = new BigDecimal(e2);
-            switch (content) {
+            switch (operator) {
                 case ConstVar.PLUS:
                     return String.valueOf(bd1.add(bd2).floatValue());
                 case ConstVar.MINUS:
@@ -1005,8 +1789,6 @@ public class CMMSemanticAnalysis extends Thread {
                     return String.valueOf(bd1.multiply(bd2).floatValue());
                 default:
                     if(bd2.equals(BigDecimal.valueOf(0))){
-                        String error = "除数不能为0";
-                        error(error, root.getLineNum());
                         return null;
                     }
                     return String.valueOf(bd1.divide(bd2, 3,BigDecimal.ROUND_HALF_UP).floatValue());
@@ -1022,6 +1804,10 @@ public class CMMSemanticAnalysis extends Thread {
      */
     private String forArray(TreeNode root, int arraySize) {
         if (root.getNodeKind().equals("整数")) {
+            // 数据流分析已证明下标不越界,无需再次检查
+            if (root.isProvenInBounds()) {
+                return root.getContent();
+            }
             int i = Integer.parseInt(root.getContent());
             if (i > -1 && i < arraySize) {
                 return root.getContent();
@@ -1039,6 +1825,9 @@ public class CMMSemanticAnalysis extends Thread {
             if (checkID(root, level)) {
                 SymbolTableElement temp = table.getAllLevel(root.getContent(),level);
                 if (temp.getKind().equals(ConstVar.INT)) {
+                    if (root.isProvenInBounds()) {
+                        return temp.getIntValue();
+                    }
                     int i = Integer.parseInt(temp.getIntValue());
                     if (i > -1 && i < arraySize) {
                         return temp.getIntValue();
@@ -1065,6 +1854,9 @@ public class CMMSemanticAnalysis extends Thread {
                 || root.getContent().equals(ConstVar.DIVIDE)) { // 表达式
             String result = forExpression(root);
             if (result != null) {
+                if (root.isProvenInBounds()) {
+                    return result;
+                }
                 if (matchInteger(result)) {
                     int i = Integer.parseInt(result);
                     if (i > -1 && i < arraySize) {
@@ -1099,6 +1891,10 @@ public class CMMSemanticAnalysis extends Thread {
      * @return 如果声明且初始化则返回true, 否则返回false
      */
     private boolean checkID(TreeNode root, int level) {
+        // 数据流分析已证明标识符已声明且已初始化,无需再次检查
+        if (root.isProvenInitialized()) {
+            return true;
+        }
         // 标识符名字
         String idName = root.getContent();
         // 标识符未声明
@@ -0,0 +1,283 @@
+package compiler;
+
+import structure.ConstVar;
+import structure.TreeNode;
+
+/**
+ * 数组循环的模式识别和批量计算,识别步长为1、条件为 i < n 的for/while循环,循环体为以下之一：
+ * 逐元素运算 c[i] = x op y (x、y为 a[i]、变量或常量,op为 + - *),
+ * 求和 s = s + a[i],最小值 if (a[i] < m) { m = a[i]; },最大值 if (a[i] > m) { m = a[i]; };
+ * int数组的计算在基本类型数组上用简单的计数循环完成,可以被JIT自动向量化,
+ * real数组的运算用double计算,只在结果可能与BigDecimal不同时才退回CMMSemanticAnalysis.calculate
+ */
+class CMMVectorLoop {
+    static final int ELEMENTWISE = 0;                   // 逐元素运算
+    static final int SUM = 1;                           // 求和
+    static final int MIN = 2;                           // 最小值
+    static final int MAX = 3;                           // 最大值
+
+    int pattern;                                        // 循环的模式
+    String variable;                                    // 循环变量
+    TreeNode bound;                                     // 循环条件 i < n 中的n
+    String target;                                      // 被赋值的数组或归约变量
+    String operator;                                    // 逐元素运算的运算符,只有一个运算对象时为null
+    TreeNode left;                                      // 逐元素运算的第一个运算对象,归约时为 a[i]
+    TreeNode right;                                     // 逐元素运算的第二个运算对象
+
+    private CMMVectorLoop() {
+    }
+
+    /**
+     * 功能介绍：识别for/while循环
+     * @param root for或while语句结点
+     * @return 不符合任何模式时返回null
+     */
+    static CMMVectorLoop match(TreeNode root) {
+        TreeNode condition;
+        TreeNode body;
+        TreeNode change;
+        int size;
+        if (root.getContent().equals(ConstVar.FOR)) {
+            condition = root.getChildAt(1).getChildAt(0);
+            change = root.getChildAt(2).getChildAt(0);
+            body = root.getChildAt(3);
+            size = body.getChildCount();
+        } else {
+            condition = root.getChildAt(0).getChildAt(0);
+            body = root.getChildAt(1);
+            if (body.getChildCount() == 0)
+                return null;
+            change = body.getChildAt(body.getChildCount() - 1);
+            size = body.getChildCount() - 1;
+        }
+        if (size != 1 || !condition.getContent().equals(ConstVar.LT) || condition.getChildCount() != 2
+                || !isScalar(condition.getChildAt(0)))
+            return null;
+        CMMVectorLoop loop = new CMMVectorLoop();
+        loop.variable = condition.getChildAt(0).getContent();
+        loop.bound = condition.getChildAt(1);
+        if (!(loop.bound.getNodeKind().equals("整数") || isScalar(loop.bound))
+                || loop.bound.getContent().equals(loop.variable) || !isIncrement(change, loop.variable))
+            return null;
+        TreeNode statement = body.getChildAt(0);
+        if (statement.getContent().equals(ConstVar.ASSIGN) && statement.getChildCount() == 2)
+            return loop.matchAssign(statement) ? loop : null;
+        if (statement.getContent().equals(ConstVar.IF) && statement.getChildCount() == 2)
+            return loop.matchExtreme(statement) ? loop : null;
+        return null;
+    }
+
+    /**
+     * 功能介绍：识别逐元素运算和求和
+     */
+    private boolean matchAssign(TreeNode statement) {
+        TreeNode idNode = statement.getChildAt(0);
+        TreeNode value = statement.getChildAt(1);
+        target = idNode.getContent();
+        if (isElement(idNode, variable)) {
+            pattern = ELEMENTWISE;
+            if (isOperand(value)) {
+                left = value;
+                return true;
+            }
+            if (!value.getContent().equals(ConstVar.PLUS) && !value.getContent().equals(ConstVar.MINUS)
+                    && !value.getContent().equals(ConstVar.TIMES) || value.getChildCount() != 2)
+                return false;
+            operator = value.getContent();
+            left = value.getChildAt(0);
+            right = value.getChildAt(1);
+            return isOperand(left) && isOperand(right);
+        }
+        // s = s + a[i] 或 s = a[i] + s
+        if (!isScalar(idNode) || target.equals(variable) || target.equals(bound.getContent())
+                || !value.getContent().equals(ConstVar.PLUS) || value.getChildCount() != 2)
+            return false;
+        pattern = SUM;
+        if (isSame(value.getChildAt(0), target) && isElement(value.getChildAt(1), variable)) {
+            left = value.getChildAt(1);
+            return true;
+        }
+        if (isSame(value.getChildAt(1), target) && isElement(value.getChildAt(0), variable)) {
+            left = value.getChildAt(0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 功能介绍：识别 if (a[i] < m) { m = a[i]; } 和 if (a[i] > m) { m = a[i]; }
+     */
+    private boolean matchExtreme(TreeNode statement) {
+        TreeNode condition = statement.getChildAt(0).getChildAt(0);
+        TreeNode body = statement.getChildAt(1);
+        if (body.getChildCount() != 1 || condition.getChildCount() != 2)
+            return false;
+        TreeNode assign = body.getChildAt(0);
+        if (!assign.getContent().equals(ConstVar.ASSIGN) || assign.getChildCount() != 2
+                || !isScalar(assign.getChildAt(0)))
+            return false;
+        target = assign.getChildAt(0).getContent();
+        left = condition.getChildAt(0);
+        if (target.equals(variable) || target.equals(bound.getContent()) || !isElement(left, variable)
+                || !isSame(condition.getChildAt(1), target) || !isElement(assign.getChildAt(1), variable)
+                || !assign.getChildAt(1).getContent().equals(left.getContent()))
+            return false;
+        if (condition.getContent().equals(ConstVar.LT))
+            pattern = MIN;
+        else if (condition.getContent().equals(ConstVar.GT))
+            pattern = MAX;
+        else
+            return false;
+        return true;
+    }
+
+    /**
+     * 功能介绍：逐元素运算的运算对象只能是 a[i]、变量或常量,变量不能是被赋值的数组
+     */
+    private boolean isOperand(TreeNode node) {
+        if (node.getNodeKind().equals("整数") || node.getNodeKind().equals("实数"))
+            return true;
+        if (isScalar(node))
+            return !node.getContent().equals(target) && !node.getContent().equals(variable);
+        return isElement(node, variable);
+    }
+
+    private static boolean isIncrement(TreeNode change, String variable) {
+        if (!change.getContent().equals(ConstVar.ASSIGN) || change.getChildCount() != 2
+                || !isSame(change.getChildAt(0), variable))
+            return false;
+        TreeNode value = change.getChildAt(1);
+        return value.getContent().equals(ConstVar.PLUS) && value.getChildCount() == 2
+                && isSame(value.getChildAt(0), variable) && value.getChildAt(1).getNodeKind().equals("整数")
+                && value.getChildAt(1).getContent().equals("1");
+    }
+
+    private static boolean isElement(TreeNode node, String variable) {
+        return node.getNodeKind().equals("标识符") && node.getChildCount() == 1
+                && isSame(node.getChildAt(0), variable) && !node.getContent().equals(variable);
+    }
+
+    private static boolean isScalar(TreeNode node) {
+        return node.getNodeKind().equals("标识符") && node.getChildCount() == 0;
+    }
+
+    private static boolean isSame(TreeNode node, String name) {
+        return isScalar(node) && node.getContent().equals(name);
+    }
+
+    /**
+     * 功能介绍：int数组的逐元素运算,结果按int溢出规则计算,与CMMSemanticAnalysis.calculate一致
+     */
+    static int[] compute(String operator, int[] x, int[] y) {
+        int[] result = new int[x.length];
+        switch (operator) {
+            case ConstVar.PLUS:
+                for (int i = 0; i < x.length; i++)
+                    result[i] = x[i] + y[i];
+                break;
+            case ConstVar.MINUS:
+                for (int i = 0; i < x.length; i++)
+                    result[i] = x[i] - y[i];
+                break;
+            default:
+                for (int i = 0; i < x.length; i++)
+                    result[i] = x[i] * y[i];
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * 功能介绍：real值的二元运算(+ - *),结果与CMMSemanticAnalysis.calculate一致,即精确结果舍入为float:
+     * double结果与精确结果相差不到半个double的ulp,不恰好落在两个相邻float的中点时舍入为相同的float;
+     * 结果为0(BigDecimal没有-0)、超出float范围或输出为科学计数法(赋值时不被接受)时返回null
+     * @return 结果的字符串形式,返回null时由调用者使用calculate
+     */
+    static String compute(String operator, double x, double y) {
+        double exact;
+        switch (operator) {
+            case ConstVar.PLUS:
+                exact = x + y;
+                break;
+            case ConstVar.MINUS:
+                exact = x - y;
+                break;
+            default:
+                exact = x * y;
+                break;
+        }
+        float result = (float) exact;
+        // Float.toString只在1e-3 <= |result| < 1e7时不使用科学计数法
+        float magnitude = Math.abs(result);
+        if (!(magnitude >= 1e-3f && magnitude < 1e7f))
+            return null;
+        if (result != exact) {
+            float neighbour = exact > result ? Math.nextUp(result) : Math.nextDown(result);
+            if (((double) result + neighbour) / 2 == exact)
+                return null;
+        }
+        return String.valueOf(result);
+    }
+
+    static int sum(int initial, int[] x) {
+        int result = initial;
+        for (int value : x)
+            result += value;
+        return result;
+    }
+
+    /**
+     * 功能介绍：最小值(最大值)第一次出现的位置,只有严格小于(大于)当前值时才更新
+     * @return 没有更新时返回-1
+     */
+    static int extreme(int pattern, int initial, int[] x) {
+        int index = -1;
+        int current = initial;
+        for (int i = 0; i < x.length; i++) {
+            if (pattern == MIN ? x[i] < current : x[i] > current) {
+                current = x[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    static int extreme(int pattern, double initial, double[] x) {
+        int index = -1;
+        double current = initial;
+        for (int i = 0; i < x.length; i++) {
+            if (pattern == MIN ? x[i] < current : x[i] > current) {
+                current = x[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 功能介绍：逐次执行时最小值(最大值)被更新的次数,即if语句中赋值语句执行的次数
+     */
+    static int updates(int pattern, int initial, int[] x) {
+        int count = 0;
+        int current = initial;
+        for (int value : x) {
+            if (pattern == MIN ? value < current : value > current) {
+                current = value;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static int updates(int pattern, double initial, double[] x) {
+        int count = 0;
+        double current = initial;
+        for (double value : x) {
+            if (pattern == MIN ? value < current : value > current) {
+                current = value;
+                count++;
+            }
+        }
+        return count;
+    }
+}
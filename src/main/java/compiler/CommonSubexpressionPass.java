@@ -0,0 +1,162 @@
+package compiler;
+
+import structure.BasicBlock;
+import structure.IRInstruction;
+import structure.IRProgram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 公共子表达式删除：沿支配树遍历,被支配的相同运算直接使用支配者的结果,
+ * 数组的load只在基本块内删除,遇到对同一数组的store或array时失效
+ */
+public class CommonSubexpressionPass implements IRPass {
+    private HashMap<String, IRInstruction> definitions;     // SSA值对应的定义指令
+
+    private HashMap<BasicBlock, ArrayList<BasicBlock>> children;   // 支配树中的子结点
+
+    private HashMap<String, String> replaced;               // 被删除的值及替换它的值
+
+    @Override
+    public String getName() {
+        return "公共子表达式删除";
+    }
+
+    @Override
+    public int run(IRProgram program) {
+        definitions = new HashMap<>();
+        for (BasicBlock block : program.getBlocks()) {
+            for (IRInstruction instruction : block.getInstructions()) {
+                if (instruction.getResult() != null)
+                    definitions.put(instruction.getResult(), instruction);
+            }
+        }
+        children = dominatorTree(program);
+        replaced = new HashMap<>();
+        walk(program.getEntry(), new HashMap<>());
+        // phi的操作数可能来自回边,最后统一替换
+        program.replaceUses(replaced);
+        return replaced.size();
+    }
+
+    /**
+     * 功能介绍：按支配树先序遍历,available中为支配当前块的指令计算过的表达式
+     */
+    private void walk(BasicBlock block, HashMap<String, String> available) {
+        HashMap<String, String> loads = new HashMap<>();
+        ArrayList<IRInstruction> instructions = block.getInstructions();
+        int i = 0;
+        while (i < instructions.size()) {
+            IRInstruction instruction = instructions.get(i);
+            for (int j = 0; j < instruction.getOperands().size(); j++) {
+                String operand = instruction.getOperand(j);
+                if (replaced.containsKey(operand))
+                    instruction.setOperand(j, replaced.get(operand));
+            }
+            String op = instruction.getOp();
+            if (op.equals(IRInstruction.STORE) || op.equals(IRInstruction.ARRAY)) {
+                String array = instruction.getOperand(0) + " ";
+                loads.keySet().removeIf(key -> key.startsWith(array));
+            }
+            String key = key(instruction);
+            HashMap<String, String> table = op.equals(IRInstruction.LOAD) ? loads : available;
+            if (key != null && table.containsKey(key)) {
+                replaced.put(instruction.getResult(), table.get(key));
+                instructions.remove(i);
+                continue;
+            }
+            if (key != null)
+                table.put(key, instruction.getResult());
+            i++;
+        }
+        for (BasicBlock child : children.get(block)) {
+            walk(child, new HashMap<>(available));
+        }
+    }
+
+    /**
+     * 功能介绍：表达式的键,可交换运算的操作数排序
+     * @return 不能删除的指令返回null
+     */
+    private String key(IRInstruction instruction) {
+        String op = instruction.getOp();
+        if (op.equals(IRInstruction.PHI) || op.equals(IRInstruction.UNDEF))
+            return null;
+        if (op.equals(IRInstruction.LOAD))
+            return instruction.getOperand(0) + " " + instruction.getOperand(1);
+        if (op.equals(IRInstruction.DIV) && !isNonZero(instruction.getOperand(1)))
+            return null;
+        if (!instruction.isPure() && !op.equals(IRInstruction.DIV))
+            return null;
+        ArrayList<String> operands = new ArrayList<>(instruction.getOperands());
+        if (instruction.isCommutative())
+            operands.sort(null);
+        return op + " " + instruction.getType() + " " + instruction.getLiteral() + " " + operands;
+    }
+
+    /**
+     * 功能介绍：判断值是否为非零常量,除数为非零常量的除法不会出错
+     */
+    private boolean isNonZero(String value) {
+        IRInstruction definition = definitions.get(value);
+        if (definition == null || !definition.getOp().equals(IRInstruction.CONST))
+            return false;
+        try {
+            return Double.parseDouble(definition.getLiteral()) != 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 功能介绍：计算支配树(Cooper, Harvey, Kennedy的迭代算法)
+     * @return 每个可达基本块在支配树中的子结点
+     */
+    private static HashMap<BasicBlock, ArrayList<BasicBlock>> dominatorTree(IRProgram program) {
+        ArrayList<BasicBlock> order = program.reversePostOrder();
+        HashMap<BasicBlock, Integer> index = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            index.put(order.get(i), i);
+        }
+        int[] idom = new int[order.size()];
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < order.size(); i++) {
+                int newIdom = -1;
+                for (BasicBlock predecessor : order.get(i).getPredecessors()) {
+                    Integer p = index.get(predecessor);
+                    if (p == null || idom[p] == -1)
+                        continue;
+                    newIdom = newIdom == -1 ? p : intersect(idom, p, newIdom);
+                }
+                if (idom[i] != newIdom) {
+                    idom[i] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        HashMap<BasicBlock, ArrayList<BasicBlock>> children = new HashMap<>();
+        for (BasicBlock block : order) {
+            children.put(block, new ArrayList<>());
+        }
+        for (int i = 1; i < order.size(); i++) {
+            children.get(order.get(idom[i])).add(order.get(i));
+        }
+        return children;
+    }
+
+    private static int intersect(int[] idom, int a, int b) {
+        while (a != b) {
+            while (a > b)
+                a = idom[a];
+            while (b > a)
+                b = idom[b];
+        }
+        return a;
+    }
+}
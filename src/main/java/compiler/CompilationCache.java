@@ -0,0 +1,118 @@
+package compiler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 编译结果的缓存：以源程序的SHA-256为键保存CMMProgram(token、语法树和错误信息),
+ * 源程序不变时不再重新做词法分析和语法分析;CMMProgram创建后不再修改,可以被多个线程共用。
+ * 超过容量时淘汰最久未使用的程序;设置了磁盘缓存时,内存中未命中的程序先从磁盘缓存读入,新编译的程序同时写入磁盘缓存
+ */
+public class CompilationCache {
+    private int capacity;                               // 最多保存的程序个数
+    private LinkedHashMap<String, CMMProgram> programs; // 按访问顺序排列的缓存,最久未使用的在最前
+    private AtomicLong hits = new AtomicLong();         // 命中次数
+    private AtomicLong misses = new AtomicLong();       // 未命中次数
+    private AtomicLong diskHits = new AtomicLong();     // 内存中未命中但磁盘缓存命中的次数
+    private volatile CMMProgramStore store;             // 磁盘缓存,为null时不使用
+
+    public CompilationCache(int capacity) {
+        this.capacity = capacity;
+        programs = new LinkedHashMap<String, CMMProgram>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CMMProgram> eldest) {
+                return size() > CompilationCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * 功能介绍：取出源程序的编译结果,缓存中没有时编译并放入缓存
+     * @param source 源程序
+     * @return 编译得到的程序
+     */
+    public CMMProgram compile(String source) {
+        String key = hash(source);
+        synchronized (this) {
+            CMMProgram program = programs.get(key);
+            // 再比较源程序,避免哈希冲突
+            if (program != null && program.getSource().equals(source)) {
+                hits.incrementAndGet();
+                return program;
+            }
+        }
+        misses.incrementAndGet();
+        // 编译时不加锁,同一源程序同时未命中时各自编译,结果相同
+        CMMProgramStore store = this.store;
+        CMMProgram program = store == null ? null : store.load(source);
+        if (program != null) {
+            diskHits.incrementAndGet();
+        } else {
+            program = CMMProgram.compile(source);
+            if (store != null)
+                store.save(program);
+        }
+        synchronized (this) {
+            programs.put(key, program);
+        }
+        return program;
+    }
+
+    /**
+     * 功能介绍：设置磁盘缓存,可以被多个进程共用
+     * @param store 磁盘缓存,为null时不使用
+     */
+    public void setStore(CMMProgramStore store) {
+        this.store = store;
+    }
+
+    /**
+     * 功能介绍：计算源程序的SHA-256,以十六进制字符串表示
+     */
+    public static String hash(String source) {
+        return toHex(digest(source));
+    }
+
+    /**
+     * 功能介绍：计算源程序按UTF-8编码的SHA-256
+     */
+    static byte[] digest(String source) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    public synchronized void clear() {
+        programs.clear();
+    }
+
+    public synchronized int size() {
+        return programs.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+}
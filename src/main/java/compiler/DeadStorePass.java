@@ -0,0 +1,134 @@
+package compiler;
+
+import structure.BasicBlock;
+import structure.IRInstruction;
+import structure.IRProgram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * 死存储删除：删除结果不被使用且没有副作用的指令(标量的SSA赋值),
+ * 以及被同一基本块中后续store覆盖或所在数组从不被读取的数组store;
+ * 只删除下标为不越界的常量或已被数据流分析证明不越界的store,可能越界的store会报错,不删除
+ */
+public class DeadStorePass implements IRPass {
+    private HashMap<String, IRInstruction> definitions;     // SSA值对应的定义指令
+
+    private HashMap<String, IRInstruction> arrays;          // 数组名对应的array指令
+
+    @Override
+    public String getName() {
+        return "死存储删除";
+    }
+
+    @Override
+    public int run(IRProgram program) {
+        definitions = new HashMap<>();
+        arrays = new HashMap<>();
+        HashSet<String> loaded = new HashSet<>();
+        for (BasicBlock block : program.getBlocks()) {
+            for (IRInstruction instruction : block.getInstructions()) {
+                if (instruction.getResult() != null)
+                    definitions.put(instruction.getResult(), instruction);
+                if (instruction.getOp().equals(IRInstruction.ARRAY))
+                    arrays.put(instruction.getOperand(0), instruction);
+                if (instruction.getOp().equals(IRInstruction.LOAD))
+                    loaded.add(instruction.getOperand(0));
+            }
+        }
+        int num = 0;
+        for (BasicBlock block : program.getBlocks()) {
+            num += removeStores(block, loaded);
+        }
+        return num + removeDefinitions(program);
+    }
+
+    /**
+     * 功能介绍：删除基本块中的死数组store
+     */
+    private int removeStores(BasicBlock block, HashSet<String> loaded) {
+        ArrayList<IRInstruction> instructions = block.getInstructions();
+        ArrayList<IRInstruction> dead = new ArrayList<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            IRInstruction store = instructions.get(i);
+            if (!store.getOp().equals(IRInstruction.STORE) || !isInBounds(store))
+                continue;
+            String array = store.getOperand(0);
+            if (!loaded.contains(array)) {
+                dead.add(store);
+                continue;
+            }
+            for (int j = i + 1; j < instructions.size(); j++) {
+                IRInstruction instruction = instructions.get(j);
+                if (instruction.getOperands().isEmpty() || !instruction.getOperand(0).equals(array))
+                    continue;
+                // 中间读取了该数组,或数组被重新声明
+                if (!instruction.getOp().equals(IRInstruction.STORE))
+                    break;
+                if (instruction.getOperand(1).equals(store.getOperand(1))) {
+                    dead.add(store);
+                    break;
+                }
+            }
+        }
+        instructions.removeAll(dead);
+        return dead.size();
+    }
+
+    /**
+     * 功能介绍：判断store的下标是否一定不越界：已被数据流分析证明,或为常量且小于常量的数组大小
+     */
+    private boolean isInBounds(IRInstruction store) {
+        if (store.isInBounds())
+            return true;
+        IRInstruction array = arrays.get(store.getOperand(0));
+        if (array == null)
+            return false;
+        Integer index = intConstant(store.getOperand(1));
+        Integer size = intConstant(array.getOperand(1));
+        return index != null && size != null && index > -1 && index < size;
+    }
+
+    private Integer intConstant(String value) {
+        IRInstruction definition = definitions.get(value);
+        if (definition == null || !definition.getOp().equals(IRInstruction.CONST))
+            return null;
+        try {
+            return Integer.parseInt(definition.getLiteral());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 功能介绍：反复删除结果不被使用的无副作用指令,直到没有可删除的指令
+     */
+    private static int removeDefinitions(IRProgram program) {
+        int num = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            HashSet<String> used = new HashSet<>();
+            for (BasicBlock block : program.getBlocks()) {
+                for (IRInstruction instruction : block.getInstructions()) {
+                    used.addAll(instruction.getOperands());
+                }
+            }
+            for (BasicBlock block : program.getBlocks()) {
+                ArrayList<IRInstruction> dead = new ArrayList<>();
+                for (IRInstruction instruction : block.getInstructions()) {
+                    if (instruction.isPure() && !used.contains(instruction.getResult()))
+                        dead.add(instruction);
+                }
+                if (!dead.isEmpty()) {
+                    block.getInstructions().removeAll(dead);
+                    num += dead.size();
+                    changed = true;
+                }
+            }
+        }
+        return num;
+    }
+}
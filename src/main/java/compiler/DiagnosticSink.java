@@ -0,0 +1,18 @@
+package compiler;
+
+/**
+ * 错误信息的去向：词法、语法、语义错误的汇总以及read语句的输入错误
+ */
+public interface DiagnosticSink {
+    /**
+     * 功能介绍：输出一段错误信息
+     * @param info 错误信息,可以有多行,以换行符结尾
+     */
+    void report(String info);
+
+    /**
+     * 功能介绍：输入的内容不能赋值给read语句中的变量,程序继续执行
+     * @param message 错误信息
+     */
+    void inputError(String message);
+}
@@ -0,0 +1,19 @@
+package compiler;
+
+/**
+ * 程序执行超出ResourceGovernor的限制或被取消时抛出,由CMMSemanticAnalysis.run捕获并报告
+ */
+public class ExecutionLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private int lineNum;        // 执行终止处的行号
+
+    public ExecutionLimitException(String message, int lineNum) {
+        super(message);
+        this.lineNum = lineNum;
+    }
+
+    public int getLineNum() {
+        return lineNum;
+    }
+}
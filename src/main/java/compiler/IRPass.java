@@ -0,0 +1,20 @@
+package compiler;
+
+import structure.IRProgram;
+
+/**
+ * 中间代码优化遍,由CMMPassManager按顺序执行
+ */
+public interface IRPass {
+    /**
+     * 功能介绍：优化遍的名字,用于输出优化信息
+     */
+    String getName();
+
+    /**
+     * 功能介绍：对中间代码原地优化
+     * @param program 中间代码
+     * @return 修改的次数,为0表示没有修改
+     */
+    int run(IRProgram program);
+}
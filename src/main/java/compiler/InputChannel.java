@@ -0,0 +1,141 @@
+package compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于阻塞队列的输入通道：图形界面、标准输入或输入文件向队列中放入输入行,解释器在read时取出;
+ * 取出时一次把队列中已有的行全部转移到本地缓冲区,连续的read不再逐行与生产者交接
+ */
+public class InputChannel implements InputSource {
+    private static final String END = new String("");      // 输入结束的标记,按引用比较
+    private static final int DRAIN_SIZE = 1024;             // 每次从队列转移到本地缓冲区的最多行数
+
+    private LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();    // 生产者放入的输入行
+    private ArrayDeque<String> local = new ArrayDeque<>();  // 已转移到解释器线程的输入行
+    private boolean finished;                               // 是否已读到输入结束的标记
+
+    /**
+     * 功能介绍：放入一行输入,可以在任意线程中调用
+     * @param line 输入的内容,不含换行符
+     */
+    public void offer(String line) {
+        queue.add(line);
+    }
+
+    /**
+     * 功能介绍：一次放入多行输入
+     * @param lines 输入的内容
+     */
+    public void offerAll(List<String> lines) {
+        queue.addAll(lines);
+    }
+
+    /**
+     * 功能介绍：标记输入结束,之后的read在取完已有的输入后返回null
+     */
+    public void close() {
+        queue.add(END);
+    }
+
+    @Override
+    public boolean await(long timeoutMillis) {
+        if (!local.isEmpty() || finished)
+            return true;
+        try {
+            String line = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (line == null)
+                return false;
+            local.add(line);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        queue.drainTo(local, DRAIN_SIZE);
+        return true;
+    }
+
+    @Override
+    public String read() {
+        if (local.isEmpty()) {
+            if (finished)
+                return null;
+            try {
+                local.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            queue.drainTo(local, DRAIN_SIZE);
+        }
+        String line = local.poll();
+        if (line == END) {
+            finished = true;
+            local.clear();
+            return null;
+        }
+        return line;
+    }
+
+    /**
+     * 功能介绍：由给定的各行组成的输入
+     * @param lines 所有输入
+     * @return 已结束的输入通道
+     */
+    public static InputChannel fromLines(List<String> lines) {
+        InputChannel channel = new InputChannel();
+        channel.offerAll(lines);
+        channel.close();
+        return channel;
+    }
+
+    /**
+     * 功能介绍：一次读入输入文件的所有行
+     * @param file 输入文件,每行是一次read的输入
+     * @return 已结束的输入通道
+     */
+    public static InputChannel fromFile(Path file) throws IOException {
+        return fromLines(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 功能介绍：由后台线程从输入流(如标准输入)预读,流结束时关闭通道
+     * @param in 输入流
+     * @return 输入通道
+     */
+    public static InputChannel fromStream(InputStream in) {
+        InputChannel channel = new InputChannel();
+        Thread reader = new Thread(() -> {
+            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            ArrayList<String> batch = new ArrayList<>();
+            try {
+                String line;
+                while ((line = bufferedReader.readLine()) != null) {
+                    batch.add(line);
+                    // 已到达的行成批放入,交互输入时不等待后面的行
+                    if (!bufferedReader.ready() || batch.size() >= DRAIN_SIZE) {
+                        channel.offerAll(batch);
+                        batch.clear();
+                    }
+                }
+            } catch (IOException e) {
+                // 读取失败按输入结束处理
+            }
+            channel.offerAll(batch);
+            channel.close();
+        }, "cmm-input");
+        reader.setDaemon(true);
+        reader.start();
+        return channel;
+    }
+}
@@ -0,0 +1,22 @@
+package compiler;
+
+/**
+ * read语句的输入来源,每次read读取一行
+ */
+public interface InputSource {
+    /**
+     * 功能介绍：读取一行输入,没有输入时可以阻塞等待
+     * @return 输入的内容,不含换行符;输入已结束时返回null
+     */
+    String read();
+
+    /**
+     * 功能介绍：最多等待给定的时间,直到read不再阻塞(已有输入或输入已结束),解释器在两次等待之间检查是否已取消;
+     * 默认不等待,直接由read读取
+     * @param timeoutMillis 最长等待时间(毫秒)
+     * @return read不再阻塞时返回true,超时或等待时被中断返回false
+     */
+    default boolean await(long timeoutMillis) {
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把错误信息保存在内存中,执行结束后取出
+ */
+public class MemoryDiagnosticSink implements DiagnosticSink {
+    private StringBuilder text = new StringBuilder();           // report输出的错误信息
+    private ArrayList<String> inputErrors = new ArrayList<>();  // 输入错误
+
+    @Override
+    public synchronized void report(String info) {
+        text.append(info);
+    }
+
+    @Override
+    public synchronized void inputError(String message) {
+        inputErrors.add(message);
+    }
+
+    public synchronized String getText() {
+        return text.toString();
+    }
+
+    public synchronized List<String> getInputErrors() {
+        return new ArrayList<>(inputErrors);
+    }
+}
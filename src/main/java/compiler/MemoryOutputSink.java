@@ -0,0 +1,31 @@
+package compiler;
+
+/**
+ * 把输出保存在内存中,执行结束后用getText取出,执行过程中可以用take取出新增的输出
+ */
+public class MemoryOutputSink implements OutputSink {
+    private StringBuilder text = new StringBuilder();       // 所有输出,每行以换行符结尾
+    private int taken;                                      // 已被take取出的长度
+
+    @Override
+    public synchronized void write(String line) {
+        text.append(line).append("\n");
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    public synchronized String getText() {
+        return text.toString();
+    }
+
+    /**
+     * 功能介绍：取出上一次take之后新增的输出
+     */
+    public synchronized String take() {
+        String result = text.substring(taken);
+        taken = text.length();
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package compiler;
+
+/**
+ * 程序输出的去向,write语句每输出一行调用一次write
+ */
+public interface OutputSink {
+    /**
+     * 功能介绍：输出一行,实现可以先缓冲
+     * @param line 要输出的内容,不含换行符
+     */
+    void write(String line);
+
+    /**
+     * 功能介绍：尽快送出所有缓冲的输出,程序等待输入和执行结束时调用
+     */
+    void flush();
+}
@@ -0,0 +1,156 @@
+package compiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 程序执行的资源限制：执行步数(每条语句和每次循环迭代计一步)、执行时间、同时存在的变量和数组元素个数,
+ * 以及取消;限制为0表示不限制。解释器在执行过程中检查,超出时抛出ExecutionLimitException结束执行。
+ * 循环优化生成的临时变量及其声明和赋值语句不计入步数和变量个数,优化前后的程序在相同的位置超出限制。
+ * 时间和取消每CHECK_INTERVAL步检查一次,等待read输入时不计时
+ */
+public class ResourceGovernor {
+    private static final int CHECK_INTERVAL = 1024;     // 检查时间和取消的间隔步数,必须是2的幂
+
+    /* 结束执行的原因 */
+    public static final int NONE = 0;
+    public static final int STEPS = 1;
+    public static final int TIME = 2;
+    public static final int MEMORY = 3;
+    public static final int CANCELLED = 4;
+
+    private long maxSteps;                              // 最多执行步数
+    private long timeoutMillis;                         // 最长执行时间(毫秒)
+    private long maxCells;                              // 同时存在的变量和数组元素的最多个数
+    private AtomicLong steps = new AtomicLong();        // 已执行的步数,并行执行的循环共用
+    private long deadline;                              // 执行截止时间(System.nanoTime),不限制时为0
+    private volatile boolean cancelled;                 // 是否已取消
+    private volatile int exceeded;                      // 结束执行的原因,没有因超出限制或取消而结束时为NONE
+
+    /**
+     * 功能介绍：不限制资源
+     */
+    public ResourceGovernor() {
+    }
+
+    public ResourceGovernor(long maxSteps, long timeoutMillis, long maxCells) {
+        this.maxSteps = maxSteps;
+        this.timeoutMillis = timeoutMillis;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * 功能介绍：开始执行时调用,清空步数、取消标记和结束原因并开始计时,同一个对象可以用于多次执行
+     */
+    public void start() {
+        steps.set(0);
+        cancelled = false;
+        exceeded = NONE;
+        deadline = timeoutMillis > 0 ? Math.max(System.nanoTime() + timeoutMillis * 1000000, 1) : 0;
+    }
+
+    /**
+     * 功能介绍：请求取消执行,解释器在下一次检查时结束
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 功能介绍：执行一步
+     * @param lineNum 当前语句的行号
+     */
+    public void step(int lineNum) {
+        long count = steps.incrementAndGet();
+        if (maxSteps > 0 && count > maxSteps)
+            throw stop(STEPS, "超过执行步数限制" + maxSteps, lineNum);
+        if ((count & (CHECK_INTERVAL - 1)) == 0)
+            check(lineNum);
+    }
+
+    /**
+     * 功能介绍：判断剩余步数是否足够批量执行
+     * @param count 批量执行相当于逐步执行的步数
+     */
+    public boolean hasBudget(long count) {
+        return maxSteps <= 0 || steps.get() + count <= maxSteps;
+    }
+
+    /**
+     * 功能介绍：批量执行时一次计入多步,调用前用hasBudget判断
+     */
+    public void charge(long count, int lineNum) {
+        steps.addAndGet(count);
+        check(lineNum);
+    }
+
+    /**
+     * 功能介绍：检查是否已取消或超时
+     * @param lineNum 当前语句的行号
+     */
+    public void check(int lineNum) {
+        checkCancelled(lineNum);
+        if (deadline != 0 && System.nanoTime() - deadline > 0)
+            throw stop(TIME, "超过执行时间限制" + timeoutMillis + "毫秒", lineNum);
+    }
+
+    /**
+     * 功能介绍：只检查是否已取消,等待输入时调用
+     * @param lineNum 当前语句的行号
+     */
+    public void checkCancelled(int lineNum) {
+        if (cancelled || Thread.currentThread().isInterrupted())
+            throw stop(CANCELLED, "执行被取消", lineNum);
+    }
+
+    /**
+     * 功能介绍：暂停计时,把截止时间推后一段不计入执行时间的时间(如等待输入的时间)
+     * @param nanos 不计入的时间(纳秒)
+     */
+    public void pause(long nanos) {
+        if (deadline != 0)
+            deadline = Math.max(deadline + nanos, 1);
+    }
+
+    /**
+     * 功能介绍：声明变量或数组前检查内存
+     * @param live 已存在的变量和数组元素个数
+     * @param cells 要声明的变量和数组元素个数
+     * @param lineNum 声明语句的行号
+     */
+    public void allocate(long live, long cells, int lineNum) {
+        if (maxCells > 0 && live + cells > maxCells)
+            throw stop(MEMORY, "超过内存限制" + maxCells + "个变量和数组元素", lineNum);
+    }
+
+    /**
+     * 功能介绍：记录结束执行的原因
+     */
+    private ExecutionLimitException stop(int reason, String message, int lineNum) {
+        exceeded = reason;
+        return new ExecutionLimitException(message, lineNum);
+    }
+
+    /**
+     * 功能介绍：执行结束的原因
+     * @return STEPS、TIME、MEMORY或CANCELLED,没有因超出限制或取消而结束时返回NONE
+     */
+    public int getExceeded() {
+        return exceeded;
+    }
+
+    public long getSteps() {
+        return steps.get();
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public long getMaxCells() {
+        return maxCells;
+    }
+}
@@ -0,0 +1,292 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行结果的缓存：没有read语句的程序每次执行的输出和错误信息都相同,第一次执行时记录下来,
+ * 之后直接重放记录的结果而不再执行;键为源程序的SHA-256以及步数和内存限制,
+ * 因超出限制、取消或执行异常而结束的执行不缓存。内存中按输出和错误信息的总字符数淘汰最久未使用的结果,
+ * 设置了缓存目录时结果同时保存在磁盘上,按文件总大小淘汰,之后的进程也可以重放
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x434D4D52;        // "CMMR"
+    private static final int VERSION = 1;               // 文件格式改变时加1
+    private static final String SUFFIX = ".cmmr";       // 缓存文件的扩展名
+
+    private long maxChars;                              // 内存中结果的总字符数上限,也是单个结果的上限
+    private long chars;                                 // 内存中结果的总字符数
+    private LinkedHashMap<String, Result> results = new LinkedHashMap<>(16, 0.75f, true);  // 按访问顺序排列
+    private Path directory;                             // 磁盘缓存目录,为null时只缓存在内存中
+    private long maxBytes;                              // 磁盘缓存文件的总大小上限
+    private volatile boolean bypass;                    // 为true时不重放,总是执行并更新缓存
+    private AtomicLong hits = new AtomicLong();         // 重放次数
+    private AtomicLong misses = new AtomicLong();       // 执行次数
+
+    /**
+     * @param maxChars 内存中结果的总字符数上限
+     */
+    public ResultCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * 功能介绍：把结果同时保存在磁盘上
+     * @param directory 缓存目录,不存在时创建,可以与CMMProgramStore共用
+     * @param maxBytes 结果文件的总大小上限
+     */
+    public void setDirectory(Path directory, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 功能介绍：设置为true时跳过缓存的结果,重新执行并用新的结果替换
+     */
+    public void setBypass(boolean bypass) {
+        this.bypass = bypass;
+    }
+
+    /**
+     * 功能介绍：执行程序或重放缓存的结果;读取输入的程序总是执行
+     * @param program 没有错误的程序
+     * @param input read语句的输入
+     * @param output write语句的输出
+     * @param diagnostics 错误信息
+     * @param governor 本次执行的资源限制
+     * @return 没有错误时返回true
+     */
+    public boolean run(CMMProgram program, InputSource input, OutputSink output, DiagnosticSink diagnostics,
+                       ResourceGovernor governor) {
+        if (program.readsInput())
+            return program.run(input, output, diagnostics, governor);
+        String key = program.getHash() + "-" + governor.getMaxSteps() + "-" + governor.getMaxCells();
+        Result result = bypass ? null : get(key);
+        if (result != null) {
+            hits.incrementAndGet();
+            for (String line : result.lines) {
+                output.write(line);
+            }
+            output.flush();
+            for (String info : result.reports) {
+                diagnostics.report(info);
+            }
+            return result.success;
+        }
+        misses.incrementAndGet();
+        Recorder recorder = new Recorder(output, diagnostics, maxChars);
+        boolean success = program.run(input, recorder, recorder, governor);
+        if (governor.getExceeded() == ResourceGovernor.NONE && !recorder.overflow)
+            put(key, new Result(success, recorder.lines, recorder.reports, recorder.chars));
+        return success;
+    }
+
+    /**
+     * 功能介绍：先在内存中查找,再查找磁盘缓存
+     */
+    private Result get(String key) {
+        synchronized (this) {
+            Result result = results.get(key);
+            if (result != null)
+                return result;
+        }
+        if (directory == null)
+            return null;
+        Path file = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file))
+            return null;
+        try {
+            Result result = decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+            if (result == null)
+                return null;
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                cache(key, result);
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // 文件损坏或被同时删除,按未命中处理
+            return null;
+        }
+    }
+
+    private void put(String key, Result result) {
+        synchronized (this) {
+            cache(key, result);
+        }
+        if (directory == null)
+            return;
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, encode(result));
+            try {
+                Files.move(temp, directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+            CMMProgramStore.evict(directory, SUFFIX, maxBytes);
+        } catch (IOException e) {
+            // 缓存写入失败不影响执行
+        }
+    }
+
+    /**
+     * 功能介绍：放入内存缓存,总字符数超过上限时淘汰最久未使用的结果,调用时持有锁
+     */
+    private void cache(String key, Result result) {
+        Result old = results.put(key, result);
+        if (old != null)
+            chars -= old.chars;
+        chars += result.chars;
+        Iterator<Map.Entry<String, Result>> iterator = results.entrySet().iterator();
+        while (chars > maxChars && iterator.hasNext()) {
+            chars -= iterator.next().getValue().chars;
+            iterator.remove();
+        }
+    }
+
+    private static byte[] encode(Result result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeBoolean(result.success);
+        writeStrings(out, result.lines);
+        writeStrings(out, result.reports);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return 魔数或版本号不同时返回null
+     */
+    private static Result decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            return null;
+        boolean success = buffer.get() != 0;
+        long[] chars = new long[1];
+        List<String> lines = readStrings(buffer, chars);
+        List<String> reports = readStrings(buffer, chars);
+        return new Result(success, lines, reports, chars[0]);
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer, long[] chars) {
+        int count = buffer.getInt();
+        ArrayList<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            chars[0] += string.length();
+            strings.add(string);
+        }
+        return strings;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 一次执行的结果
+     */
+    private static class Result {
+        private final boolean success;              // 执行是否没有错误
+        private final List<String> lines;           // write语句输出的各行
+        private final List<String> reports;         // report输出的错误信息
+        private final long chars;                   // 输出和错误信息的总字符数
+
+        Result(boolean success, List<String> lines, List<String> reports, long chars) {
+            this.success = success;
+            this.lines = Collections.unmodifiableList(lines);
+            this.reports = Collections.unmodifiableList(reports);
+            this.chars = chars;
+        }
+    }
+
+    /**
+     * 转发输出和错误信息并记录下来,超过字符数上限后只转发
+     */
+    private static class Recorder implements OutputSink, DiagnosticSink {
+        private OutputSink output;                  // 实际的输出
+        private DiagnosticSink diagnostics;         // 实际的错误信息
+        private long maxChars;                      // 记录的字符数上限
+        private ArrayList<String> lines = new ArrayList<>();    // 记录的输出
+        private ArrayList<String> reports = new ArrayList<>();  // 记录的错误信息
+        private long chars;                         // 已记录的字符数
+        private boolean overflow;                   // 是否超过了上限
+
+        Recorder(OutputSink output, DiagnosticSink diagnostics, long maxChars) {
+            this.output = output;
+            this.diagnostics = diagnostics;
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public synchronized void write(String line) {
+            output.write(line);
+            if (record(line))
+                lines.add(line);
+        }
+
+        @Override
+        public void flush() {
+            output.flush();
+        }
+
+        @Override
+        public synchronized void report(String info) {
+            diagnostics.report(info);
+            if (record(info))
+                reports.add(info);
+        }
+
+        @Override
+        public void inputError(String message) {
+            // 不读取输入的程序没有输入错误
+            diagnostics.inputError(message);
+        }
+
+        private boolean record(String string) {
+            if (overflow)
+                return false;
+            chars += string.length();
+            if (chars > maxChars) {
+                overflow = true;
+                lines = new ArrayList<>();
+                reports = new ArrayList<>();
+            }
+            return !overflow;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package compiler;
+
+import java.io.PrintStream;
+
+/**
+ * 错误信息输出到打印流(如标准错误)
+ */
+public class StreamDiagnosticSink implements DiagnosticSink {
+    private PrintStream out;        // 错误信息的打印流
+
+    public StreamDiagnosticSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void report(String info) {
+        out.print(info);
+        out.flush();
+    }
+
+    @Override
+    public void inputError(String message) {
+        out.println("输入错误：" + message);
+        out.flush();
+    }
+}
@@ -0,0 +1,85 @@
+package compiler;
+
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 批量执行数组循环的基准测试：int和real数组的逐元素运算、求和和最大值循环分别写成可以批量执行的形式
+ * (i = i + 1)和只能逐次执行的形式(i = 1 + i),不经过优化直接执行,输出每个元素的平均用时和加速比。
+ * 数组只初始化一次,之后各个循环轮流重复执行,每个循环前后各有一条read语句,读取输入时记录时间,
+ * 两次read之间的时间即循环的用时,取各轮的中位数
+ * 用法：VectorLoopBenchmark [数组大小] [轮数]
+ */
+public class VectorLoopBenchmark {
+    /** 被测循环,循环变量为i,数组大小为n */
+    private static final String[][] LOOPS = {
+            {"int逐元素运算", "for (i = 0; i < n; i = i + 1) {\n    c[i] = a[i] * b[i];\n}\n"},
+            {"int求和", "s = 0;\nfor (i = 0; i < n; i = i + 1) {\n    s = s + a[i];\n}\n"},
+            {"int最大值", "m = 0;\nfor (i = 0; i < n; i = i + 1) {\n    if (a[i] > m) {\n        m = a[i];\n"
+                    + "    }\n}\n"},
+            {"real逐元素运算", "for (i = 0; i < n; i = i + 1) {\n    z[i] = x[i] - y[i];\n}\n"},
+            {"real求和", "t = 0.0;\nfor (i = 0; i < n; i = i + 1) {\n    t = t + y[i];\n}\n"},
+            {"real最大值", "r = 0.0;\nfor (i = 0; i < n; i = i + 1) {\n    if (x[i] > r) {\n        r = x[i];\n"
+                    + "    }\n}\n"},
+    };
+
+    public static void main(String[] args) {
+        // 默认大小的数组存放在堆外
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        StringBuilder source = new StringBuilder("int n = " + n + ";\nint a[n];\nint b[n];\nint c[n];\n"
+                + "real x[n];\nreal y[n];\nreal z[n];\nint i;\nint s;\nint m;\nreal t;\nreal r;\nint k;\n"
+                + "for (i = 0; i < n; i = 1 + i) {\n    a[i] = i * 7 - i / 3 * 20;\n    b[i] = 5 - i;\n"
+                + "    x[i] = a[i] / 8.0;\n    y[i] = i / 4096.0;\n}\n");
+        for (int round = 0; round < rounds; round++) {
+            for (String[] loop : LOOPS) {
+                source.append("read(k);\n").append(loop[1]);
+                source.append("read(k);\n").append(loop[1].replace("i = i + 1", "i = 1 + i"));
+            }
+        }
+        source.append("read(k);\n");
+        long[] times = run(source.toString());
+        System.out.printf("数组大小 %d,%d轮,每个元素的平均用时：%n", n, rounds);
+        for (int l = 0; l < LOOPS.length; l++) {
+            long[] vector = new long[rounds];
+            long[] scalar = new long[rounds];
+            for (int round = 0; round < rounds; round++) {
+                int index = (round * LOOPS.length + l) * 2;
+                vector[round] = times[index + 1] - times[index];
+                scalar[round] = times[index + 2] - times[index + 1];
+            }
+            double vectorNanos = median(vector) / (double) n;
+            double scalarNanos = median(scalar) / (double) n;
+            System.out.printf("%-10s 逐次执行 %9.1f ns  批量执行 %7.1f ns  加速比 %7.1f%n", LOOPS[l][0], scalarNanos,
+                    vectorNanos, scalarNanos / vectorNanos);
+        }
+    }
+
+    /**
+     * 功能介绍：不经过优化直接执行,保留循环的原始形式
+     * @return 每次执行read语句的时间(System.nanoTime)
+     */
+    private static long[] run(String source) {
+        CMMLexer cmmLexer = new CMMLexer();
+        cmmLexer.setSourceText(source);
+        cmmLexer.execute(source);
+        TreeNode root = new CMMParser(cmmLexer.getTokens()).execute();
+        root.freeze();
+        ArrayList<Long> times = new ArrayList<>();
+        CMMSemanticAnalysis interpreter = new CMMSemanticAnalysis(root, () -> {
+            times.add(System.nanoTime());
+            return "0";
+        }, new MemoryOutputSink(), new MemoryDiagnosticSink());
+        interpreter.setGovernor(new ResourceGovernor());
+        interpreter.run();
+        return times.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,76 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * 常驻进程的客户端：发送一个请求,把响应中的输出写到标准输出,错误信息写到标准错误,格式与直接执行时相同
+ */
+public class DaemonClient {
+    private Path socketFile;                            // 常驻进程的套接字文件
+
+    public DaemonClient(Path socketFile) {
+        this.socketFile = socketFile;
+    }
+
+    /**
+     * 功能介绍：向常驻进程发送请求并把响应写到打印流
+     * @param request 请求的第一行
+     * @param body 第一行之后的内容,可以为null
+     * @param input RUN请求的输入,逐行发送,可以为null
+     * @param out write的输出
+     * @param err 错误信息
+     * @return 响应的状态
+     * @throws IOException 没有常驻进程在监听或连接中断
+     */
+    public int request(String request, byte[] body, BufferedReader input,
+                       PrintStream out, PrintStream err) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketFile))) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            stream.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            if (body != null)
+                stream.write(body);
+            if (input != null) {
+                String line;
+                while ((line = input.readLine()) != null) {
+                    stream.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            stream.flush();
+            channel.shutdownOutput();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                    StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 2)
+                    continue;
+                String content = line.substring(2);
+                switch (line.charAt(0)) {
+                    case 'O':
+                        out.println(content);
+                        break;
+                    case 'E':
+                        err.println(content);
+                        break;
+                    case 'I':
+                        err.println("输入错误：" + content);
+                        break;
+                    case 'X':
+                        out.flush();
+                        return Integer.parseInt(content);
+                    default:
+                        break;
+                }
+            }
+            throw new IOException("常驻进程没有返回结果");
+        }
+    }
+}
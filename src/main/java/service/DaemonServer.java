@@ -0,0 +1,257 @@
+package service;
+
+import compiler.CMMProgram;
+import compiler.MemoryDiagnosticSink;
+import compiler.MemoryOutputSink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 常驻进程：在Unix域套接字上接受编译和执行请求,所有请求共用同一个已经预热的JVM、编译缓存和ExecutionService,
+ * 每次执行不再付出JVM启动和JIT预热的时间。每个连接一个请求,协议为UTF-8文本,可以用socat等工具直接访问：
+ *
+ * 请求：第一行为"RUN 字节数"、"COMPILE 字节数"、"STATS"或"STOP",RUN和COMPILE之后是给定字节数(最多1MB)的源程序,
+ * RUN的源程序之后每行是一行read输入,直到客户端关闭输出;没有限制执行时间时每次最多执行10秒;
+ * 响应：每行以一个字符和空格开头,"O "为write的输出,"E "为错误信息,"I "为输入错误,
+ * 最后一行"X 状态"结束,状态0表示没有错误,1表示程序有错误,2表示请求不合法
+ */
+public class DaemonServer implements AutoCloseable {
+    private static final int MAX_SOURCE = 1 << 20;      // 源程序的最大字节数
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10000;   // 没有限制执行时间时的最长执行时间
+    private static final long AWAIT_GRACE_MILLIS = 1000;        // 超过执行时间后等待会话结束的最长时间
+    /** 预热时执行的程序,包含声明、数组、循环、分支和实数运算 */
+    private static final String WARM_UP_SOURCE = "int a[8];\nint i;\nreal s = 0.5;\n"
+            + "for (i = 0; i < 8; i = i + 1) {\n    a[i] = i * 2 - 1;\n}\n"
+            + "while (i > 0) {\n    i = i - 1;\n    if (a[i] > 3) {\n        s = s + a[i] / 2.0;\n    }\n}\n"
+            + "write(s);\n";
+
+    private Path socketFile;                            // 套接字文件
+    private ExecutionService service;                   // 执行请求的服务
+    private ServerSocketChannel server;                 // 监听的套接字
+    private ExecutorService handlers = Executors.newCachedThreadPool();    // 处理连接的线程
+    private volatile boolean stopped;                   // 是否已收到STOP或被关闭
+
+    public DaemonServer(Path socketFile, ExecutionService service) {
+        this.socketFile = socketFile;
+        this.service = service;
+    }
+
+    /**
+     * 功能介绍：多次编译并执行预热程序,使词法分析、语法分析、优化和解释器的代码被JIT编译
+     * @param times 执行次数
+     */
+    public void warmUp(int times) {
+        for (int i = 0; i < times; i++) {
+            CMMProgram program = CMMProgram.compile(WARM_UP_SOURCE);
+            program.run(() -> null, new MemoryOutputSink(), new MemoryDiagnosticSink());
+        }
+    }
+
+    /**
+     * 功能介绍：绑定套接字文件;文件已存在但没有进程在监听时删除后重新绑定
+     * @throws IOException 已有常驻进程在监听或不能绑定
+     */
+    public void bind() throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketFile);
+        if (Files.exists(socketFile)) {
+            if (isListening(address))
+                throw new IOException("已有常驻进程在" + socketFile + "上监听");
+            // 上一个常驻进程没有正常结束,留下了套接字文件
+            Files.delete(socketFile);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address);
+    }
+
+    /**
+     * 功能介绍：尝试连接套接字文件,连接成功后立即关闭
+     * @return 有进程在监听时返回true
+     */
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(address);
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 已确认有进程在监听,关闭失败不影响结果
+        }
+        return true;
+    }
+
+    /**
+     * 功能介绍：接受连接直到收到STOP或被关闭,每个连接在单独的线程中处理
+     */
+    public void serve() throws IOException {
+        try {
+            while (!stopped) {
+                SocketChannel channel = server.accept();
+                handlers.execute(() -> handle(channel));
+            }
+        } catch (ClosedChannelException e) {
+            // 被STOP请求或close关闭
+        }
+    }
+
+    /**
+     * 功能介绍：处理一个连接上的请求
+     */
+    private void handle(SocketChannel channel) {
+        try (SocketChannel c = channel) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(c));
+            PrintStream out = new PrintStream(Channels.newOutputStream(c), false, StandardCharsets.UTF_8);
+            String[] request = readLine(in).split(" ");
+            int status;
+            if ((request[0].equals("RUN") || request[0].equals("COMPILE")) && request.length == 2) {
+                int length = parseLength(request[1]);
+                if (length < 0) {
+                    out.print("E 源程序的字节数不合法(应为0到" + MAX_SOURCE + ")：" + request[1] + "\n");
+                    status = 2;
+                } else {
+                    String source = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+                    status = request[0].equals("RUN") ? run(source, in, out) : compile(source, out);
+                }
+            } else if (request[0].equals("STATS") && request.length == 1) {
+                out.print("O 编译缓存：命中" + service.getCache().getHits() + "次,未命中"
+                        + service.getCache().getMisses() + "次,执行中的会话" + service.getActiveSessions() + "个\n");
+                status = 0;
+            } else if (request[0].equals("STOP") && request.length == 1) {
+                status = 0;
+                stopped = true;
+            } else {
+                out.print("E 不能识别的请求：" + String.join(" ", request) + "\n");
+                status = 2;
+            }
+            out.print("X " + status + "\n");
+            out.flush();
+            if (stopped)
+                close();
+        } catch (IOException e) {
+            // 客户端提前断开,只影响这个连接
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 功能介绍：解析请求中源程序的字节数
+     * @return 不是数或超出0到MAX_SOURCE时返回-1
+     */
+    private static int parseLength(String text) {
+        try {
+            int length = Integer.parseInt(text);
+            return length >= 0 && length <= MAX_SOURCE ? length : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 功能介绍：执行程序,把连接上之后的各行作为输入,执行结束后送出输出和错误信息;
+     * 不再等待时(超时、客户端断开或线程被中断)取消会话
+     * @return 响应的状态
+     */
+    private int run(String source, InputStream in, PrintStream out) throws IOException, InterruptedException {
+        long timeoutMillis = service.getTimeoutMillis();
+        if (timeoutMillis == 0)
+            timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        Session session = service.submit(source, service.getMaxSteps(), timeoutMillis, service.getMaxCells());
+        boolean success = false;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                session.offer(line);
+            }
+            session.closeInput();
+            success = session.await(timeoutMillis + AWAIT_GRACE_MILLIS);
+        } catch (TimeoutException e) {
+            // 超过执行时间后没有及时结束
+        } finally {
+            // 没有人等待结果的会话不再继续执行
+            if (!session.isDone())
+                session.cancel();
+        }
+        writeLines(out, "O ", session.getOutput().getText());
+        writeLines(out, "E ", session.getDiagnostics().getText());
+        for (String message : session.getDiagnostics().getInputErrors()) {
+            out.print("I " + message + "\n");
+        }
+        return success ? 0 : 1;
+    }
+
+    /**
+     * 功能介绍：只做词法分析、语法分析和优化,编译结果留在缓存中,之后执行同一程序时不再编译
+     * @return 响应的状态
+     */
+    private int compile(String source, PrintStream out) {
+        CMMProgram program = service.getCache().compile(source);
+        if (program.isValid())
+            return 0;
+        writeLines(out, "E ", program.getErrorInfo());
+        return 1;
+    }
+
+    /**
+     * 功能介绍：把多行文本的每一行加上前缀送出
+     */
+    private static void writeLines(PrintStream out, String prefix, String text) {
+        if (text.isEmpty())
+            return;
+        if (text.endsWith("\n"))
+            text = text.substring(0, text.length() - 1);
+        for (String line : text.split("\n", -1)) {
+            out.print(prefix + line + "\n");
+        }
+    }
+
+    /**
+     * 功能介绍：读取请求的第一行,不预读之后的源程序
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    public Path getSocketFile() {
+        return socketFile;
+    }
+
+    /**
+     * 功能介绍：停止接受连接并删除套接字文件,正在处理的请求继续完成
+     */
+    @Override
+    public void close() throws IOException {
+        stopped = true;
+        handlers.shutdown();
+        if (server != null && server.isOpen()) {
+            server.close();
+            Files.deleteIfExists(socketFile);
+        }
+    }
+}
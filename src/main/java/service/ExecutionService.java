@@ -0,0 +1,146 @@
+package service;
+
+import compiler.CMMExecutor;
+import compiler.CMMProgram;
+import compiler.CompilationCache;
+import compiler.ResourceGovernor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多会话执行服务：会话的解释器可恢复执行,等待read输入时不占用线程,得到输入后再提交到执行器继续执行;
+ * 运行在支持虚拟线程的JDK(21及以上)时每次执行使用一个虚拟线程,
+ * 否则退回到按需创建的平台线程。虚拟线程的API通过反射调用,在更早的JDK上也能编译
+ */
+public class ExecutionService implements AutoCloseable {
+    private ExecutorService executor;                   // 执行会话的线程
+    private boolean virtual;                            // 是否使用虚拟线程
+    private long maxSteps;                              // 每个会话最多执行步数,0表示不限制
+    private long timeoutMillis;                         // 每个会话最长执行时间,0表示不限制
+    private long maxCells;                              // 每个会话最多的变量和数组元素个数,0表示不限制
+    private AtomicLong nextId = new AtomicLong();       // 下一个会话的编号
+    private ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();  // 尚未结束的会话
+    private CompilationCache cache = new CompilationCache(256);     // 相同的源程序只编译一次
+
+    public ExecutionService() {
+        executor = createVirtualExecutor("cmm-session-");
+        virtual = executor != null;
+        if (executor == null)
+            executor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * 功能介绍：通过反射创建每个任务一个虚拟线程的执行器
+     * @param prefix 线程名的前缀,之后为从0开始的编号
+     * @return JDK不支持虚拟线程时返回null
+     */
+    static ExecutorService createVirtualExecutor(String prefix) {
+        try {
+            // 通过公开的Thread.Builder接口调用,避免访问JDK内部的实现类
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method create = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) create.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 功能介绍：设置之后创建的会话的资源限制,0表示不限制
+     */
+    public void setLimits(long maxSteps, long timeoutMillis, long maxCells) {
+        this.maxSteps = maxSteps;
+        this.timeoutMillis = timeoutMillis;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * 功能介绍：创建会话并开始执行程序
+     * @param source 源程序
+     * @return 会话,通过它提供输入、取出输出和等待结果
+     */
+    public Session submit(String source) {
+        return submit(source, maxSteps, timeoutMillis, maxCells);
+    }
+
+    /**
+     * 功能介绍：创建会话并开始执行程序,使用给定的资源限制
+     * @param source 源程序
+     * @param maxSteps 最多执行步数,0表示不限制
+     * @param timeoutMillis 最长执行时间,0表示不限制
+     * @param maxCells 最多的变量和数组元素个数,0表示不限制
+     * @return 会话,通过它提供输入、取出输出和等待结果
+     */
+    public Session submit(String source, long maxSteps, long timeoutMillis, long maxCells) {
+        Session session = new Session(nextId.incrementAndGet(),
+                new ResourceGovernor(maxSteps, timeoutMillis, maxCells), executor);
+        // 可恢复执行不使用InputSource,输入由Session.offer交给read语句
+        CMMExecutor cmmExecutor = new CMMExecutor(null, session.getOutput(), session.getDiagnostics());
+        cmmExecutor.setGovernor(session.getGovernor());
+        cmmExecutor.setCache(cache);
+        sessions.put(session.getId(), session);
+        session.getResult().whenComplete((success, e) -> sessions.remove(session.getId()));
+        session.start(() -> {
+            CMMProgram program = cmmExecutor.compile(source);
+            return program == null ? null : cmmExecutor.createInterpreter(program);
+        });
+        return session;
+    }
+
+    /**
+     * 功能介绍：按编号查找尚未结束的会话
+     * @return 会话已结束或不存在时返回null
+     */
+    public Session getSession(long id) {
+        return sessions.get(id);
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public long getMaxCells() {
+        return maxCells;
+    }
+
+    public CompilationCache getCache() {
+        return cache;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 功能介绍：取消所有会话并停止服务
+     */
+    @Override
+    public void close() {
+        for (Session session : sessions.values()) {
+            session.cancel();
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
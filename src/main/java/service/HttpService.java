@@ -0,0 +1,347 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import compiler.CMMParser;
+import compiler.CMMProgram;
+import compiler.ResourceGovernor;
+import structure.Token;
+import structure.TreeNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 本机HTTP服务：只监听回环地址,请求体为源程序(UTF-8),响应为JSON,不加载图形界面;
+ * 支持虚拟线程时每个请求一个虚拟线程,否则使用按需创建的平台线程
+ *
+ * POST /lex    词法分析,返回token和词法错误
+ * POST /parse  词法和语法分析,返回未经优化的语法树和错误信息
+ * POST /run    执行程序,查询参数input每个为一行read输入(可以重复),maxSteps、timeout(毫秒)和maxCells
+ *              为本次执行的资源限制,不能超过服务的限制;服务和请求都没有限制执行时间时最多执行10秒
+ * GET  /metrics 各接口的延迟直方图、编译缓存和会话个数,Prometheus文本格式
+ */
+public class HttpService implements AutoCloseable {
+    private static final int MAX_BODY = 1 << 20;        // 请求体的最大字节数
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10000;   // 服务和请求都没有限制执行时间时的最长执行时间
+    private static final long AWAIT_GRACE_MILLIS = 1000;        // 超过执行时间后等待会话结束的最长时间
+    private static final String[] ENDPOINTS = {"lex", "parse", "run", "metrics"};
+
+    private ExecutionService service;                   // 执行和编译缓存
+    private HttpServer server;                          // HTTP服务器
+    private ExecutorService executor;                   // 处理请求的线程
+    private Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();   // 各接口的延迟
+
+    /**
+     * @param service 执行程序的服务,其资源限制是每个请求的上限
+     * @param port 端口,0表示任意空闲端口
+     */
+    public HttpService(ExecutionService service, int port) throws IOException {
+        this.service = service;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = ExecutionService.createVirtualExecutor("cmm-http-");
+        if (executor == null)
+            executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        for (String endpoint : ENDPOINTS) {
+            latencies.put(endpoint, new LatencyHistogram());
+        }
+        server.createContext("/lex", timed("lex", "POST", this::lex));
+        server.createContext("/parse", timed("parse", "POST", this::parse));
+        server.createContext("/run", timed("run", "POST", this::run));
+        server.createContext("/metrics", timed("metrics", "GET", this::metrics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 请求的处理,返回响应体
+     */
+    private interface Endpoint {
+        String handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+
+    /**
+     * 功能介绍：检查请求方法,执行处理并记录延迟;请求不合法时返回400
+     */
+    private HttpHandler timed(String name, String method, Endpoint endpoint) {
+        return exchange -> {
+            long start = System.nanoTime();
+            try (exchange) {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, "{\"error\":" + quote("只支持" + method + "请求") + "}");
+                    return;
+                }
+                String body;
+                try {
+                    body = endpoint.handle(exchange);
+                } catch (IllegalArgumentException e) {
+                    send(exchange, 400, "{\"error\":" + quote(e.getMessage()) + "}");
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    send(exchange, 503, "{\"error\":" + quote("服务正在停止") + "}");
+                    return;
+                }
+                if (name.equals("metrics")) {
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    exchange.getResponseBody().write(bytes);
+                } else {
+                    send(exchange, 200, body);
+                }
+            } finally {
+                latencies.get(name).record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * 功能介绍：词法分析,编译结果保存在缓存中
+     */
+    private String lex(HttpExchange exchange) throws IOException {
+        CMMProgram program = service.getCache().compile(readBody(exchange));
+        StringBuilder json = new StringBuilder("{\"tokens\":[");
+        List<Token> tokens = program.getTokens();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (i > 0)
+                json.append(",");
+            json.append("{\"line\":").append(token.getLine()).append(",\"column\":").append(token.getCulomn())
+                    .append(",\"kind\":").append(quote(token.getKind()))
+                    .append(",\"content\":").append(quote(token.getContent())).append("}");
+        }
+        json.append("],\"errorNum\":").append(program.getLexerErrorNum())
+                .append(",\"errors\":").append(quote(program.getLexerErrorInfo())).append("}");
+        return json.toString();
+    }
+
+    /**
+     * 功能介绍：语法分析,与图形界面一样显示未经优化的语法树
+     */
+    private String parse(HttpExchange exchange) throws IOException {
+        CMMProgram program = service.getCache().compile(readBody(exchange));
+        StringBuilder json = new StringBuilder("{\"valid\":").append(program.isValid());
+        json.append(",\"errorNum\":").append(program.getErrorNum());
+        json.append(",\"errors\":").append(quote(program.getErrorInfo()));
+        TreeNode root = new CMMParser(new ArrayList<>(program.getTokens())).execute();
+        json.append(",\"tree\":");
+        if (root == null)
+            json.append("null");
+        else
+            appendNode(json, root);
+        return json.append("}").toString();
+    }
+
+    private static void appendNode(StringBuilder json, TreeNode node) {
+        json.append("{\"kind\":").append(quote(node.getNodeKind())).append(",\"content\":")
+                .append(quote(node.getContent())).append(",\"line\":").append(node.getLineNum());
+        if (node.getChildCount() != 0) {
+            json.append(",\"children\":[");
+            for (int i = 0; i < node.getChildCount(); i++) {
+                if (i > 0)
+                    json.append(",");
+                appendNode(json, node.getChildAt(i));
+            }
+            json.append("]");
+        }
+        json.append("}");
+    }
+
+    /**
+     * 功能介绍：在新的会话中执行程序,提供全部输入后等待执行结束;不再等待时(超时或服务正在停止)取消会话
+     */
+    private String run(HttpExchange exchange) throws IOException, InterruptedException {
+        String source = readBody(exchange);
+        Map<String, List<String>> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        long maxSteps = limit(query, "maxSteps", service.getMaxSteps());
+        long timeoutMillis = limit(query, "timeout", service.getTimeoutMillis());
+        if (timeoutMillis == 0)
+            timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        long maxCells = limit(query, "maxCells", service.getMaxCells());
+        Session session = service.submit(source, maxSteps, timeoutMillis, maxCells);
+        for (String line : query.getOrDefault("input", List.of())) {
+            session.offer(line);
+        }
+        session.closeInput();
+        boolean success = false;
+        try {
+            success = session.await(timeoutMillis + AWAIT_GRACE_MILLIS);
+        } catch (TimeoutException e) {
+            // 超过执行时间后没有及时结束
+        } finally {
+            // 没有人等待结果的会话不再继续执行
+            if (!session.isDone())
+                session.cancel();
+        }
+        StringBuilder json = new StringBuilder("{\"success\":").append(success);
+        json.append(",\"output\":").append(quote(session.getOutput().getText()));
+        json.append(",\"errors\":").append(quote(session.getDiagnostics().getText()));
+        json.append(",\"inputErrors\":[");
+        List<String> inputErrors = session.getDiagnostics().getInputErrors();
+        for (int i = 0; i < inputErrors.size(); i++) {
+            if (i > 0)
+                json.append(",");
+            json.append(quote(inputErrors.get(i)));
+        }
+        json.append("],\"exceeded\":").append(quote(exceeded(session.getGovernor().getExceeded())));
+        json.append(",\"steps\":").append(session.getGovernor().getSteps());
+        return json.append("}").toString();
+    }
+
+    private static String exceeded(int kind) {
+        switch (kind) {
+            case ResourceGovernor.STEPS:
+                return "steps";
+            case ResourceGovernor.TIME:
+                return "time";
+            case ResourceGovernor.MEMORY:
+                return "memory";
+            case ResourceGovernor.CANCELLED:
+                return "cancelled";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 功能介绍：取得本次请求的资源限制
+     * @param max 服务的限制,0表示不限制
+     * @return 请求没有给出时为服务的限制,否则为两者中较严格的
+     */
+    private static long limit(Map<String, List<String>> query, String name, long max) {
+        List<String> values = query.get(name);
+        if (values == null)
+            return max;
+        long value;
+        try {
+            value = Long.parseLong(values.get(values.size() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("参数" + name + "必须是整数");
+        }
+        if (value <= 0)
+            return max;
+        return max == 0 ? value : Math.min(value, max);
+    }
+
+    private String metrics(HttpExchange exchange) {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE cmm_request_duration_seconds histogram\n");
+        for (String endpoint : ENDPOINTS) {
+            latencies.get(endpoint).appendTo(out, "cmm_request_duration_seconds", "endpoint=\"" + endpoint + "\"");
+        }
+        out.append("# TYPE cmm_compilation_cache_hits_total counter\n");
+        out.append("cmm_compilation_cache_hits_total ").append(service.getCache().getHits()).append("\n");
+        out.append("# TYPE cmm_compilation_cache_misses_total counter\n");
+        out.append("cmm_compilation_cache_misses_total ").append(service.getCache().getMisses()).append("\n");
+        out.append("# TYPE cmm_active_sessions gauge\n");
+        out.append("cmm_active_sessions ").append(service.getActiveSessions()).append("\n");
+        return out.toString();
+    }
+
+    /**
+     * 功能介绍：读取UTF-8的请求体
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY + 1);
+            if (bytes.length > MAX_BODY)
+                throw new IllegalArgumentException("源程序不能超过" + MAX_BODY + "字节");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 功能介绍：解析查询字符串,同名参数按出现顺序保存
+     */
+    private static Map<String, List<String>> parseQuery(String query) {
+        HashMap<String, List<String>> parameters = new HashMap<>();
+        if (query == null || query.isEmpty())
+            return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    /**
+     * 功能介绍：JSON字符串,null时为null
+     */
+    private static String quote(String string) {
+        if (string == null)
+            return "null";
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        json.append(String.format("\\u%04x", (int) c));
+                    else
+                        json.append(c);
+            }
+        }
+        return json.append("\"").toString();
+    }
+
+    /**
+     * 功能介绍：停止接受请求,等待正在处理的请求最多1秒
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
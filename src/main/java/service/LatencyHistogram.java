@@ -0,0 +1,49 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求延迟的直方图：按固定的上界统计请求个数,记录时只做原子加法,多个线程可以同时记录;
+ * 以Prometheus文本格式输出,每个桶为延迟不超过其上界的累计个数
+ */
+public class LatencyHistogram {
+    /** 各个桶的上界(秒),最后还有一个没有上界的桶 */
+    private static final double[] BOUNDS = {0.001, 0.002, 0.005, 0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1, 2, 5, 10};
+
+    private AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);  // 落在各个桶中的个数,不累计
+    private LongAdder sumNanos = new LongAdder();       // 延迟总和(纳秒)
+
+    /**
+     * 功能介绍：记录一次请求的延迟
+     * @param nanos 延迟(纳秒)
+     */
+    public void record(long nanos) {
+        double seconds = nanos / 1e9;
+        int index = 0;
+        while (index < BOUNDS.length && seconds > BOUNDS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * 功能介绍：按Prometheus文本格式输出
+     * @param out 输出的内容追加到其后
+     * @param name 指标名
+     * @param labels 标签,如endpoint="run"
+     */
+    public void appendTo(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            cumulative += buckets.get(i);
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(BOUNDS[i]).append("\"} ")
+                    .append(cumulative).append("\n");
+        }
+        cumulative += buckets.get(BOUNDS.length);
+        out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append("\n");
+        out.append(name).append("_sum{").append(labels).append("} ").append(sumNanos.sum() / 1e9).append("\n");
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append("\n");
+    }
+}
@@ -0,0 +1,186 @@
+package service;
+
+import compiler.CMMSemanticAnalysis;
+import compiler.MemoryDiagnosticSink;
+import compiler.MemoryOutputSink;
+import compiler.ResourceGovernor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 一个程序的一次执行：有独立的输入、输出、错误信息和资源限制,解释器状态不与其他会话共享。
+ * 解释器用resume可恢复执行,停在没有输入的read语句处时返回,执行位置保存在解释器中,不占用线程;
+ * 得到输入后再提交到执行器,在任意一个线程中继续执行
+ */
+public class Session {
+    private long id;                                    // 会话编号
+    private Executor executor;                          // 执行解释器的线程
+    private MemoryOutputSink output = new MemoryOutputSink();               // write语句的输出
+    private MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();  // 错误信息
+    private ResourceGovernor governor;                  // 资源限制
+    private CMMSemanticAnalysis interpreter;            // 可恢复执行的解释器,编译完成前为null
+    private ArrayDeque<String> pending = new ArrayDeque<>();    // 尚未交给read语句的输入
+    private boolean inputClosed;                        // 输入是否已结束
+    private boolean cancelled;                          // 是否已取消
+    private boolean scheduled;                          // 是否已提交到执行器或正在执行
+    private CompletableFuture<Boolean> result = new CompletableFuture<>();  // 执行结果,没有错误时为true
+
+    Session(long id, ResourceGovernor governor, Executor executor) {
+        this.id = id;
+        this.governor = governor;
+        this.executor = executor;
+    }
+
+    /**
+     * 功能介绍：在执行器中编译并开始执行,执行到没有输入的read语句处时释放线程
+     * @param compiler 编译并创建解释器,有词法或语法错误时返回null
+     */
+    void start(Supplier<CMMSemanticAnalysis> compiler) {
+        synchronized (this) {
+            scheduled = true;
+        }
+        submit(() -> {
+            CMMSemanticAnalysis created = compiler.get();
+            synchronized (this) {
+                interpreter = created;
+                if (created == null || cancelled) {
+                    result.complete(false);
+                    return;
+                }
+            }
+            advance();
+        });
+    }
+
+    /**
+     * 功能介绍：继续执行,依次把已有的输入交给read语句,直到执行结束或停在没有输入的read语句处
+     */
+    private void advance() {
+        while (true) {
+            String line = null;
+            synchronized (this) {
+                if (interpreter.isWaitingForInput()) {
+                    if (pending.isEmpty() && !inputClosed) {
+                        scheduled = false;
+                        return;
+                    }
+                    // 输入已结束时为null,read语句按没有输入处理
+                    line = pending.poll();
+                }
+            }
+            if (interpreter.resume(line)) {
+                result.complete(interpreter.getErrorNum() == 0);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 功能介绍：解释器正在等待输入且已有输入时,提交到执行器继续执行
+     */
+    private synchronized void wake() {
+        if (scheduled || interpreter == null || result.isDone())
+            return;
+        scheduled = true;
+        submit(this::advance);
+    }
+
+    /**
+     * 功能介绍：提交到执行器,执行中抛出的异常作为执行结果;执行器已停止时按执行失败结束
+     */
+    private void submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(false);
+        }
+    }
+
+    /**
+     * 功能介绍：执行结果,执行结束后完成
+     */
+    CompletableFuture<Boolean> getResult() {
+        return result;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 功能介绍：向程序提供一行输入
+     */
+    public void offer(String line) {
+        synchronized (this) {
+            if (inputClosed)
+                return;
+            pending.add(line);
+        }
+        wake();
+    }
+
+    /**
+     * 功能介绍：输入结束,之后的read得不到输入
+     */
+    public void closeInput() {
+        synchronized (this) {
+            inputClosed = true;
+        }
+        wake();
+    }
+
+    public MemoryOutputSink getOutput() {
+        return output;
+    }
+
+    public MemoryDiagnosticSink getDiagnostics() {
+        return diagnostics;
+    }
+
+    public ResourceGovernor getGovernor() {
+        return governor;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * 功能介绍：等待执行结束
+     * @param timeoutMillis 最长等待时间(毫秒)
+     * @return 没有错误时返回true
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException, TimeoutException {
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 功能介绍：取消执行,正在执行的会话在下一次检查时结束,正在等待输入的会话按没有输入继续执行并立即结束
+     */
+    public void cancel() {
+        governor.cancel();
+        synchronized (this) {
+            cancelled = true;
+            inputClosed = true;
+            pending.clear();
+        }
+        wake();
+    }
+}
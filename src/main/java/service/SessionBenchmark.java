@@ -0,0 +1,52 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ExecutionService的基准测试：同时创建大量等待read输入的会话,统计每GB堆内存能容纳的会话数
+ * (等待输入的会话不占用线程,只有堆中的解释器状态),再向所有会话提供输入,统计会话执行完成的吞吐量
+ * 用法：SessionBenchmark [会话数]
+ */
+public class SessionBenchmark {
+    private static final String SOURCE = "int a;\nint b;\nread(a);\nread(b);\nwrite(a + b);\n";     // 读两个数并输出和
+
+    public static void main(String[] args) throws InterruptedException, TimeoutException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        try (ExecutionService service = new ExecutionService()) {
+            System.out.println("会话线程：" + (service.isVirtual() ? "虚拟线程" : "平台线程"));
+            long before = usedMemory();
+            long start = System.nanoTime();
+            ArrayList<Session> sessions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Session session = service.submit(SOURCE);
+                session.offer(String.valueOf(i));
+                sessions.add(session);
+            }
+            // 等待所有会话读完第一个输入,阻塞在第二个read上
+            Thread.sleep(500);
+            long used = Math.max(usedMemory() - before, 1);
+            double created = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d个会话等待输入：堆内存 %.1f MB,每GB %.0f 个会话,创建用时 %.3f s%n",
+                    service.getActiveSessions(), used / 1e6, count * 1e9 / used, created);
+            start = System.nanoTime();
+            for (Session session : sessions) {
+                session.offer("1");
+            }
+            int failed = 0;
+            for (Session session : sessions) {
+                if (!session.await(60000))
+                    failed++;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d个会话执行完成,失败%d个,用时 %.3f s,%.0f 会话/s%n", count, failed, seconds,
+                    count / seconds);
+        }
+    }
+
+    private static long usedMemory() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,85 @@
+package structure;
+
+import java.util.ArrayList;
+
+/**
+ * 基本块：只有第一条指令是入口,最后一条指令(br/jmp)是出口,phi指令位于块的开头
+ */
+public class BasicBlock {
+    private int id;                                                 // 基本块编号
+    private ArrayList<IRInstruction> instructions = new ArrayList<>();     // 指令序列
+    private ArrayList<BasicBlock> predecessors = new ArrayList<>();        // 前驱
+    private ArrayList<BasicBlock> successors = new ArrayList<>();          // 后继
+
+    public BasicBlock(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return "B" + id;
+    }
+
+    public ArrayList<IRInstruction> getInstructions() {
+        return instructions;
+    }
+
+    public void add(IRInstruction instruction) {
+        instructions.add(instruction);
+    }
+
+    /**
+     * 功能介绍：在其他phi指令之后插入phi指令
+     */
+    public void addPhi(IRInstruction phi) {
+        int index = 0;
+        while (index < instructions.size() && instructions.get(index).getOp().equals(IRInstruction.PHI))
+            index++;
+        instructions.add(index, phi);
+    }
+
+    public ArrayList<BasicBlock> getPredecessors() {
+        return predecessors;
+    }
+
+    public ArrayList<BasicBlock> getSuccessors() {
+        return successors;
+    }
+
+    /**
+     * 功能介绍：添加一条从当前块到target的边
+     */
+    public void link(BasicBlock target) {
+        successors.add(target);
+        target.predecessors.add(this);
+    }
+
+    /**
+     * 功能介绍：判断块是否已经以跳转指令结束
+     */
+    public boolean isTerminated() {
+        if (instructions.isEmpty())
+            return false;
+        String op = instructions.get(instructions.size() - 1).getOp();
+        return op.equals(IRInstruction.BR) || op.equals(IRInstruction.JMP);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(getLabel()).append(":");
+        if (!predecessors.isEmpty()) {
+            builder.append("    ; preds");
+            for (BasicBlock predecessor : predecessors) {
+                builder.append(" ").append(predecessor.getLabel());
+            }
+        }
+        builder.append("\n");
+        for (IRInstruction instruction : instructions) {
+            builder.append("    ").append(instruction).append("\n");
+        }
+        return builder.toString();
+    }
+}
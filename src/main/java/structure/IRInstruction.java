@@ -0,0 +1,156 @@
+package structure;
+
+import java.util.ArrayList;
+
+/**
+ * 三地址码指令,标量变量为SSA形式,每个结果只被赋值一次,数组元素通过load/store访问
+ */
+public class IRInstruction {
+    /* 操作码 */
+    public static final String CONST = "const";
+    public static final String UNDEF = "undef";
+    public static final String ADD = "add";
+    public static final String SUB = "sub";
+    public static final String MUL = "mul";
+    public static final String DIV = "div";
+    public static final String LT = "lt";
+    public static final String GT = "gt";
+    public static final String EQ = "eq";
+    public static final String NE = "ne";
+    public static final String ITOF = "itof";
+    public static final String PHI = "phi";
+    public static final String ARRAY = "array";
+    public static final String LOAD = "load";
+    public static final String STORE = "store";
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String BR = "br";
+    public static final String JMP = "jmp";
+
+    private String op;                  // 操作码
+    private String result;              // 结果,形如%n,没有结果时为null
+    private String type;                // 结果类型 int real bool string
+    private String literal;             // const指令的常量值
+    private ArrayList<String> operands = new ArrayList<>();        // 操作数,SSA值或数组名(@开头)
+    private ArrayList<BasicBlock> targets = new ArrayList<>();     // 跳转目标,phi指令中为操作数对应的前驱
+    private int lineNum;                // 对应源程序的行号
+    private boolean inBounds;           // store指令的下标已被数据流分析证明不越界
+
+    public IRInstruction(String op, String result, String type, int lineNum) {
+        this.op = op;
+        this.result = result;
+        this.type = type;
+        this.lineNum = lineNum;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public void setLiteral(String literal) {
+        this.literal = literal;
+    }
+
+    public ArrayList<String> getOperands() {
+        return operands;
+    }
+
+    public String getOperand(int index) {
+        return operands.get(index);
+    }
+
+    public void setOperand(int index, String operand) {
+        operands.set(index, operand);
+    }
+
+    public void addOperand(String operand) {
+        operands.add(operand);
+    }
+
+    public ArrayList<BasicBlock> getTargets() {
+        return targets;
+    }
+
+    public void addTarget(BasicBlock target) {
+        targets.add(target);
+    }
+
+    public int getLineNum() {
+        return lineNum;
+    }
+
+    public boolean isInBounds() {
+        return inBounds;
+    }
+
+    public void setInBounds(boolean inBounds) {
+        this.inBounds = inBounds;
+    }
+
+    /**
+     * 功能介绍：判断指令是否没有副作用,没有副作用的指令结果不被使用时可以删除
+     */
+    public boolean isPure() {
+        switch (op) {
+            case CONST:
+            case UNDEF:
+            case ADD:
+            case SUB:
+            case MUL:
+            case LT:
+            case GT:
+            case EQ:
+            case NE:
+            case ITOF:
+            case PHI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 功能介绍：判断运算是否满足交换律
+     */
+    public boolean isCommutative() {
+        return op.equals(ADD) || op.equals(MUL) || op.equals(EQ) || op.equals(NE);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (result != null)
+            builder.append(result).append(" = ");
+        builder.append(op);
+        if (type != null)
+            builder.append(" ").append(type);
+        if (literal != null)
+            builder.append(" ").append(literal);
+        if (op.equals(PHI)) {
+            for (int i = 0; i < operands.size(); i++) {
+                builder.append(i == 0 ? " " : ", ").append("[").append(operands.get(i))
+                        .append(", ").append(targets.get(i).getLabel()).append("]");
+            }
+            return builder.toString();
+        }
+        for (int i = 0; i < operands.size(); i++) {
+            builder.append(i == 0 ? " " : ", ").append(operands.get(i));
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            builder.append(i == 0 && operands.isEmpty() ? " " : ", ").append(targets.get(i).getLabel());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * 中间代码程序：基本块组成的控制流图,第一个基本块为入口
+ */
+public class IRProgram {
+    private ArrayList<BasicBlock> blocks = new ArrayList<>();      // 基本块
+
+    public ArrayList<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    public BasicBlock getEntry() {
+        return blocks.get(0);
+    }
+
+    public BasicBlock newBlock() {
+        BasicBlock block = new BasicBlock(blocks.size());
+        blocks.add(block);
+        return block;
+    }
+
+    /**
+     * 功能介绍：按逆后序排列从入口可达的基本块,前驱(除回边外)总在后继之前
+     */
+    public ArrayList<BasicBlock> reversePostOrder() {
+        ArrayList<BasicBlock> order = new ArrayList<>();
+        postOrder(getEntry(), new HashSet<>(), order);
+        ArrayList<BasicBlock> result = new ArrayList<>();
+        for (int i = order.size() - 1; i > -1; i--) {
+            result.add(order.get(i));
+        }
+        return result;
+    }
+
+    private void postOrder(BasicBlock block, HashSet<BasicBlock> visited, ArrayList<BasicBlock> order) {
+        visited.add(block);
+        for (BasicBlock successor : block.getSuccessors()) {
+            if (!visited.contains(successor))
+                postOrder(successor, visited, order);
+        }
+        order.add(block);
+    }
+
+    /**
+     * 功能介绍：按映射替换所有指令中的操作数,映射可以是链式的
+     */
+    public void replaceUses(HashMap<String, String> map) {
+        if (map.isEmpty())
+            return;
+        for (BasicBlock block : blocks) {
+            for (IRInstruction instruction : block.getInstructions()) {
+                for (int i = 0; i < instruction.getOperands().size(); i++) {
+                    String operand = instruction.getOperand(i);
+                    while (map.containsKey(operand))
+                        operand = map.get(operand);
+                    instruction.setOperand(i, operand);
+                }
+            }
+        }
+    }
+
+    /**
+     * 功能介绍：统计指令条数
+     */
+    public int size() {
+        int size = 0;
+        for (BasicBlock block : blocks) {
+            size += block.getInstructions().size();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (BasicBlock block : blocks) {
+            builder.append(block);
+        }
+        return builder.toString();
+    }
+}
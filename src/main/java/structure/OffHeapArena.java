@@ -0,0 +1,43 @@
+package structure;
+
+import java.util.HashSet;
+
+/**
+ * 一次程序执行中分配的所有堆外数组,执行结束时统一释放;
+ * 直接缓冲区在不再被引用后由垃圾回收器释放内存
+ */
+public class OffHeapArena {
+    private HashSet<OffHeapArray> arrays = new HashSet<>();        // 尚未释放的数组
+    private long cells;                                             // 尚未释放的数组的元素个数之和
+
+    /**
+     * 功能介绍：分配堆外数组
+     * @param kind 元素类型 int real
+     * @param size 元素个数
+     * @return 新分配的数组,所有元素都未初始化
+     */
+    public synchronized OffHeapArray allocate(String kind, int size) {
+        OffHeapArray array = new OffHeapArray(kind, size, this);
+        arrays.add(array);
+        cells += size;
+        return array;
+    }
+
+    synchronized void release(OffHeapArray array) {
+        if (arrays.remove(array))
+            cells -= array.getSize();
+    }
+
+    public synchronized long getCells() {
+        return cells;
+    }
+
+    /**
+     * 功能介绍：释放所有尚未释放的数组
+     */
+    public synchronized void close() {
+        for (OffHeapArray array : arrays.toArray(new OffHeapArray[0])) {
+            array.free();
+        }
+    }
+}
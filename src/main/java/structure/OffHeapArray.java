@@ -0,0 +1,288 @@
+package structure;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 大数组的堆外存储：int和real数组的元素值存放在直接缓冲区中,不占用Java堆,
+ * 每个元素另有一个字节表示是否已初始化,与数值的规范字符串形式不同的原始字符串(如2.50)另外保存,
+ * 保证读出的字符串与存入的完全相同;
+ * 元素个数很多的数组先用稀疏方式存储(以下标为键的开放定址哈希表),只保存已初始化的元素,
+ * 已初始化元素超过数组大小的1/16时转为上面的稠密存储。
+ * 直接缓冲区受-XX:MaxDirectMemorySize限制(默认与最大堆大小相同),超出时分配抛出OutOfMemoryError;
+ * Java没有立即释放直接缓冲区的公开方法,free只去掉引用,内存在垃圾回收器清理缓冲区后才归还
+ */
+public class OffHeapArray {
+    private static final int CHUNK_SIZE = 1 << 26;      // 每个缓冲区存放的元素个数
+    private static final int SPARSE_THRESHOLD = 1 << 20;    // 元素个数不少于该值时先用稀疏存储
+    private static final int DENSE_RATIO = 16;          // 已初始化元素超过数组大小的1/DENSE_RATIO时转为稠密存储
+    private static final int EMPTY = -1;                // 哈希表中的空位
+
+    private String kind;                                // 元素类型 int real
+    private int size;                                   // 元素个数
+    private int width;                                  // 每个元素的字节数
+    private ByteBuffer[] values;                        // 元素值
+    private ByteBuffer[] flags;                         // 元素是否已初始化
+    private volatile boolean dense;                     // 是否已使用稠密存储
+    private int[] keys;                                 // 稀疏存储：已初始化元素的下标,空位为EMPTY
+    private long[] bits;                                // 稀疏存储：元素值,int直接存放,real存放其二进制表示
+    private int count;                                  // 稀疏存储：已初始化的元素个数
+    private ConcurrentHashMap<Integer, String> texts = new ConcurrentHashMap<>();   // 非规范形式的原始字符串
+    private OffHeapArena arena;                         // 所属的arena
+    private volatile OffHeapElement lastView;           // 上一次查找的元素视图,连续访问同一元素时复用
+
+    OffHeapArray(String kind, int size, OffHeapArena arena) {
+        this.kind = kind;
+        this.size = size;
+        this.arena = arena;
+        width = kind.equals(ConstVar.INT) ? Integer.BYTES : Double.BYTES;
+        if (size >= SPARSE_THRESHOLD) {
+            keys = new int[16];
+            Arrays.fill(keys, EMPTY);
+            bits = new long[16];
+        } else {
+            allocate();
+            dense = true;
+        }
+    }
+
+    /**
+     * 功能介绍：分配稠密存储的缓冲区
+     */
+    private void allocate() {
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        values = new ByteBuffer[chunks];
+        flags = new ByteBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            int length = Math.min(CHUNK_SIZE, size - i * CHUNK_SIZE);
+            values[i] = ByteBuffer.allocateDirect(length * width).order(ByteOrder.nativeOrder());
+            flags[i] = ByteBuffer.allocateDirect(length);
+        }
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    OffHeapElement getLastView() {
+        return lastView;
+    }
+
+    void setLastView(OffHeapElement lastView) {
+        this.lastView = lastView;
+    }
+
+    public boolean isInitialized(int index) {
+        if (dense)
+            return flags[index / CHUNK_SIZE].get(index % CHUNK_SIZE) != 0;
+        synchronized (this) {
+            if (dense)
+                return isInitialized(index);
+            return keys[find(index)] != EMPTY;
+        }
+    }
+
+    /**
+     * 功能介绍：读取元素值
+     * @param index 下标
+     * @return 元素值的字符串形式,未初始化时返回空字符串
+     */
+    public String getValue(int index) {
+        long value;
+        if (dense) {
+            if (flags[index / CHUNK_SIZE].get(index % CHUNK_SIZE) == 0)
+                return "";
+            ByteBuffer buffer = values[index / CHUNK_SIZE];
+            int offset = index % CHUNK_SIZE * width;
+            value = kind.equals(ConstVar.INT) ? buffer.getInt(offset) : buffer.getLong(offset);
+        } else {
+            synchronized (this) {
+                if (dense)
+                    return getValue(index);
+                int slot = find(index);
+                if (keys[slot] == EMPTY)
+                    return "";
+                value = bits[slot];
+            }
+        }
+        String text = texts.get(index);
+        if (text != null)
+            return text;
+        return kind.equals(ConstVar.INT) ? String.valueOf((int) value) : String.valueOf(Double.longBitsToDouble(value));
+    }
+
+    /**
+     * 功能介绍：读取int元素的值,不经过字符串,调用前用isInitialized判断
+     * @param index 下标
+     */
+    public int getInt(int index) {
+        return (int) getBits(index);
+    }
+
+    /**
+     * 功能介绍：读取real元素的值,不经过字符串,调用前用isInitialized判断
+     * @param index 下标
+     */
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(getBits(index));
+    }
+
+    /**
+     * 功能介绍：读取已初始化元素的原始数值,int直接存放,real为其二进制表示
+     */
+    private long getBits(int index) {
+        if (dense) {
+            ByteBuffer buffer = values[index / CHUNK_SIZE];
+            int offset = index % CHUNK_SIZE * width;
+            return kind.equals(ConstVar.INT) ? buffer.getInt(offset) : buffer.getLong(offset);
+        }
+        synchronized (this) {
+            if (dense)
+                return getBits(index);
+            return bits[find(index)];
+        }
+    }
+
+    /**
+     * 功能介绍：写入int元素的值,不经过字符串,读出的字符串为其规范形式
+     * @param index 下标
+     * @param value 元素值
+     */
+    public void setInt(int index, int value) {
+        texts.remove(index);
+        store(index, value);
+    }
+
+    /**
+     * 功能介绍：写入元素值
+     * @param index 下标
+     * @param value 元素值的字符串形式
+     */
+    public void setValue(int index, String value) {
+        long temp;
+        String canonical;
+        if (kind.equals(ConstVar.INT)) {
+            int number = Integer.parseInt(value);
+            temp = number;
+            canonical = String.valueOf(number);
+        } else {
+            double number = Double.parseDouble(value);
+            temp = Double.doubleToRawLongBits(number);
+            canonical = String.valueOf(number);
+        }
+        if (canonical.equals(value))
+            texts.remove(index);
+        else
+            texts.put(index, value);
+        store(index, temp);
+    }
+
+    /**
+     * 功能介绍：写入原始数值,稀疏存储的元素过多时转为稠密存储
+     */
+    private void store(int index, long temp) {
+        if (dense) {
+            put(index, temp);
+            return;
+        }
+        synchronized (this) {
+            if (dense) {
+                put(index, temp);
+                return;
+            }
+            int slot = find(index);
+            bits[slot] = temp;
+            if (keys[slot] != EMPTY)
+                return;
+            keys[slot] = index;
+            count++;
+            if (count > size / DENSE_RATIO)
+                toDense();
+            else if (count * 2 > keys.length)
+                rehash();
+        }
+    }
+
+    /**
+     * 功能介绍：写入稠密存储
+     */
+    private void put(int index, long value) {
+        ByteBuffer buffer = values[index / CHUNK_SIZE];
+        int offset = index % CHUNK_SIZE * width;
+        if (kind.equals(ConstVar.INT))
+            buffer.putInt(offset, (int) value);
+        else
+            buffer.putLong(offset, value);
+        flags[index / CHUNK_SIZE].put(index % CHUNK_SIZE, (byte) 1);
+    }
+
+    /**
+     * 功能介绍：在哈希表中线性探测下标
+     * @return 下标所在的位置,不存在时返回应插入的空位
+     */
+    private int find(int index) {
+        int mask = keys.length - 1;
+        int hash = index * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != index)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * 功能介绍：哈希表容量加倍
+     */
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldBits = bits;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        bits = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                bits[slot] = oldBits[i];
+            }
+        }
+    }
+
+    /**
+     * 功能介绍：把稀疏存储中的元素复制到新分配的稠密存储
+     */
+    private void toDense() {
+        int[] oldKeys = keys;
+        long[] oldBits = bits;
+        keys = null;
+        bits = null;
+        allocate();
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY)
+                put(oldKeys[i], oldBits[i]);
+        }
+        // 复制完成后才允许不加锁访问稠密存储
+        dense = true;
+    }
+
+    /**
+     * 功能介绍：释放堆外存储,数组离开作用域或程序执行结束时调用;
+     * 只去掉对缓冲区的引用,直接内存在垃圾回收器清理缓冲区后才归还,在此之前仍计入MaxDirectMemorySize
+     */
+    public void free() {
+        if (values == null && keys == null)
+            return;
+        values = null;
+        flags = null;
+        keys = null;
+        bits = null;
+        texts = null;
+        lastView = null;
+        arena.release(this);
+    }
+}
@@ -0,0 +1,50 @@
+package structure;
+
+/**
+ * 堆外数组元素在符号表中的视图,读写直接作用于OffHeapArray,
+ * int元素的浮点值与forAssign一样由整数值得到
+ */
+public class OffHeapElement extends SymbolTableElement {
+    private OffHeapArray array;       //元素所在的数组
+    private int index;                //元素下标
+
+    public OffHeapElement(String name, String kind, int lineNum, int level, OffHeapArray array, int index) {
+        super(name, kind, lineNum, level);
+        this.array = array;
+        this.index = index;
+    }
+
+    @Override
+    public String getIntValue() {
+        return array.getKind().equals(ConstVar.INT) ? array.getValue(index) : "";
+    }
+
+    @Override
+    public void setIntValue(String intValue) {
+        if (array.getKind().equals(ConstVar.INT))
+            array.setValue(index, intValue);
+    }
+
+    @Override
+    public String getRealValue() {
+        String value = array.getValue(index);
+        if (array.getKind().equals(ConstVar.INT) && !value.equals(""))
+            return String.valueOf(Double.parseDouble(value));
+        return value;
+    }
+
+    @Override
+    public void setRealValue(String realValue) {
+        if (array.getKind().equals(ConstVar.REAL))
+            array.setValue(index, realValue);
+    }
+
+    @Override
+    public String getStringValue() {
+        return "";
+    }
+
+    @Override
+    public void setStringValue(String stringValue) {
+    }
+}
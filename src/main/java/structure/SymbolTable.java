@@ -6,6 +6,20 @@ public class SymbolTable {
 
     private ArrayList<SymbolTableElement> symbolTable = new ArrayList<>();
 
+    private SymbolTable outer;      // 外层符号表,只读,在本表中找不到时继续查找;并行执行for循环时各任务共享主线程的符号表
+
+    private int tempNum;            // 本表中编译器生成的临时变量(名字以$开头)的个数
+
+    public SymbolTable() {
+    }
+
+    /**
+     * @param outer 外层符号表,使用期间不能被修改
+     */
+    public SymbolTable(SymbolTable outer) {
+        this.outer = outer;
+    }
+
     /**
      * 功能介绍：根据索引查找SymbolTableElement对象
      *
@@ -25,10 +39,9 @@ public class SymbolTable {
      */
     public SymbolTableElement getAllLevel(String name, int level) {
         while (level > -1) {
-            for (SymbolTableElement element : symbolTable) {
-                if (element.getName().equals(name) && element.getLevel() == level) {
-                    return element;
-                }
+            SymbolTableElement element = getCurrentLevel(name, level);
+            if (element != null) {
+                return element;
             }
             level--;
         }
@@ -36,21 +49,61 @@ public class SymbolTable {
     }
 
     /**
-     * 功能介绍：根据SymbolTableElement对象的名字对当前作用域查找
+     * 功能介绍：根据SymbolTableElement对象的名字对当前作用域查找,只遍历一次;
+     * 堆外数组的元素不在symbolTable中,按"数组名@下标"查找时在同一次遍历中找到数组并返回元素的视图
      *
      * @param name  SymbolTableElement名字
      * @param level SymbolTableElement作用域
      * @return 如果存在, 则返回SymbolTableElement对象;否则返回null
      */
     public SymbolTableElement getCurrentLevel(String name, int level) {
+        int at = name.lastIndexOf('@');
         for (SymbolTableElement element : symbolTable) {
-            if (element.getName().equals(name) && element.getLevel() == level) {
+            if (element.getLevel() != level) {
+                continue;
+            }
+            if (element.getName().equals(name)) {
                 return element;
             }
+            if (at > 0 && element.getOffHeapArray() != null && element.getName().length() == at
+                    && name.startsWith(element.getName())) {
+                return getOffHeapElement(element, name, at);
+            }
+        }
+        if (outer != null) {
+            return outer.getCurrentLevel(name, level);
         }
         return null;
     }
 
+    /**
+     * 功能介绍：堆外数组元素的视图,连续访问同一元素时复用上一次的视图
+     *
+     * @param array 堆外数组在符号表中的元素
+     * @param name  元素名字
+     * @param at    名字中'@'的位置
+     * @return 下标不合法时返回null
+     */
+    private SymbolTableElement getOffHeapElement(SymbolTableElement array, String name, int at) {
+        OffHeapArray offHeapArray = array.getOffHeapArray();
+        OffHeapElement view = offHeapArray.getLastView();
+        if (view != null && view.getName().equals(name)) {
+            return view;
+        }
+        int index;
+        try {
+            index = Integer.parseInt(name, at + 1, name.length(), 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (index < 0 || index >= array.getArrayElementsNum()) {
+            return null;
+        }
+        view = new OffHeapElement(name, array.getKind(), array.getLineNum(), array.getLevel(), offHeapArray, index);
+        offHeapArray.setLastView(view);
+        return view;
+    }
+
     /**
      * 功能介绍：向symbolTable中添加SymbolTableElement对象,放在末尾
      *
@@ -58,6 +111,7 @@ public class SymbolTable {
      */
     public void add(SymbolTableElement element) {
         symbolTable.add(element);
+        count(element, 1);
     }
 
     /**
@@ -68,6 +122,7 @@ public class SymbolTable {
      */
     public void add(int index, SymbolTableElement element) {
         symbolTable.add(index, element);
+        count(element, 1);
     }
 
     /**
@@ -76,7 +131,7 @@ public class SymbolTable {
      * @param index 指定的索引
      */
     public void remove(int index) {
-        symbolTable.remove(index);
+        count(symbolTable.remove(index), -1);
     }
 
     /**
@@ -99,19 +154,50 @@ public class SymbolTable {
      */
     public void removeAll() {
         symbolTable.clear();
+        tempNum = 0;
     }
 
     /**
      * 功能介绍：当level减小时更新符号表,去除无用的元素
      */
     public void update(int level) {
-        for (int i = 0; i < size(); i++) {
+        // 从后向前遍历,避免删除元素后跳过紧随其后的元素
+        for (int i = size() - 1; i >= 0; i--) {
             if (get(i).getLevel() > level) {
+                // 离开作用域的大数组立即释放堆外存储
+                if (get(i).getOffHeapArray() != null) {
+                    get(i).getOffHeapArray().free();
+                }
                 remove(i);
             }
         }
     }
 
+    /**
+     * 功能介绍：记录进入作用域时符号表的位置,元素总是添加在末尾,作用域内声明的元素都在该位置之后
+     *
+     * @return 当前的元素个数
+     */
+    public int mark() {
+        return symbolTable.size();
+    }
+
+    /**
+     * 功能介绍：离开作用域时截断到mark记录的位置,只处理作用域内声明的元素
+     *
+     * @param mark 进入作用域时mark的返回值
+     */
+    public void release(int mark) {
+        for (int i = size() - 1; i >= mark; i--) {
+            // 离开作用域的大数组立即释放堆外存储
+            if (get(i).getOffHeapArray() != null) {
+                get(i).getOffHeapArray().free();
+            }
+            count(get(i), -1);
+        }
+        symbolTable.subList(mark, size()).clear();
+    }
+
     /**
      * 功能介绍：判断是否包含指定的元素
      *
@@ -140,12 +226,47 @@ public class SymbolTable {
         return symbolTable.size();
     }
 
+    /**
+     * 功能介绍：计算包括外层符号表在内的元素个数
+     *
+     * @return 返回本表和所有外层符号表中元素个数之和
+     */
+    public int totalSize() {
+        return outer == null ? size() : size() + outer.totalSize();
+    }
+
+    /**
+     * 功能介绍：计算包括外层符号表在内、不包括编译器生成的临时变量的元素个数,即程序本身声明的变量和数组元素个数
+     *
+     * @return 返回本表和所有外层符号表中程序本身的元素个数之和
+     */
+    public int programSize() {
+        int size = size() - tempNum;
+        return outer == null ? size : size + outer.programSize();
+    }
+
+    /**
+     * 功能介绍：添加或去除元素时更新临时变量的个数
+     */
+    private void count(SymbolTableElement element, int delta) {
+        if (element.getName().startsWith("$"))
+            tempNum += delta;
+    }
+
     public ArrayList<SymbolTableElement> getSymbolTable() {
         return symbolTable;
     }
 
     public void setSymbolTable(ArrayList<SymbolTableElement> symbolTable) {
         this.symbolTable = symbolTable;
+        tempNum = 0;
+        for (SymbolTableElement element : symbolTable) {
+            count(element, 1);
+        }
+    }
+
+    public SymbolTable getOuter() {
+        return outer;
     }
 }
 
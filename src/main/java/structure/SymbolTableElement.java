@@ -9,6 +9,7 @@ public class SymbolTableElement {
     private String realValue;         //元素的浮点型数值
     private String stringValue;       //元素的字符串值
     private int arrayElementsNum;     //表明元素是否为数组,0表示不是,否则表示数组的大小
+    private OffHeapArray offHeapArray;   //大数组的堆外存储,为null时数组元素逐个存放在符号表中
 
     public SymbolTableElement(String name, String kind, int lineNum, int level) {
         this.name = name;
@@ -85,6 +86,14 @@ public class SymbolTableElement {
         this.arrayElementsNum = arrayElementsNum;
     }
 
+    public OffHeapArray getOffHeapArray() {
+        return offHeapArray;
+    }
+
+    public void setOffHeapArray(OffHeapArray offHeapArray) {
+        this.offHeapArray = offHeapArray;
+    }
+
     public String toString() {
         return name + "_" + kind + "_" + level + "_" + arrayElementsNum;
     }
@@ -1,32 +1,38 @@
 package structure;
 
-import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.ArrayList;
 
-public class TreeNode extends DefaultMutableTreeNode {
+/**
+ * 语法树的结点,不依赖Swing,命令行执行时不加载javax.swing和java.awt中的类;
+ * 图形界面中显示时由GUI.SyntaxTreeAdapter转换
+ */
+public class TreeNode {
     private String nodeKind;      //当前结点类型
     private String content;       //当前结点内容
     private int lineNum;          //当前结点行号
+    private boolean provenInitialized;  //数据流分析已证明该标识符已声明且已初始化
+    private boolean provenInBounds;     //数据流分析已证明该数组下标不越界
+    private boolean parallelizable;     //依赖分析已证明该for循环的各次迭代互不依赖
+    private TreeNode parent;            //父结点,根结点为null
+    private ArrayList<TreeNode> children = new ArrayList<>();  //孩子结点
+    private TreeNode[] frozenChildren;  //freeze后孩子结点的只读副本,多个线程同时执行时读取不需要加锁
 
     public TreeNode() {
-        super();
         nodeKind = "";
         content = "";
     }
 
     public TreeNode(String content) {
-        super(content);
         this.content = content;
         nodeKind = "";
     }
 
     public TreeNode(String kind, String content) {
-        super(content);
         this.content = content;
         nodeKind = kind;
     }
 
     public TreeNode(String kind, String content, int lineNum) {
-        super(content);
         this.content = content;
         this.lineNum = lineNum;
         nodeKind = kind;
@@ -48,26 +54,140 @@ public class TreeNode extends DefaultMutableTreeNode {
         this.lineNum = lineNum;
     }
 
+    public boolean isProvenInitialized() {
+        return provenInitialized;
+    }
+
+    public void setProvenInitialized(boolean provenInitialized) {
+        this.provenInitialized = provenInitialized;
+    }
+
+    public boolean isProvenInBounds() {
+        return provenInBounds;
+    }
+
+    public void setProvenInBounds(boolean provenInBounds) {
+        this.provenInBounds = provenInBounds;
+    }
+
+    public boolean isParallelizable() {
+        return parallelizable;
+    }
+
+    public void setParallelizable(boolean parallelizable) {
+        this.parallelizable = parallelizable;
+    }
+
     public String getContent() {
         return content;
     }
 
     public void setContent(String content) {
         this.content = content;
-        setUserObject(content);
+    }
+
+    public TreeNode getParent() {
+        return parent;
     }
 
     /**
-     * 功能介绍：为该结点添加孩子结点
+     * 功能介绍：为该结点添加孩子结点,孩子结点原来有父结点时先从中删除
      *
      * @param childNode 要添加的孩子结点
      */
     public void add(TreeNode childNode) {
-        super.add(childNode);
+        if (childNode.parent == this)
+            insert(childNode, children.size() - 1);
+        else
+            insert(childNode, children.size());
+    }
+
+    /**
+     * 功能介绍：在指定位置插入孩子结点,孩子结点原来有父结点时先从中删除
+     */
+    public void insert(TreeNode childNode, int childIndex) {
+        for (TreeNode node = this; node != null; node = node.parent) {
+            if (node == childNode)
+                throw new IllegalArgumentException("不能把结点的祖先插入为孩子结点");
+        }
+        if (childNode.parent != null)
+            childNode.parent.remove(childNode);
+        frozenChildren = null;
+        childNode.parent = this;
+        children.add(childIndex, childNode);
+    }
+
+    public void remove(int childIndex) {
+        frozenChildren = null;
+        children.remove(childIndex).parent = null;
+    }
+
+    public void remove(TreeNode childNode) {
+        int index = getIndex(childNode);
+        if (index < 0)
+            throw new IllegalArgumentException("不是该结点的孩子结点");
+        remove(index);
+    }
+
+    public void removeAllChildren() {
+        frozenChildren = null;
+        for (TreeNode child : children) {
+            child.parent = null;
+        }
+        children.clear();
+    }
+
+    /**
+     * @return 不是该结点的孩子结点时返回-1
+     */
+    public int getIndex(TreeNode childNode) {
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) == childNode)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 功能介绍：node是否为该结点本身或该结点的祖先
+     */
+    public boolean isNodeAncestor(TreeNode node) {
+        for (TreeNode ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == node)
+                return true;
+        }
+        return false;
     }
 
     public TreeNode getChildAt(int index) {
-        return (TreeNode) super.getChildAt(index);
+        TreeNode[] frozen = frozenChildren;
+        if (frozen != null)
+            return frozen[index];
+        return children.get(index);
+    }
+
+    public int getChildCount() {
+        TreeNode[] frozen = frozenChildren;
+        if (frozen != null)
+            return frozen.length;
+        return children.size();
+    }
+
+    /**
+     * 功能介绍：语法树不再修改后调用,为每个结点保存孩子结点的数组副本,
+     * 之后多个线程同时读取时getChildAt和getChildCount只读取不再改变的数组
+     */
+    public void freeze() {
+        TreeNode[] array = children.toArray(new TreeNode[0]);
+        for (TreeNode child : array) {
+            child.freeze();
+        }
+        frozenChildren = array;
+    }
+
+    @Override
+    public String toString() {
+        return content;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package compiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 提前编译的测试：回归测试目录中的每个程序提前编译为jar,用java -jar运行,X.in存在时作为标准输入;
+ * 标准输出和标准错误必须与解释器的输出和错误信息相同。提前编译的程序在第一个语义错误处结束,
+ * 解释器报告多个错误时,输出应是解释器输出的开头,错误信息只有第一个错误。
+ * 数组、浮点数、除数为0和read的程序必须支持提前编译。有不一致时以状态1退出
+ * 用法：CMMAotCompilerTest [测试目录],默认为src/test/resources/regression
+ */
+public class CMMAotCompilerTest {
+    private static final List<String> REQUIRED = Arrays.asList("array_expression", "real_arithmetic",
+            "division_by_zero", "read_input");              // 必须支持提前编译的程序
+    private static final String ERROR_HEADER = "该程序中共有1个语义错误！\n";
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/test/resources/regression");
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".cmm")).sorted()
+                    .collect(Collectors.toList());
+        }
+        Path temp = Files.createTempDirectory("cmm-aot-test");
+        try {
+            for (Path file : files) {
+                String name = file.getFileName().toString().replaceFirst("\\.cmm$", "");
+                Path inputFile = directory.resolve(name + ".in");
+                List<String> input = Files.isRegularFile(inputFile)
+                        ? Files.readAllLines(inputFile, StandardCharsets.UTF_8) : List.of();
+                CMMProgram program = CMMProgram.compile(read(file));
+                CMMAotCompiler compiler = new CMMAotCompiler(program);
+                Path jarFile = temp.resolve(name + ".jar");
+                if (!program.isValid() || !compiler.compile(jarFile)) {
+                    if (REQUIRED.contains(name)) {
+                        failed++;
+                        System.out.print("失败 " + name + "：不能提前编译\n" + compiler.getErrorInfo());
+                    } else {
+                        System.out.println("跳过 " + name + "：不支持提前编译");
+                    }
+                    continue;
+                }
+                MemoryOutputSink output = new MemoryOutputSink();
+                MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+                program.run(InputChannel.fromLines(input), output, diagnostics);
+                String[] result = runJar(jarFile, Files.isRegularFile(inputFile) ? inputFile : null, temp);
+                if (result == null) {
+                    failed++;
+                    System.out.println("失败 " + name + "：运行超时");
+                } else {
+                    // 输入错误在执行中按StreamDiagnosticSink的格式输出,语义错误在执行结束后输出
+                    StringBuilder inputErrors = new StringBuilder();
+                    for (String message : diagnostics.getInputErrors()) {
+                        inputErrors.append("输入错误：").append(message).append("\n");
+                    }
+                    check(name, result[0], result[1], output.getText(), inputErrors.toString(),
+                            diagnostics.getText());
+                }
+            }
+        } finally {
+            try (Stream<Path> stream = Files.walk(temp)) {
+                for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：比较提前编译的程序与解释器的结果
+     * @param output 提前编译的程序的标准输出
+     * @param errors 提前编译的程序的标准错误
+     * @param expectedOutput 解释器的输出
+     * @param inputErrors 解释器的输入错误
+     * @param expectedErrors 解释器的语义错误
+     */
+    private static void check(String name, String output, String errors, String expectedOutput,
+                              String inputErrors, String expectedErrors) {
+        boolean passed;
+        String[] lines = expectedErrors.split("\n", -1);
+        if (expectedErrors.isEmpty() || expectedErrors.startsWith(ERROR_HEADER)) {
+            passed = output.equals(expectedOutput) && errors.equals(inputErrors + expectedErrors);
+        } else {
+            // 解释器报告了多个错误,提前编译的程序停在第一个错误处,之前的输出和输入错误都是解释器的开头
+            String firstError = ERROR_HEADER + lines[1] + "\n";
+            passed = expectedOutput.startsWith(output) && errors.endsWith(firstError)
+                    && inputErrors.startsWith(errors.substring(0, errors.length() - firstError.length()));
+        }
+        if (passed) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name);
+            System.out.print("解释器的输出：\n" + expectedOutput + inputErrors + expectedErrors);
+            System.out.print("提前编译的输出：\n" + output + errors);
+        }
+    }
+
+    /**
+     * 功能介绍：用当前的Java运行jar
+     * @param inputFile 标准输入,为null时没有输入
+     * @return 标准输出和标准错误,60秒内没有结束时返回null
+     */
+    private static String[] runJar(Path jarFile, Path inputFile, Path temp) throws IOException, InterruptedException {
+        Path stdout = temp.resolve("stdout");
+        Path stderr = temp.resolve("stderr");
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-jar", jarFile.toString())
+                .redirectOutput(stdout.toFile()).redirectError(stderr.toFile());
+        if (inputFile != null)
+            builder.redirectInput(inputFile.toFile());
+        Process process = builder.start();
+        if (inputFile == null)
+            process.getOutputStream().close();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return null;
+        }
+        return new String[]{read(stdout), read(stderr)};
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
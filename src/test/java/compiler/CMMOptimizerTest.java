@@ -0,0 +1,61 @@
+package compiler;
+
+import structure.TreeNode;
+
+/**
+ * CMMOptimizer的测试：检查常量折叠和删除不可达分支后的语法树,以及int变量的实数初始值不被折叠。
+ * 以(内容 子结点...)的形式比较语句,有不一致时以状态1退出
+ */
+public class CMMOptimizerTest {
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) {
+        check("整数折叠", "int x = 2 + 3 * 4;", "(int x (= 14))");
+        check("实数折叠", "real r = 2.5 * 2;", "(real r (= 5.0))");
+        check("int变量的实数初始值不折叠", "int x = 2.5 * 2, y = 3;", "(int x (= (* 2.5 2)) y (= 3))");
+        check("子表达式折叠", "int x; x = x * (1 + 2);", "(int x)(= x (* x 3))");
+        check("条件恒为真删除else分支", "if (1 < 2) { write(1); } else { write(2); }",
+                "(if (Condition true) (Statements (write 1)))");
+        check("条件恒为假删除if分支", "if (2 < 1) { write(1); } else { write(2); }",
+                "(if (Condition false) EmptyStm (else (write 2)))");
+        check("条件恒为假删除if语句", "if (2 < 1) { write(1); } write(3);", "(write 3)");
+        check("条件恒为假删除while语句", "int i = 0; while (i <> i) { write(i); } while (1 == 2) { write(i); }",
+                "(int i (= 0))(while (Condition (<> i i)) (Statements (write i)))");
+        System.out.println(failed == 0 ? "全部通过" : "失败" + failed + "个");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：优化源程序并比较各条语句
+     */
+    private static void check(String name, String source, String expected) {
+        CMMLexer cmmLexer = new CMMLexer();
+        cmmLexer.setSourceText(source);
+        cmmLexer.execute(source);
+        TreeNode root = new CMMParser(cmmLexer.getTokens()).execute();
+        new CMMOptimizer(root).execute();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < root.getChildCount(); i++) {
+            describe(root.getChildAt(i), actual);
+        }
+        if (actual.toString().equals(expected)) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：期望" + expected + ",实际" + actual);
+        }
+    }
+
+    private static void describe(TreeNode node, StringBuilder out) {
+        if (node.getChildCount() == 0) {
+            out.append(node.getContent());
+            return;
+        }
+        out.append("(").append(node.getContent());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            out.append(" ");
+            describe(node.getChildAt(i), out);
+        }
+        out.append(")");
+    }
+}
@@ -0,0 +1,105 @@
+package compiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * CMMProgramStore的测试：回归测试目录中的每个程序保存到磁盘缓存后再读入,执行结果必须与直接编译的程序相同;
+ * 版本号不同或被截断的缓存文件不能读入,CompilationCache应重新编译并写入新的缓存文件。有不一致时以状态1退出
+ */
+public class CMMProgramStoreTest {
+    private static final Path REGRESSION = Paths.get("src/test/resources/regression");
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("cmmc");
+        try {
+            CMMProgramStore store = new CMMProgramStore(directory, Long.MAX_VALUE);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(REGRESSION)) {
+                files = stream.filter(p -> p.getFileName().toString().endsWith(".cmm")).sorted()
+                        .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString().replaceFirst("\\.cmm$", "");
+                String source = read(file);
+                Path inputFile = REGRESSION.resolve(name + ".in");
+                List<String> input = Files.isRegularFile(inputFile)
+                        ? Files.readAllLines(inputFile, StandardCharsets.UTF_8) : List.of();
+                CMMProgram compiled = CMMProgram.compile(source);
+                store.save(compiled);
+                CMMProgram loaded = store.load(source);
+                if (loaded == null) {
+                    check("读入 " + name, "null", "程序");
+                    continue;
+                }
+                check("保存后读入 " + name, run(loaded, input), run(compiled, input));
+            }
+
+            String source = read(files.get(0));
+            Path file = directory.resolve(CompilationCache.hash(source) + ".cmmc");
+            // 版本号在魔数之后
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer.wrap(bytes).putInt(4, ByteBuffer.wrap(bytes).getInt(4) + 1);
+            Files.write(file, bytes);
+            checkRecompiled("版本号不同", store, source, file);
+
+            bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+            checkRecompiled("文件被截断", store, source, file);
+        } finally {
+            try (Stream<Path> stream = Files.walk(directory)) {
+                for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：缓存文件不能读入,经过CompilationCache编译时应重新编译并写入新的缓存文件
+     */
+    private static void checkRecompiled(String name, CMMProgramStore store, String source, Path file) {
+        check(name + "时不读入", store.load(source) == null ? "null" : "程序", "null");
+        CompilationCache cache = new CompilationCache(1);
+        cache.setStore(store);
+        CMMProgram program = cache.compile(source);
+        check(name + "时重新编译", program.isValid() + " " + cache.getDiskHits(), "true 0");
+        check(name + "后写入新的缓存文件", store.load(source) == null ? "null" : "程序", "程序");
+        check(name + "后的缓存文件", String.valueOf(Files.isRegularFile(file)), "true");
+    }
+
+    /**
+     * @return write语句的输出和错误信息
+     */
+    private static String run(CMMProgram program, List<String> input) {
+        MemoryOutputSink output = new MemoryOutputSink();
+        MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+        program.run(InputChannel.fromLines(input), output, diagnostics);
+        return output.getText() + diagnostics.getText();
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static void check(String name, String actual, String expected) {
+        if (actual.equals(expected)) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：期望\"" + expected + "\",实际\"" + actual + "\"");
+        }
+    }
+}
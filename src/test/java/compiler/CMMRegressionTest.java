@@ -0,0 +1,113 @@
+package compiler;
+
+import structure.TreeNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 回归测试：目录中的每个X.cmm分别在不优化、不做循环优化和完整优化时执行,完整优化时再用resume可恢复执行一次,
+ * write的输出必须与X.out相同,错误信息必须与X.err相同(没有X.err时应没有错误);X.in存在时按行作为read的输入;
+ * X.limits存在时其中的两个数为最多执行步数和最多变量个数,各配置都按这些限制执行。
+ * 有不一致时输出差异并以状态1退出
+ * 用法：CMMRegressionTest [测试目录],默认为src/test/resources/regression
+ */
+public class CMMRegressionTest {
+    /* 编译的配置 */
+    private static final String UNOPTIMIZED = "不优化";
+    private static final String NO_LOOP_OPTIMIZATION = "不做循环优化";
+    private static final String OPTIMIZED = "完整优化";
+    private static final String RESUMABLE = "可恢复执行";
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/test/resources/regression");
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".cmm")).sorted()
+                    .collect(Collectors.toList());
+        }
+        int failed = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString().replaceFirst("\\.cmm$", "");
+            String source = read(file);
+            String expectedOutput = read(directory.resolve(name + ".out"));
+            String expectedErrors = read(directory.resolve(name + ".err"));
+            List<String> input = Files.isRegularFile(directory.resolve(name + ".in"))
+                    ? Files.readAllLines(directory.resolve(name + ".in"), StandardCharsets.UTF_8) : List.of();
+            String[] limits = read(directory.resolve(name + ".limits")).trim().split("\\s+");
+            long maxSteps = limits.length == 2 ? Long.parseLong(limits[0]) : 0;
+            long maxCells = limits.length == 2 ? Long.parseLong(limits[1]) : 0;
+            for (String configuration : new String[]{UNOPTIMIZED, NO_LOOP_OPTIMIZATION, OPTIMIZED, RESUMABLE}) {
+                MemoryOutputSink output = new MemoryOutputSink();
+                MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+                run(source, configuration, input, new ResourceGovernor(maxSteps, 0, maxCells), output, diagnostics);
+                if (output.getText().equals(expectedOutput) && diagnostics.getText().equals(expectedErrors)) {
+                    System.out.println("通过 " + name + " (" + configuration + ")");
+                } else {
+                    failed++;
+                    System.out.println("失败 " + name + " (" + configuration + ")");
+                    System.out.print("期望的输出：\n" + expectedOutput + expectedErrors);
+                    System.out.print("实际的输出：\n" + output.getText() + diagnostics.getText());
+                }
+            }
+        }
+        System.out.println("共" + files.size() + "个程序,失败" + failed + "次");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：按给定的配置编译并执行程序
+     */
+    private static void run(String source, String configuration, List<String> input, ResourceGovernor governor,
+                            MemoryOutputSink output, MemoryDiagnosticSink diagnostics) {
+        if (configuration.equals(OPTIMIZED)) {
+            CMMProgram.compile(source).run(InputChannel.fromLines(input), output, diagnostics, governor);
+            return;
+        }
+        if (configuration.equals(RESUMABLE)) {
+            CMMSemanticAnalysis interpreter = CMMProgram.compile(source).createInterpreter(null, output, diagnostics);
+            interpreter.setGovernor(governor);
+            // 每次停在read语句处时提供下一行输入,输入用完后提供null
+            int next = 0;
+            String line = null;
+            while (!interpreter.resume(line)) {
+                line = next < input.size() ? input.get(next++) : null;
+            }
+            return;
+        }
+        CMMLexer cmmLexer = new CMMLexer();
+        cmmLexer.setSourceText(source);
+        cmmLexer.execute(source);
+        CMMParser cmmParser = new CMMParser(cmmLexer.getTokens());
+        TreeNode root = cmmParser.execute();
+        if (cmmLexer.getErrorNum() != 0 || cmmParser.getErrorNum() != 0 || root == null) {
+            diagnostics.report("词法或语法错误\n");
+            return;
+        }
+        if (configuration.equals(NO_LOOP_OPTIMIZATION)) {
+            new CMMOptimizer(root).execute();
+            new CMMDataFlowAnalysis(root).execute();
+            new CMMDependenceAnalysis(root).execute();
+        }
+        root.freeze();
+        CMMSemanticAnalysis interpreter = new CMMSemanticAnalysis(root, InputChannel.fromLines(input), output,
+                diagnostics);
+        interpreter.setGovernor(governor);
+        interpreter.run();
+    }
+
+    /**
+     * @return 文件不存在时返回空字符串
+     */
+    private static String read(Path file) throws IOException {
+        if (!Files.isRegularFile(file))
+            return "";
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package compiler;
+
+import structure.TreeNode;
+
+/**
+ * 批量执行数组循环的测试：每个循环分别写成可以批量执行的形式(i = i + 1)和只能逐次执行的形式(i = 1 + i),
+ * 两者的输出、错误信息和执行步数必须相同;再把步数限制设为批量执行所需步数减一,两者必须在相同的位置终止。
+ * 有不一致时以状态1退出
+ */
+public class CMMVectorLoopTest {
+    private static final String SETUP = "int n = 100;\nint a[100];\nint b[100];\nint c[100];\n"
+            + "real x[100];\nreal y[100];\nreal z[100];\nint i;\nint m;\nint s = 0;\nreal r;\nreal t = 0.5;\n"
+            + "for (i = 0; i < n; i = 1 + i) {\n    a[i] = (i * 37) - (i / 3) * 100;\n    b[i] = 7 - i;\n"
+            + "    x[i] = a[i] / 8.0;\n    y[i] = 0.1 * i;\n}\n";
+    /** 堆外存储的大数组 */
+    private static final String OFF_HEAP_SETUP = "int n = 70000;\nint a[70000];\nreal x[70000];\nint i;\n"
+            + "int m = 0;\nreal t = 0.0;\nfor (i = 0; i < n; i = 1 + i) {\n    a[i] = i * 7 - 200000;\n"
+            + "    x[i] = i / 16.0;\n}\n";
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) {
+        check("int逐元素运算", "for (i = 0; i < n; i = i + 1) {\n    c[i] = a[i] * b[i];\n}\n"
+                + "write(c[0]);\nwrite(c[99]);\n");
+        check("int复制", "i = 0;\nwhile (i < n) {\n    c[i] = b[i];\n    i = i + 1;\n}\nwrite(c[50]);\n");
+        check("int求和", "for (i = 0; i < n; i = i + 1) {\n    s = s + a[i];\n}\nwrite(s);\n");
+        check("int最小值", "m = 1000;\nfor (i = 0; i < n; i = i + 1) {\n    if (a[i] < m) {\n"
+                + "        m = a[i];\n    }\n}\nwrite(m);\n");
+        check("int最大值", "m = 0 - 1000;\ni = 0;\nwhile (i < n) {\n    if (a[i] > m) {\n        m = a[i];\n"
+                + "    }\n    i = i + 1;\n}\nwrite(m);\n");
+        check("real逐元素运算", "for (i = 0; i < n; i = i + 1) {\n    z[i] = x[i] - y[i];\n}\n"
+                + "write(z[3]);\nwrite(z[98]);\n");
+        check("real与常量运算", "for (i = 0; i < n; i = i + 1) {\n    z[i] = y[i] * 0.3;\n}\nwrite(z[7]);\n");
+        check("real求和", "for (i = 0; i < n; i = i + 1) {\n    t = t + y[i];\n}\nwrite(t);\n");
+        check("real最小值", "r = 100.0;\nfor (i = 0; i < n; i = i + 1) {\n    if (x[i] < r) {\n"
+                + "        r = x[i];\n    }\n}\nwrite(r);\n");
+        check("real最大值", "r = 0.0;\nfor (i = 0; i < n; i = i + 1) {\n    if (x[i] > r) {\n"
+                + "        r = x[i];\n    }\n}\nwrite(r);\n");
+        check("堆外数组", OFF_HEAP_SETUP, "for (i = 0; i < n; i = i + 1) {\n    a[i] = a[i] * 3;\n}\n"
+                + "for (i = 0; i < n; i = i + 1) {\n    x[i] = x[i] - 0.25;\n}\n"
+                + "for (i = 0; i < n; i = i + 1) {\n    if (a[i] > m) {\n        m = a[i];\n    }\n}\n"
+                + "for (i = 0; i < n; i = i + 1) {\n    t = t + x[i];\n}\n"
+                + "write(a[1]);\nwrite(a[69999]);\nwrite(x[5]);\nwrite(m);\nwrite(t);\n");
+        System.out.println(failed == 0 ? "全部通过" : "失败" + failed + "个");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：比较循环的两种形式,先不限制步数,再限制为批量执行所需的步数减一
+     */
+    private static void check(String name, String loop) {
+        check(name, SETUP, loop);
+    }
+
+    private static void check(String name, String setup, String loop) {
+        String vector = setup + loop;
+        String scalar = setup + loop.replace("i = i + 1", "i = 1 + i");
+        Result expected = run(scalar, 0);
+        Result actual = run(vector, 0);
+        compare(name, expected, actual);
+        compare(name + "(步数限制)", run(scalar, expected.steps - 1), run(vector, expected.steps - 1));
+    }
+
+    private static void compare(String name, Result expected, Result actual) {
+        if (expected.text.equals(actual.text) && expected.steps == actual.steps) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：期望" + expected.steps + "步\n" + expected.text + "实际"
+                    + actual.steps + "步\n" + actual.text);
+        }
+    }
+
+    /**
+     * 功能介绍：不经过优化直接执行,保留循环的原始形式
+     */
+    private static Result run(String source, long maxSteps) {
+        CMMLexer cmmLexer = new CMMLexer();
+        cmmLexer.setSourceText(source);
+        cmmLexer.execute(source);
+        TreeNode root = new CMMParser(cmmLexer.getTokens()).execute();
+        root.freeze();
+        MemoryOutputSink output = new MemoryOutputSink();
+        MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+        CMMSemanticAnalysis interpreter = new CMMSemanticAnalysis(root, () -> null, output, diagnostics);
+        ResourceGovernor governor = new ResourceGovernor(maxSteps, 0, 0);
+        interpreter.setGovernor(governor);
+        interpreter.run();
+        return new Result(output.getText() + diagnostics.getText(), governor.getSteps());
+    }
+
+    private static class Result {
+        String text;                                        // 输出和错误信息
+        long steps;                                         // 执行的步数
+
+        Result(String text, long steps) {
+            this.text = text;
+            this.steps = steps;
+        }
+    }
+}
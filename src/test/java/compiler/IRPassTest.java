@@ -0,0 +1,94 @@
+package compiler;
+
+import structure.BasicBlock;
+import structure.IRInstruction;
+import structure.IRProgram;
+import structure.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 中间代码优化遍的测试：小程序经过数据流分析后生成中间代码,依次执行公共子表达式删除和死存储删除,
+ * 每个优化遍删除的指令(按删除前的顺序)必须与期望的完全相同;下标可能越界的store必须保留。
+ * 有不一致时以状态1退出
+ */
+public class IRPassTest {
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) {
+        check("重复的表达式",
+                "int a; int b; read(a); read(b); write(a * b + 1); write(a * b + 1);",
+                "%7 = mul int %2, %3\n%8 = const int 1\n%9 = add int %4, %5\n",
+                "%1 = undef int\n%0 = undef int\n");
+        check("循环中被覆盖的store,下标已证明不越界",
+                "int a[10]; int i; int x; read(x);\n"
+                        + "for (i = 0; i < 10; i = i + 1) { a[i] = x; a[i] = x + 1; }\nwrite(a[3]);",
+                "%6 = const int 10\n%11 = const int 1\n",
+                "%2 = undef int\n%1 = undef int\nstore @a.0, %5, %3\n");
+        check("下标可能越界的store保留",
+                "int a[10]; int k; read(k); a[k] = 1; a[k] = 2; write(a[0]);",
+                "",
+                "%1 = undef int\n");
+        check("从不读取的数组",
+                "int b[5]; int k; read(k); b[2] = 7; b[k] = 8;",
+                "",
+                "%1 = undef int\n%3 = const int 7\n%4 = const int 2\nstore @b.0, %4, %3\n");
+        check("两次store之间读取了数组",
+                "int a[4]; a[1] = 5; write(a[1]); a[1] = 6; write(a[1]);",
+                "%3 = const int 1\n%6 = const int 1\n%7 = const int 1\n",
+                "");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * @param cse 公共子表达式删除应删除的指令
+     * @param dse 之后死存储删除应删除的指令
+     */
+    private static void check(String name, String source, String cse, String dse) {
+        CMMLexer cmmLexer = new CMMLexer();
+        cmmLexer.setSourceText(source);
+        cmmLexer.execute(source);
+        TreeNode root = new CMMParser(cmmLexer.getTokens()).execute();
+        new CMMDataFlowAnalysis(root).execute();
+        IRProgram program = new CMMIRGenerator(root).execute();
+        String cseRemoved = removed(program, new CommonSubexpressionPass());
+        String dseRemoved = removed(program, new DeadStorePass());
+        if (cseRemoved.equals(cse) && dseRemoved.equals(dse)) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name);
+            System.out.print("期望公共子表达式删除：\n" + cse + "实际：\n" + cseRemoved);
+            System.out.print("期望死存储删除：\n" + dse + "实际：\n" + dseRemoved);
+            System.out.print("优化后的中间代码：\n" + program);
+        }
+    }
+
+    /**
+     * 功能介绍：执行一个优化遍
+     * @return 被删除的指令,按删除前的顺序每行一条
+     */
+    private static String removed(IRProgram program, IRPass pass) {
+        ArrayList<IRInstruction> before = instructions(program);
+        pass.run(program);
+        Set<IRInstruction> after = Collections.newSetFromMap(new IdentityHashMap<>());
+        after.addAll(instructions(program));
+        StringBuilder removed = new StringBuilder();
+        for (IRInstruction instruction : before) {
+            if (!after.contains(instruction))
+                removed.append(instruction).append("\n");
+        }
+        return removed.toString();
+    }
+
+    private static ArrayList<IRInstruction> instructions(IRProgram program) {
+        ArrayList<IRInstruction> instructions = new ArrayList<>();
+        for (BasicBlock block : program.getBlocks()) {
+            instructions.addAll(block.getInstructions());
+        }
+        return instructions;
+    }
+}
@@ -0,0 +1,92 @@
+package compiler;
+
+import java.util.List;
+
+/**
+ * ResourceGovernor的测试：等待read输入的时间不计入执行时间;等待输入时取消,执行应及时结束;
+ * 已取消的ResourceGovernor再次执行时不保留上一次的取消。有不一致时以状态1退出
+ */
+public class ResourceGovernorTest {
+    private static final String PROGRAM = "int k;\nread(k);\nwrite(k + 1);\n";
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) throws InterruptedException {
+        // 输入在超时时间之后才到达
+        InputChannel input = new InputChannel();
+        Thread producer = new Thread(() -> {
+            sleep(600);
+            input.offer("41");
+            input.close();
+        });
+        producer.start();
+        Result result = run(PROGRAM, input, new ResourceGovernor(0, 200, 0));
+        producer.join();
+        check("等待输入不计时", result, "42\n", "");
+
+        // 输入一直没有到达,取消后执行应结束
+        ResourceGovernor governor = new ResourceGovernor();
+        Thread canceller = new Thread(() -> {
+            sleep(200);
+            governor.cancel();
+        });
+        canceller.start();
+        long start = System.nanoTime();
+        result = run(PROGRAM, new InputChannel(), governor);
+        long millis = (System.nanoTime() - start) / 1000000;
+        canceller.join();
+        if (millis > 5000) {
+            failed++;
+            System.out.println("失败 等待输入时取消：用时" + millis + "毫秒");
+        } else {
+            check("等待输入时取消", result, "", "执行已终止：执行被取消");
+        }
+
+        // 上一次已被取消的ResourceGovernor
+        result = run(PROGRAM, InputChannel.fromLines(List.of("1")), governor);
+        check("再次执行", result, "2\n", "");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：不经过优化执行程序
+     */
+    private static Result run(String source, InputSource input, ResourceGovernor governor) {
+        MemoryOutputSink output = new MemoryOutputSink();
+        MemoryDiagnosticSink diagnostics = new MemoryDiagnosticSink();
+        CMMProgram.compile(source).run(input, output, diagnostics, governor);
+        return new Result(output.getText(), diagnostics.getText());
+    }
+
+    /**
+     * @param errors 错误信息应包含的内容,为空时应没有错误信息
+     */
+    private static void check(String name, Result result, String output, String errors) {
+        boolean passed = result.output.equals(output)
+                && (errors.isEmpty() ? result.errors.isEmpty() : result.errors.contains(errors));
+        if (passed) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：输出\"" + result.output + "\",错误信息\"" + result.errors + "\"");
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Result {
+        private String output;                              // write语句的输出
+        private String errors;                              // 错误信息
+
+        Result(String output, String errors) {
+            this.output = output;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DaemonServer的测试：按常驻进程的默认设置(不限制资源)启动,死循环的程序应在默认执行时间加等待时间内以"X 1"结束,
+ * 结束后没有执行中的会话;字节数为负数、超过上限或不是数的请求应得到"X 2"。有不一致时以状态1退出
+ */
+public class DaemonServerTest {
+    private static final String LOOP = "int i = 0;\nwhile (1 > 0) {\n    i = i + 1;\n}\n";
+    private static final long MAX_MILLIS = 11000 + 5000;    // 默认执行时间加等待时间,再留出机器繁忙时的余量
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("cmm-daemon-test");
+        Path socketFile = directory.resolve("daemon.sock");
+        try (ExecutionService service = new ExecutionService();
+             DaemonServer server = new DaemonServer(socketFile, service)) {
+            server.bind();
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    System.out.println("常驻进程异常结束：" + e);
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+
+            check("执行程序", request(socketFile, "RUN", "int k;\nread(k);\nwrite(k + 1);\n", "41\n"),
+                    List.of("O 42", "X 0"));
+
+            long start = System.nanoTime();
+            List<String> lines = request(socketFile, "RUN", LOOP, "");
+            long millis = (System.nanoTime() - start) / 1000000;
+            String last = lines.isEmpty() ? "" : lines.get(lines.size() - 1);
+            check("死循环在超时后结束", last + (millis <= MAX_MILLIS ? "" : ",用时" + millis + "毫秒"), "X 1");
+            check("死循环的错误信息", String.valueOf(String.join("\n", lines).contains("超过执行时间")), "true");
+            // 会话在响应送出前后结束,最多等待5秒
+            int active = service.getActiveSessions();
+            for (int i = 0; i < 50 && active != 0; i++) {
+                Thread.sleep(100);
+                active = service.getActiveSessions();
+            }
+            check("没有执行中的会话", String.valueOf(active), "0");
+
+            for (String length : new String[]{"-1", String.valueOf(Integer.MAX_VALUE), "abc"}) {
+                lines = request(socketFile, "RUN " + length, null, "");
+                check("字节数" + length, lines.isEmpty() ? "" : lines.get(lines.size() - 1), "X 2");
+            }
+        } finally {
+            Files.deleteIfExists(socketFile);
+            Files.deleteIfExists(directory);
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：发送一个请求,关闭输出后读取全部响应
+     * @param request 请求的第一行,source不为null时之后加上源程序的字节数
+     * @param source 源程序,可以为null
+     * @param input source之后发送的内容
+     * @return 响应的各行
+     */
+    private static List<String> request(Path socketFile, String request, String source, String input)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketFile))) {
+            OutputStream out = Channels.newOutputStream(channel);
+            if (source != null) {
+                byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+                out.write((request + " " + bytes.length + "\n").getBytes(StandardCharsets.UTF_8));
+                out.write(bytes);
+            } else {
+                out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            out.write(input.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            channel.shutdownOutput();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                    StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    private static void check(String name, Object actual, Object expected) {
+        if (actual.equals(expected)) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：期望\"" + expected + "\",实际\"" + actual + "\"");
+        }
+    }
+}
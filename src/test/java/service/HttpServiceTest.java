@@ -0,0 +1,87 @@
+package service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HttpService的测试：在空闲端口上按默认设置(不限制资源)启动,POST /run执行死循环的程序,
+ * 响应应在执行时间(请求的timeout或默认的10秒)加等待时间内到达并报告超时;之后/metrics中执行中的会话个数应回到0。
+ * 有不一致时以状态1退出
+ */
+public class HttpServiceTest {
+    private static final String LOOP = "int i = 0;\nwhile (1 > 0) {\n    i = i + 1;\n}\n";
+    private static final long GRACE_MILLIS = 1000;          // 服务超过执行时间后等待会话结束的时间
+    private static final long SLACK_MILLIS = 5000;          // 机器繁忙时的余量
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) throws Exception {
+        try (ExecutionService service = new ExecutionService()) {
+            HttpService http = new HttpService(service, 0);
+            http.start();
+            try {
+                String base = "http://127.0.0.1:" + http.getPort();
+                runLoop("请求限制执行时间", base + "/run?timeout=500", 500);
+                runLoop("默认执行时间", base + "/run", 10000);
+                // 会话在响应送出前后结束,最多等待5秒
+                boolean idle = request(base + "/metrics", null).contains("cmm_active_sessions 0\n");
+                for (int i = 0; i < 50 && !idle; i++) {
+                    Thread.sleep(100);
+                    idle = request(base + "/metrics", null).contains("cmm_active_sessions 0\n");
+                }
+                check("没有执行中的会话", String.valueOf(idle), "true");
+            } finally {
+                http.close();
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：执行死循环,检查响应的时间和内容
+     * @param timeoutMillis 本次执行的时间限制
+     */
+    private static void runLoop(String name, String url, long timeoutMillis) throws IOException {
+        long start = System.nanoTime();
+        String response = request(url, LOOP);
+        long millis = (System.nanoTime() - start) / 1000000;
+        check(name + "的用时", millis <= timeoutMillis + GRACE_MILLIS + SLACK_MILLIS ? "按时" : millis + "毫秒",
+                "按时");
+        boolean exceeded = response.startsWith("{\"success\":false") && response.contains("\"exceeded\":\"time\"");
+        check(name + "的结果", exceeded ? "超时" : response, "超时");
+    }
+
+    /**
+     * 功能介绍：发送请求,body为null时用GET,否则用POST
+     * @return 响应体
+     */
+    private static String request(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setReadTimeout(60000);
+        if (body != null) {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void check(String name, String actual, String expected) {
+        if (actual.equals(expected)) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：期望\"" + expected + "\",实际\"" + actual + "\"");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Session的测试：等待read输入的会话不占用线程;陆续提供的输入按顺序交给read语句;
+ * 等待输入时取消,会话应及时结束;等待输入的时间不计入执行时间。有不一致时以状态1退出
+ */
+public class SessionTest {
+    private static final String SUM = "int i;\nint k;\nint s = 0;\nfor (i = 0; i < 3; i = i + 1) {\n"
+            + "    read(k);\n    if (k > 0) {\n        s = s + k;\n    } else {\n        write(k);\n    }\n}\n"
+            + "write(s);\n";
+
+    private static int failed = 0;                          // 失败的测试个数
+
+    public static void main(String[] args) throws Exception {
+        try (ExecutionService service = new ExecutionService()) {
+            // 大量会话等待输入时,没有线程停在解释器中
+            ArrayList<Session> sessions = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Session session = service.submit(SUM);
+                session.offer("5");
+                sessions.add(session);
+            }
+            // 会话执行到第二个read语句后释放线程;机器繁忙时启动较慢,最多等待10秒
+            int blocked = running();
+            for (int i = 0; i < 100 && blocked != 0; i++) {
+                Thread.sleep(100);
+                blocked = running();
+            }
+            check("等待输入不占用线程", String.valueOf(blocked), "0");
+            for (Session session : sessions) {
+                session.offer("0");
+                session.offer("7");
+            }
+            int wrong = 0;
+            for (Session session : sessions) {
+                if (!session.await(60000) || !session.getOutput().getText().equals("0\n12\n"))
+                    wrong++;
+            }
+            check("陆续提供输入", String.valueOf(wrong), "0");
+
+            // 输入一直没有到达时取消
+            Session session = service.submit(SUM);
+            Thread.sleep(200);
+            session.cancel();
+            session.await(5000);
+            check("等待输入时取消", session.getDiagnostics().getText().contains("执行已终止：执行被取消")
+                    ? "取消" : session.getDiagnostics().getText(), "取消");
+
+            // 输入在超时时间之后才到达
+            session = service.submit(SUM, 0, 200, 0);
+            Thread.sleep(600);
+            session.offer("1");
+            session.offer("2");
+            session.offer("4");
+            session.await(5000);
+            check("等待输入不计时", session.getOutput().getText() + session.getDiagnostics().getText(),
+                    "7\n");
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 功能介绍：统计正在执行解释器代码的线程数
+     */
+    private static int running() {
+        int count = 0;
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            for (StackTraceElement element : entry.getValue()) {
+                if (element.getClassName().startsWith("compiler.CMMSemanticAnalysis")) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void check(String name, String actual, String expected) {
+        if (actual.equals(expected)) {
+            System.out.println("通过 " + name);
+        } else {
+            failed++;
+            System.out.println("失败 " + name + "：期望\"" + expected + "\",实际\"" + actual + "\"");
+        }
+    }
+}
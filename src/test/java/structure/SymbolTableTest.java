@@ -0,0 +1,27 @@
+package structure;
+
+/**
+ * SymbolTable的测试：update去除层次大于给定层次的元素时,连续的多个元素都应被去除。
+ * 有不一致时以状态1退出
+ */
+public class SymbolTableTest {
+    public static void main(String[] args) {
+        SymbolTable table = new SymbolTable();
+        table.add(new SymbolTableElement("a", "int", 1, 0));
+        table.add(new SymbolTableElement("b", "int", 2, 1));
+        table.add(new SymbolTableElement("c", "real", 3, 1));
+        table.add(new SymbolTableElement("d", "int", 4, 2));
+        table.add(new SymbolTableElement("e", "int", 5, 0));
+        table.update(0);
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < table.size(); i++) {
+            names.append(table.get(i).getName());
+        }
+        if (names.toString().equals("ae")) {
+            System.out.println("通过 update");
+        } else {
+            System.out.println("失败 update：期望剩余ae,实际剩余" + names);
+            System.exit(1);
+        }
+    }
+}